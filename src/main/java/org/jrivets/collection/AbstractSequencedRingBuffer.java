@@ -0,0 +1,208 @@
+package org.jrivets.collection;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.jrivets.util.CheckUtils;
+
+/**
+ * Base class for bounded lock-free Ring Buffers with multiple producers (D.
+ * Vyukov's algorithm). Every slot of the buffer has its own sequence number
+ * which says whether the slot is free to be written for the tail sequence
+ * (<tt>slotSeq == tail</tt>) or it is ready to be read for the head sequence (
+ * <tt>slotSeq == head + 1</tt>). A producer claims the slot by CAS on the tail
+ * sequence, writes the element and publishes the slot by ordered store of its
+ * sequence, so producers don't block each other.
+ * <p>
+ * The capacity is exactly as requested. If the capacity is power of two, the
+ * slot index is calculated by masking the sequence, otherwise by the remainder
+ * operation. The buffer of capacity 1 has 2 slots (one slot cannot distinguish
+ * the published and free states), and the producer checks the head sequence
+ * then.
+ * <p>
+ * A batch of elements is added by <tt>offerAll()</tt> which claims all the
+ * slots of the batch by one CAS on the tail sequence after checking the room
+ * against the head sequence, so the batch is added completely or not at all.
+ * <p>
+ * <tt>null</tt> elements are not allowed. The iteration and bulk methods like
+ * <tt>contains()</tt>, <tt>toArray()</tt>, <tt>remove(Object)</tt> etc. are not
+ * supported and will throw {@link UnsupportedOperationException} exception.
+ *
+ * @author Dmitry Spasibenko
+ *
+ * @param <T>
+ */
+abstract class AbstractSequencedRingBuffer<T> extends SequencedRingBufferPad2<T> {
+
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<SequencedRingBufferHead> HEAD = AtomicLongFieldUpdater.newUpdater(
+            SequencedRingBufferHead.class, "head");
+
+    @SuppressWarnings("rawtypes")
+    static final AtomicLongFieldUpdater<SequencedRingBufferTail> TAIL = AtomicLongFieldUpdater.newUpdater(
+            SequencedRingBufferTail.class, "tail");
+
+    final T[] values;
+
+    final AtomicLongArray sequences;
+
+    final int capacity;
+
+    /**
+     * Number of slots
+     */
+    final int length;
+
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    AbstractSequencedRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity=" + capacity + " should be positive");
+        }
+        this.capacity = capacity;
+        this.length = Math.max(capacity, 2);
+        this.mask = Integer.bitCount(length) == 1 ? length - 1 : -1;
+        this.values = (T[]) new Object[length];
+        this.sequences = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public final boolean offer(T value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            long pos = tail;
+            int idx = index(pos);
+            long dif = sequences.get(idx) - pos;
+            if (dif == 0L) {
+                if (length != capacity && pos - head >= capacity) {
+                    return false;
+                }
+                if (TAIL.compareAndSet(this, pos, pos + 1)) {
+                    values[idx] = value;
+                    sequences.lazySet(idx, pos + 1);
+                    return true;
+                }
+            } else if (dif < 0L) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Adds all <tt>len</tt> elements of the array from the <tt>off</tt> index
+     * or none of them if the buffer doesn't have enough room. The slots are
+     * claimed by one CAS on the tail sequence and then every slot is published
+     * as <tt>offer()</tt> does, so consumers can see the first elements of the
+     * batch before the last ones are published. A slot of the batch can still
+     * be held by the consumer which has claimed it, but has not released it
+     * yet, the producer waits for the release then.
+     *
+     * @param src
+     * @param off
+     * @param len
+     * @return <tt>false</tt> if the buffer doesn't have room for all the
+     *         elements
+     * @throws NullPointerException
+     *             if any of the elements is <tt>null</tt>
+     */
+    public final boolean offerAll(T[] src, int off, int len) {
+        CheckUtils.arrayBounds(src.length, off, len);
+        for (int i = off; i < off + len; i++) {
+            if (src[i] == null) {
+                throw new NullPointerException();
+            }
+        }
+        if (len > capacity) {
+            return false;
+        }
+        while (len > 0) {
+            long pos = tail;
+            if (pos + len - head > capacity) {
+                return false;
+            }
+            if (TAIL.compareAndSet(this, pos, pos + len)) {
+                for (int i = 0; i < len; i++) {
+                    long seq = pos + i;
+                    int idx = index(seq);
+                    while (sequences.get(idx) != seq) {
+                        // the consumer claimed the slot, but doesn't release it yet
+                        Thread.yield();
+                    }
+                    values[idx] = src[off + i];
+                    sequences.lazySet(idx, seq + 1);
+                }
+                return true;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public final void clear() {
+        while (poll() != null) {
+            // just drains the buffer
+        }
+    }
+
+    @Override
+    public final int size() {
+        long h = head;
+        long t = tail;
+        return (int) Math.min(Math.max(t - h, 0L), capacity);
+    }
+
+    @Override
+    public final boolean isEmpty() {
+        return head >= tail;
+    }
+
+    public final int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public final Iterator<T> iterator() {
+        throw new UnsupportedOperationException("The method iterator() is not supported by the "
+                + getClass().getSimpleName());
+    }
+
+    final int index(long seq) {
+        return mask >= 0 ? (int) seq & mask : (int) (seq % length);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("{size=").append(size()).append(", capacity=").append(capacity)
+                .append(", head=").append(head).append(", tail=").append(tail).append("}").toString();
+    }
+}
+
+abstract class SequencedRingBufferPad0<T> extends AbstractQueue<T> {
+    long p00, p01, p02, p03, p04, p05, p06, p07, p08, p09, p0a, p0b, p0c, p0d, p0e, p0f;
+}
+
+abstract class SequencedRingBufferHead<T> extends SequencedRingBufferPad0<T> {
+
+    volatile long head;
+}
+
+abstract class SequencedRingBufferPad1<T> extends SequencedRingBufferHead<T> {
+    long p10, p11, p12, p13, p14, p15, p16, p17, p18, p19, p1a, p1b, p1c, p1d, p1e, p1f;
+}
+
+abstract class SequencedRingBufferTail<T> extends SequencedRingBufferPad1<T> {
+
+    volatile long tail;
+}
+
+abstract class SequencedRingBufferPad2<T> extends SequencedRingBufferTail<T> {
+    long p20, p21, p22, p23, p24, p25, p26, p27, p28, p29, p2a, p2b, p2c, p2d, p2e, p2f;
+}
@@ -0,0 +1,212 @@
+package org.jrivets.collection;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Auto-sorted collection which keeps <tt>k</tt> greatest (best) elements only.
+ * This is bounded (top-K) mode of {@link SortedArray}, instances are created by
+ * {@link SortedArray#bounded(int, Comparator)}.
+ * <p>
+ * The elements are kept in a binary min-heap, so the worst of kept elements is
+ * always on top. When the collection is full, an element which is not better
+ * than the worst one is rejected by one comparison, and a better element
+ * replaces the worst one in O(log k). The sorted order is materialized lazily:
+ * the heap is sorted when the elements are accessed by index or iterated after
+ * a modification, and the sorted copy is used till the next modification.
+ * <p>
+ * The elements are returned in ascending order as {@link SortedArray} does,
+ * so the best element has index <tt>size() - 1</tt>. The iterator doesn't
+ * support removal. The ordering and <tt>null</tt> values are handled the same
+ * way as {@link SortedArray} does.
+ * <p>
+ * This is not thread-safe implementation.
+ *
+ * @author Dmitry Spasibenko
+ *
+ * @param <T>
+ */
+public class BoundedSortedArray<T> extends AbstractCollection<T> {
+
+    private final Comparator<T> comparator;
+
+    private final T[] heap;
+
+    private int size;
+
+    private T[] sorted;
+
+    @SuppressWarnings("unchecked")
+    BoundedSortedArray(int k, Comparator<T> comparator) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k=" + k + " should be positive");
+        }
+        this.comparator = comparator;
+        this.heap = (T[]) new Object[k];
+    }
+
+    /**
+     * Adds the element if the collection is not full or the element is better
+     * than the worst kept one, which is removed then.
+     *
+     * @return <tt>false</tt> if the element is rejected
+     */
+    @Override
+    public boolean add(T element) {
+        if (size < heap.length) {
+            heap[size] = element;
+            siftUp(size++);
+        } else if (compare(element, heap[0]) > 0) {
+            heap[0] = element;
+            siftDown(0);
+        } else {
+            return false;
+        }
+        sorted = null;
+        return true;
+    }
+
+    /**
+     * Returns the worst of kept elements.
+     *
+     * @throws NoSuchElementException
+     *             if the collection is empty
+     */
+    public T worst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return heap[0];
+    }
+
+    /**
+     * Returns the element by its index in ascending order.
+     */
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return getSorted()[index];
+    }
+
+    public int capacity() {
+        return heap.length;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+        sorted = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean remove(Object o) {
+        for (int i = 0; i < size; i++) {
+            if (compare(heap[i], (T) o) == 0) {
+                removeAt(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        final T[] elements = getSorted();
+        return new Iterator<T>() {
+
+            private int idx;
+
+            @Override
+            public boolean hasNext() {
+                return idx < elements.length;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return elements[idx++];
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+        return getSorted().clone();
+    }
+
+    private T[] getSorted() {
+        if (sorted == null) {
+            T[] result = Arrays.copyOf(heap, size);
+            Arrays.sort(result, comparator);
+            sorted = result;
+        }
+        return sorted;
+    }
+
+    private void removeAt(int idx) {
+        T last = heap[--size];
+        heap[size] = null;
+        if (idx < size) {
+            heap[idx] = last;
+            siftDown(idx);
+            siftUp(idx);
+        }
+        sorted = null;
+    }
+
+    private void siftUp(int idx) {
+        T element = heap[idx];
+        while (idx > 0) {
+            int parent = (idx - 1) >>> 1;
+            if (compare(element, heap[parent]) >= 0) {
+                break;
+            }
+            heap[idx] = heap[parent];
+            idx = parent;
+        }
+        heap[idx] = element;
+    }
+
+    private void siftDown(int idx) {
+        T element = heap[idx];
+        int half = size >>> 1;
+        while (idx < half) {
+            int child = 2 * idx + 1;
+            int right = child + 1;
+            if (right < size && compare(heap[right], heap[child]) < 0) {
+                child = right;
+            }
+            if (compare(element, heap[child]) <= 0) {
+                break;
+            }
+            heap[idx] = heap[child];
+            idx = child;
+        }
+        heap[idx] = element;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(T element1, T element2) {
+        return comparator != null ? comparator.compare(element1, element2) : ((Comparable<T>) element1)
+                .compareTo(element2);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("{size=").append(size).append(", capacity=").append(heap.length)
+                .append("}").toString();
+    }
+}
@@ -0,0 +1,440 @@
+package org.jrivets.collection;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Auto-sorted collection for large number of elements. This is
+ * {@link SortedArray} counterpart which keeps elements in list of sorted
+ * blocks (about 1K elements each by default) instead of one array, so
+ * inserting or removing an element shifts one block only and doesn't copy
+ * whole array.
+ * <p>
+ * Every block has cumulative count of elements in the blocks before it, so
+ * access to an element by its index is binary search over the blocks counts
+ * which is O(log n). The block for an element is found by binary search over
+ * the blocks last elements. Full block is split into two halves when an
+ * element is inserted into it, and a block which became small after removals
+ * is merged with its neighbor.
+ * <p>
+ * The ordering and <tt>null</tt> values are handled the same way as
+ * {@link SortedArray} does: the {@link Comparator} is optional, the elements
+ * should implement {@link Comparable} if it is not provided. An element is
+ * inserted after the elements which are equal to it.
+ * <p>
+ * This is not thread-safe implementation, so concurrent modifications from
+ * different threads will follow to unpredictable results.
+ *
+ * @author Dmitry Spasibenko
+ *
+ * @param <T>
+ */
+public class ChunkedSortedArray<T> extends AbstractCollection<T> implements Serializable {
+
+    private static final long serialVersionUID = -3507716519431372271L;
+
+    static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private final Comparator<T> comparator;
+
+    private final int blockSize;
+
+    private Object[][] blocks;
+
+    private int[] sizes;
+
+    /**
+     * Number of elements in the blocks before the block
+     */
+    private int[] offsets;
+
+    private int blockCount;
+
+    private int size;
+
+    public ChunkedSortedArray() {
+        this(null);
+    }
+
+    public ChunkedSortedArray(Comparator<T> comparator) {
+        this(comparator, DEFAULT_BLOCK_SIZE);
+    }
+
+    public ChunkedSortedArray(Comparator<T> comparator, int blockSize) {
+        if (blockSize < 4) {
+            throw new IllegalArgumentException("blockSize=" + blockSize + " should be 4 or more");
+        }
+        this.comparator = comparator;
+        this.blockSize = blockSize;
+        init();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        init();
+    }
+
+    /**
+     * Releases the unused part of the blocks index. The blocks themselves are
+     * not trimmed.
+     */
+    public void trimToSize() {
+        if (blocks.length > blockCount) {
+            blocks = Arrays.copyOf(blocks, blockCount);
+            sizes = Arrays.copyOf(sizes, blockCount);
+            offsets = Arrays.copyOf(offsets, blockCount);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        checkIndexInRange(index);
+        int b = getBlockByIndex(index);
+        return (T) blocks[b][index - offsets[b]];
+    }
+
+    @Override
+    public boolean add(T element) {
+        if (blockCount == 0) {
+            insertBlock(0, new Object[blockSize], 0);
+        }
+        int b = getBlockForInsertion(element);
+        int pos = upperBound(b, element);
+        if (sizes[b] == blockSize) {
+            int half = blockSize / 2;
+            split(b, half);
+            if (pos > half) {
+                pos -= half;
+                b++;
+            }
+        }
+        Object[] block = blocks[b];
+        System.arraycopy(block, pos, block, pos + 1, sizes[b] - pos);
+        block[pos] = element;
+        sizes[b]++;
+        size++;
+        for (int i = b + 1; i < blockCount; i++) {
+            offsets[i]++;
+        }
+        return true;
+    }
+
+    /**
+     * Returns index of the element or <tt>(-(insertion point) - 1)</tt> if
+     * the element is not found, the same way as
+     * {@link Arrays#binarySearch(Object[], Object)} does.
+     */
+    public int getIndexOf(T element) {
+        int b = getBlockForSearch(element);
+        if (b == blockCount) {
+            return -size - 1;
+        }
+        int idx = Arrays.binarySearch(getBlock(b), 0, sizes[b], element, comparator);
+        return idx >= 0 ? offsets[b] + idx : idx - offsets[b];
+    }
+
+    public boolean removeElement(T element) {
+        int idx = getIndexOf(element);
+        if (idx >= 0) {
+            removeByIndex(idx);
+            return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T removeByIndex(int index) {
+        checkIndexInRange(index);
+        int b = getBlockByIndex(index);
+        int pos = index - offsets[b];
+        Object[] block = blocks[b];
+        T result = (T) block[pos];
+        int newSize = --sizes[b];
+        System.arraycopy(block, pos + 1, block, pos, newSize - pos);
+        block[newSize] = null;
+        size--;
+        for (int i = b + 1; i < blockCount; i++) {
+            offsets[i]--;
+        }
+        if (newSize == 0) {
+            removeBlocks(b, 1);
+        } else if (newSize < blockSize / 4) {
+            if (b + 1 < blockCount && newSize + sizes[b + 1] <= blockSize) {
+                merge(b);
+            } else if (b > 0 && newSize + sizes[b - 1] <= blockSize) {
+                merge(b - 1);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes all elements with index less than provided one. The whole
+     * blocks before the index are dropped, so only one block is shifted.
+     */
+    public void removeBefore(int index) {
+        if (index <= 0) {
+            return;
+        }
+        if (index >= size) {
+            clear();
+            return;
+        }
+        int b = getBlockByIndex(index);
+        removeBlocks(0, b);
+        int pos = index - offsets[0];
+        if (pos > 0) {
+            Object[] block = blocks[0];
+            int newSize = sizes[0] - pos;
+            System.arraycopy(block, pos, block, 0, newSize);
+            Arrays.fill(block, newSize, sizes[0], null);
+            sizes[0] = newSize;
+        }
+        size -= index;
+        offsets[0] = 0;
+        for (int i = 1; i < blockCount; i++) {
+            offsets[i] = offsets[i - 1] + sizes[i - 1];
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+
+            private int idx;
+
+            private int block;
+
+            private int pos;
+
+            private int removeIdx = -1;
+
+            @Override
+            public boolean hasNext() {
+                return idx < size;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (pos == sizes[block]) {
+                    block++;
+                    pos = 0;
+                }
+                removeIdx = idx++;
+                return (T) blocks[block][pos++];
+            }
+
+            @Override
+            public void remove() {
+                if (removeIdx == -1) {
+                    throw new IllegalStateException();
+                }
+                removeByIndex(removeIdx);
+                idx = removeIdx;
+                removeIdx = -1;
+                if (idx < size) {
+                    block = getBlockByIndex(idx);
+                    pos = idx - offsets[block];
+                }
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean contains(Object o) {
+        return getIndexOf((T) o) >= 0;
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] result = new Object[size];
+        for (int b = 0; b < blockCount; b++) {
+            System.arraycopy(blocks[b], 0, result, offsets[b], sizes[b]);
+        }
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+        return removeElement((T) o);
+    }
+
+    int blockCount() {
+        return blockCount;
+    }
+
+    private void init() {
+        blocks = new Object[4][];
+        sizes = new int[4];
+        offsets = new int[4];
+        blockCount = 0;
+        size = 0;
+    }
+
+    /**
+     * The block with the largest offset which is not greater than index.
+     */
+    private int getBlockByIndex(int index) {
+        int lo = 0;
+        int hi = blockCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * The first block whose last element is greater than the element, or the
+     * last block.
+     */
+    private int getBlockForInsertion(T element) {
+        int lo = 0;
+        int hi = blockCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(getLast(mid), element) > 0) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * The first block whose last element is not less than the element, or
+     * <tt>blockCount</tt> if there is no such block.
+     */
+    private int getBlockForSearch(T element) {
+        int lo = 0;
+        int hi = blockCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(getLast(mid), element) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Position in the block after the elements which are not greater than the
+     * element.
+     */
+    private int upperBound(int b, T element) {
+        T[] block = getBlock(b);
+        int lo = 0;
+        int hi = sizes[b];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(block[mid], element) > 0) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    private void split(int b, int half) {
+        Object[] block = blocks[b];
+        Object[] newBlock = new Object[blockSize];
+        int newSize = sizes[b] - half;
+        System.arraycopy(block, half, newBlock, 0, newSize);
+        Arrays.fill(block, half, sizes[b], null);
+        sizes[b] = half;
+        insertBlock(b + 1, newBlock, newSize);
+    }
+
+    /**
+     * Moves elements of the block <tt>b + 1</tt> to the block <tt>b</tt>
+     */
+    private void merge(int b) {
+        System.arraycopy(blocks[b + 1], 0, blocks[b], sizes[b], sizes[b + 1]);
+        sizes[b] += sizes[b + 1];
+        removeBlocks(b + 1, 1);
+    }
+
+    private void insertBlock(int b, Object[] block, int count) {
+        if (blockCount == blocks.length) {
+            int newLength = blockCount * 3 / 2 + 1;
+            blocks = Arrays.copyOf(blocks, newLength);
+            sizes = Arrays.copyOf(sizes, newLength);
+            offsets = Arrays.copyOf(offsets, newLength);
+        }
+        int tail = blockCount - b;
+        System.arraycopy(blocks, b, blocks, b + 1, tail);
+        System.arraycopy(sizes, b, sizes, b + 1, tail);
+        System.arraycopy(offsets, b, offsets, b + 1, tail);
+        blocks[b] = block;
+        sizes[b] = count;
+        offsets[b] = b == 0 ? 0 : offsets[b - 1] + sizes[b - 1];
+        blockCount++;
+    }
+
+    /**
+     * Removes <tt>n</tt> blocks starting from <tt>b</tt>, the offsets of the
+     * following blocks are not changed.
+     */
+    private void removeBlocks(int b, int n) {
+        if (n == 0) {
+            return;
+        }
+        int tail = blockCount - b - n;
+        System.arraycopy(blocks, b + n, blocks, b, tail);
+        System.arraycopy(sizes, b + n, sizes, b, tail);
+        System.arraycopy(offsets, b + n, offsets, b, tail);
+        blockCount -= n;
+        Arrays.fill(blocks, blockCount, blockCount + n, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T[] getBlock(int b) {
+        return (T[]) blocks[b];
+    }
+
+    @SuppressWarnings("unchecked")
+    private T getLast(int b) {
+        return (T) blocks[b][sizes[b] - 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(T element1, T element2) {
+        return comparator != null ? comparator.compare(element1, element2) : ((Comparable<T>) element1)
+                .compareTo(element2);
+    }
+
+    private void checkIndexInRange(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("{size=").append(size).append(", blockSize=").append(blockSize)
+                .append(", blocks=").append(blockCount).append("}").toString();
+    }
+}
@@ -0,0 +1,375 @@
+package org.jrivets.collection;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe auto-sorted array for read-mostly use. The elements are kept in
+ * an immutable array (snapshot) which is replaced by writers on every
+ * modification (copy-on-write), so readers never lock or contend: they do
+ * binary search over the current snapshot, and iterators and views work with
+ * the snapshot which was current when they were created.
+ * <p>
+ * Writers are serialized by a lock. <tt>add()</tt>, <tt>remove()</tt>,
+ * <tt>addAll()</tt>, <tt>removeAll()</tt> and <tt>removeBefore()</tt> copy
+ * the array once, and the last three publish many modifications as one new
+ * snapshot. <tt>update()</tt> applies arbitrary {@link SortedArray}
+ * modifications as one snapshot too, it copies the array before the batch and
+ * once more only if the batch leaves the array with spare capacity (e.g.
+ * after removals or single additions).
+ * <p>
+ * Index based methods (<tt>get()</tt>, <tt>lowerBound()</tt> etc.) work with
+ * the current snapshot, which can be replaced between two calls, so for
+ * consistent index based access use the list returned by <tt>snapshot()</tt>.
+ * <p>
+ * The ordering and <tt>null</tt> values are handled the same way as
+ * {@link SortedArray} does.
+ *
+ * @author Dmitry Spasibenko
+ *
+ * @param <T>
+ */
+public class ConcurrentSortedArray<T> extends AbstractCollection<T> {
+
+    private final Comparator<T> comparator;
+
+    private final Lock lock = new ReentrantLock();
+
+    private volatile Object[] elements = new Object[0];
+
+    public ConcurrentSortedArray() {
+        this(null);
+    }
+
+    public ConcurrentSortedArray(Comparator<T> comparator) {
+        this.comparator = comparator;
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return elements.length == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Object[] a = elements;
+        if (index < 0 || index >= a.length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + a.length);
+        }
+        return (T) a[index];
+    }
+
+    /**
+     * Returns immutable list of the current elements. The list is not copied
+     * and it is not changed by later modifications of the array.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> snapshot() {
+        return Collections.unmodifiableList(Arrays.asList((T[]) elements));
+    }
+
+    /**
+     * Returns index of the element or <tt>(-(insertion point) - 1)</tt> if
+     * the element is not found, see {@link SortedArray#getIndexOf(Object)}
+     */
+    @SuppressWarnings("unchecked")
+    public int getIndexOf(T element) {
+        Object[] a = elements;
+        int idx = lowerBound(a, element);
+        return idx < a.length && compare((T) a[idx], element) == 0 ? idx : -idx - 1;
+    }
+
+    /**
+     * See {@link SortedArray#lowerBound(Object)}
+     */
+    public int lowerBound(T element) {
+        return lowerBound(elements, element);
+    }
+
+    /**
+     * See {@link SortedArray#upperBound(Object)}
+     */
+    public int upperBound(T element) {
+        return upperBound(elements, element);
+    }
+
+    @SuppressWarnings("unchecked")
+    public T floor(T element) {
+        Object[] a = elements;
+        int idx = upperBound(a, element);
+        return idx > 0 ? (T) a[idx - 1] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T ceiling(T element) {
+        Object[] a = elements;
+        int idx = lowerBound(a, element);
+        return idx < a.length ? (T) a[idx] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T higher(T element) {
+        Object[] a = elements;
+        int idx = upperBound(a, element);
+        return idx < a.length ? (T) a[idx] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T lower(T element) {
+        Object[] a = elements;
+        int idx = lowerBound(a, element);
+        return idx > 0 ? (T) a[idx - 1] : null;
+    }
+
+    /**
+     * Returns immutable view of the elements in <tt>[from..to)</tt> range of
+     * the current snapshot, the elements are not copied.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> subRange(T from, T to) {
+        Object[] a = elements;
+        int fromIdx = lowerBound(a, from);
+        int toIdx = Math.max(lowerBound(a, to), fromIdx);
+        return Collections.unmodifiableList(Arrays.asList((T[]) a).subList(fromIdx, toIdx));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean contains(Object o) {
+        return getIndexOf((T) o) >= 0;
+    }
+
+    /**
+     * Returns iterator over the current snapshot, the iterator doesn't
+     * support removal.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return elements.clone();
+    }
+
+    @Override
+    public boolean add(T element) {
+        lock.lock();
+        try {
+            Object[] a = elements;
+            int idx = upperBound(a, element);
+            Object[] result = new Object[a.length + 1];
+            System.arraycopy(a, 0, result, 0, idx);
+            result[idx] = element;
+            System.arraycopy(a, idx, result, idx + 1, a.length - idx);
+            elements = result;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            int idx = getIndexOf((T) o);
+            if (idx < 0) {
+                return false;
+            }
+            Object[] a = elements;
+            Object[] result = new Object[a.length - 1];
+            System.arraycopy(a, 0, result, 0, idx);
+            System.arraycopy(a, idx + 1, result, idx, result.length - idx);
+            elements = result;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds all elements of the collection as one new snapshot, see
+     * {@link SortedArray#addAll(Collection)}
+     */
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        if (c.isEmpty()) {
+            return false;
+        }
+        lock.lock();
+        try {
+            // the merge doesn't change the wrapped array, but creates new one
+            SortedArray<T> sa = SortedArray.wrap(comparator, elements);
+            sa.addAll(c);
+            elements = sa.trimmedElements();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all elements which are equal to the collection ones as one new
+     * snapshot, see {@link SortedArray#removeAll(Collection)}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean removeAll(Collection<?> c) {
+        if (c.isEmpty()) {
+            return false;
+        }
+        T[] removed = (T[]) c.toArray();
+        Arrays.sort(removed, comparator);
+        lock.lock();
+        try {
+            Object[] a = elements;
+            int newSize = 0;
+            for (int i = 0, j = 0; i < a.length; i++) {
+                j = skipLess(removed, j, (T) a[i]);
+                if (j == removed.length || compare(removed[j], (T) a[i]) != 0) {
+                    newSize++;
+                }
+            }
+            if (newSize == a.length) {
+                return false;
+            }
+            Object[] result = new Object[newSize];
+            for (int i = 0, j = 0, k = 0; i < a.length; i++) {
+                j = skipLess(removed, j, (T) a[i]);
+                if (j == removed.length || compare(removed[j], (T) a[i]) != 0) {
+                    result[k++] = a[i];
+                }
+            }
+            elements = result;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void removeBefore(int index) {
+        if (index <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            Object[] a = elements;
+            elements = index >= a.length ? new Object[0] : Arrays.copyOfRange(a, index, a.length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            elements = new Object[0];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies batch of modifications: the current elements are copied to
+     * {@link SortedArray}, the <tt>batch</tt> modifies it, and the result is
+     * published as new snapshot, so the readers see all modifications of the
+     * batch at once. The provided {@link SortedArray} should not be used
+     * after the batch.
+     *
+     * @param batch
+     * @return <tt>true</tt> if the elements were changed
+     */
+    public boolean update(Consumer<? super SortedArray<T>> batch) {
+        lock.lock();
+        try {
+            Object[] a = elements;
+            SortedArray<T> sa = SortedArray.wrap(comparator, a.clone());
+            batch.accept(sa);
+            Object[] result = sa.trimmedElements();
+            if (isSame(a, result)) {
+                return false;
+            }
+            elements = result;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int skipLess(T[] sorted, int from, T element) {
+        while (from < sorted.length && compare(sorted[from], element) < 0) {
+            from++;
+        }
+        return from;
+    }
+
+    private static boolean isSame(Object[] a1, Object[] a2) {
+        if (a1.length != a2.length) {
+            return false;
+        }
+        for (int i = 0; i < a1.length; i++) {
+            if (a1[i] != a2[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int lowerBound(Object[] a, T element) {
+        int lo = 0;
+        int hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare((T) a[mid], element) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int upperBound(Object[] a, T element) {
+        int lo = 0;
+        int hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare((T) a[mid], element) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(T element1, T element2) {
+        return comparator != null ? comparator.compare(element1, element2) : ((Comparable<T>) element1)
+                .compareTo(element2);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("{size=").append(elements.length).append("}").toString();
+    }
+}
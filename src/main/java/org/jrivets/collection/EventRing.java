@@ -0,0 +1,336 @@
+package org.jrivets.collection;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Sequenced ring of preallocated events (LMAX Disruptor style). All entries of
+ * the ring are created by the event factory when the ring is constructed, and
+ * producers mutate them in place instead of allocating new events, so passing
+ * events through the ring doesn't produce garbage.
+ * <p>
+ * A producer claims the next sequence, writes the event and publishes it:
+ *
+ * <pre>
+ * long seq = ring.next();
+ * try {
+ *     ring.get(seq).setValue(value);
+ * } finally {
+ *     ring.publish(seq);
+ * }
+ * </pre>
+ *
+ * A consumer has its own {@link Sequence} which is the last processed sequence,
+ * and a {@link SequenceBarrier} which is created with the sequences of the
+ * consumers it depends on (if any). The consumer waits for the next sequence on
+ * the barrier, processes all available events and moves its sequence:
+ *
+ * <pre>
+ * long next = sequence.get() + 1;
+ * long available = barrier.waitFor(next);
+ * for (; next &lt;= available; next++) {
+ *     process(ring.get(next));
+ * }
+ * sequence.set(available);
+ * </pre>
+ *
+ * The sequences of the last consumers in the chains should be added to the ring
+ * as gating sequences (see {@link #addGatingSequences(Sequence...)}), the
+ * producers never overwrite the entries which are not processed by them.
+ * <p>
+ * The ring can be created for single producer, or for multiple producers which
+ * claim sequences by CAS and publish them out of order, the published sequences
+ * are tracked in the availability array then. The consumers wait for sequences
+ * by the {@link WaitStrategy} provided. The ring size should be power of two.
+ *
+ * @author Dmitry Spasibenko
+ *
+ * @param <T>
+ */
+public final class EventRing<T> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<EventRing, Sequence[]> GATING = AtomicReferenceFieldUpdater
+            .newUpdater(EventRing.class, Sequence[].class, "gatingSequences");
+
+    private final Object[] entries;
+
+    private final int mask;
+
+    private final int indexShift;
+
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * The last published sequence for single producer and the last claimed
+     * one for multiple producers.
+     */
+    private final Sequence cursor = new Sequence();
+
+    /**
+     * Availability flags of multi-producer ring, <tt>null</tt> for single
+     * producer. The flag of the slot is the sequence round number.
+     */
+    private final AtomicIntegerArray available;
+
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+
+    /**
+     * Cached minimum of gating sequences.
+     */
+    private final Sequence gatingCache = new Sequence();
+
+    /**
+     * The last claimed sequence of single producer.
+     */
+    private long nextValue = Sequence.INITIAL_VALUE;
+
+    private EventRing(int size, Supplier<? extends T> factory, boolean multiProducer, WaitStrategy waitStrategy) {
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("size=" + size + " should be positive power of two");
+        }
+        this.entries = new Object[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = factory.get();
+        }
+        this.mask = size - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(size);
+        this.waitStrategy = waitStrategy;
+        if (multiProducer) {
+            this.available = new AtomicIntegerArray(size);
+            for (int i = 0; i < size; i++) {
+                available.set(i, -1);
+            }
+        } else {
+            this.available = null;
+        }
+    }
+
+    public static <T> EventRing<T> singleProducer(int size, Supplier<? extends T> factory, WaitStrategy waitStrategy) {
+        return new EventRing<T>(size, factory, false, waitStrategy);
+    }
+
+    public static <T> EventRing<T> multiProducer(int size, Supplier<? extends T> factory, WaitStrategy waitStrategy) {
+        return new EventRing<T>(size, factory, true, waitStrategy);
+    }
+
+    /**
+     * Returns the event for the sequence.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long sequence) {
+        return (T) entries[(int) sequence & mask];
+    }
+
+    /**
+     * Claims the next sequence, waits while the ring is full.
+     */
+    public long next() {
+        return next(1);
+    }
+
+    /**
+     * Claims <tt>n</tt> next sequences, waits while there is no enough space
+     * in the ring.
+     *
+     * @return the highest claimed sequence, so the claimed ones are
+     *         <tt>[result - n + 1 .. result]</tt>
+     */
+    public long next(int n) {
+        checkBatchSize(n);
+        if (available == null) {
+            long next = nextValue + n;
+            long wrapPoint = next - entries.length;
+            if (wrapPoint > gatingCache.get()) {
+                long minSequence;
+                while (wrapPoint > (minSequence = Sequence.min(gatingSequences, nextValue))) {
+                    LockSupport.parkNanos(1L);
+                }
+                gatingCache.set(minSequence);
+            }
+            nextValue = next;
+            return next;
+        }
+        while (true) {
+            long current = cursor.get();
+            long next = current + n;
+            long wrapPoint = next - entries.length;
+            long cachedGating = gatingCache.get();
+            if (wrapPoint > cachedGating || cachedGating > current) {
+                long minSequence = Sequence.min(gatingSequences, current);
+                if (wrapPoint > minSequence) {
+                    LockSupport.parkNanos(1L);
+                    continue;
+                }
+                gatingCache.set(minSequence);
+            } else if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Tries to claim the next sequence.
+     *
+     * @return the claimed sequence or -1 if the ring is full
+     */
+    public long tryNext() {
+        return tryNext(1);
+    }
+
+    /**
+     * Tries to claim <tt>n</tt> next sequences.
+     *
+     * @return the highest claimed sequence or -1 if there is no enough space
+     *         in the ring
+     */
+    public long tryNext(int n) {
+        checkBatchSize(n);
+        if (available == null) {
+            long next = nextValue + n;
+            if (!hasCapacity(next - entries.length, nextValue)) {
+                return -1L;
+            }
+            nextValue = next;
+            return next;
+        }
+        while (true) {
+            long current = cursor.get();
+            long next = current + n;
+            if (!hasCapacity(next - entries.length, current)) {
+                return -1L;
+            }
+            if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Publishes the event of the claimed sequence to the consumers.
+     */
+    public void publish(long sequence) {
+        publish(sequence, sequence);
+    }
+
+    /**
+     * Publishes the events of the claimed sequences <tt>[lo..hi]</tt>.
+     */
+    public void publish(long lo, long hi) {
+        if (available == null) {
+            cursor.set(hi);
+        } else {
+            for (long s = lo; s <= hi; s++) {
+                available.lazySet((int) s & mask, (int) (s >>> indexShift));
+            }
+        }
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    /**
+     * Creates the barrier for a consumer which depends on the consumers with
+     * the <tt>dependencies</tt> sequences. The consumer depends on the
+     * producers only if no dependencies are provided.
+     */
+    public SequenceBarrier newBarrier(Sequence... dependencies) {
+        return new SequenceBarrier(this, cursor, dependencies.clone(), waitStrategy);
+    }
+
+    /**
+     * Adds the sequences of the consumers the producers should not overtake.
+     * The sequences should be set to the current cursor value if the ring is
+     * already in use.
+     */
+    public void addGatingSequences(Sequence... sequences) {
+        Sequence[] current;
+        Sequence[] updated;
+        do {
+            current = gatingSequences;
+            updated = Arrays.copyOf(current, current.length + sequences.length);
+            System.arraycopy(sequences, 0, updated, current.length, sequences.length);
+        } while (!GATING.compareAndSet(this, current, updated));
+    }
+
+    public boolean removeGatingSequence(Sequence sequence) {
+        Sequence[] current;
+        Sequence[] updated;
+        do {
+            current = gatingSequences;
+            int idx = -1;
+            for (int i = 0; i < current.length && idx < 0; i++) {
+                if (current[i] == sequence) {
+                    idx = i;
+                }
+            }
+            if (idx < 0) {
+                return false;
+            }
+            updated = new Sequence[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, idx);
+            System.arraycopy(current, idx + 1, updated, idx, updated.length - idx);
+        } while (!GATING.compareAndSet(this, current, updated));
+        return true;
+    }
+
+    /**
+     * Returns the last claimed sequence for multiple producers or the last
+     * published one for single producer.
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Returns number of sequences which can be claimed without waiting.
+     */
+    public long remainingCapacity() {
+        long produced = available == null ? nextValue : cursor.get();
+        return entries.length - (produced - Sequence.min(gatingSequences, produced));
+    }
+
+    /**
+     * Returns the highest published sequence in <tt>[lo..hi]</tt> range
+     * without gaps, or <tt>lo - 1</tt> if <tt>lo</tt> is not published.
+     */
+    long getHighestPublished(long lo, long hi) {
+        if (available == null) {
+            return hi;
+        }
+        for (long s = lo; s <= hi; s++) {
+            if (available.get((int) s & mask) != (int) (s >>> indexShift)) {
+                return s - 1;
+            }
+        }
+        return hi;
+    }
+
+    private boolean hasCapacity(long wrapPoint, long current) {
+        long cachedGating = gatingCache.get();
+        if (wrapPoint > cachedGating || cachedGating > current) {
+            long minSequence = Sequence.min(gatingSequences, current);
+            gatingCache.set(minSequence);
+            return wrapPoint <= minSequence;
+        }
+        return true;
+    }
+
+    private void checkBatchSize(int n) {
+        if (n < 1 || n > entries.length) {
+            throw new IllegalArgumentException("n=" + n + " should be in [1.." + entries.length + "]");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("{size=").append(entries.length).append(", cursor=").append(cursor)
+                .append(", multiProducer=").append(available != null).append(", waitStrategy=")
+                .append(waitStrategy).append("}").toString();
+    }
+}
@@ -0,0 +1,206 @@
+package org.jrivets.collection;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Ring Buffer of <tt>int</tt> values. This is {@link RingBuffer} counterpart
+ * which stores values in an array of primitives, so no boxing or allocations
+ * happen when values are added. The buffer has fixed capacity and FIFO
+ * discipline: values can be added to the end of the buffer and removed from
+ * the head only.
+ * <p>
+ * When the buffer is full <tt>offer()</tt> returns <tt>false</tt> and
+ * <tt>add()</tt> throws {@link IllegalStateException} as {@link RingBuffer}
+ * does, but <tt>put()</tt> overwrites the oldest value, so the buffer can be
+ * used like a window of last <tt>capacity</tt> values. The aggregate methods
+ * <tt>sum()</tt>, <tt>min()</tt> and <tt>max()</tt> are calculated over the
+ * values in the buffer.
+ * <p>
+ * <strong>Note that this implementation is not synchronized.</strong>
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class IntRingBuffer {
+
+    private final int[] values;
+
+    private int headIdx;
+
+    private int size;
+
+    public IntRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.values = new int[capacity];
+    }
+
+    public void add(int value) {
+        if (!offer(value)) {
+            throw new IllegalStateException("The buffer is full");
+        }
+    }
+
+    public boolean offer(int value) {
+        if (size == values.length) {
+            return false;
+        }
+        values[correctIdx(headIdx + size)] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Adds the value to the end of the buffer. If the buffer is full, the
+     * oldest value is removed.
+     *
+     * @param value
+     * @return <tt>true</tt> if the oldest value was overwritten
+     */
+    public boolean put(int value) {
+        if (size < values.length) {
+            values[correctIdx(headIdx + size)] = value;
+            size++;
+            return false;
+        }
+        values[headIdx] = value;
+        headIdx = correctIdx(headIdx + 1);
+        return true;
+    }
+
+    public int remove() {
+        assertSizeIsNotZero();
+        int result = values[headIdx];
+        headIdx = correctIdx(headIdx + 1);
+        size--;
+        return result;
+    }
+
+    public int element() {
+        assertSizeIsNotZero();
+        return values[headIdx];
+    }
+
+    public int last() {
+        assertSizeIsNotZero();
+        return values[correctIdx(headIdx + size - 1)];
+    }
+
+    /**
+     * Returns the value by its index, the head of the buffer has index 0.
+     */
+    public int get(int index) {
+        checkIndexInRange(index);
+        return values[correctIdx(headIdx + index)];
+    }
+
+    public void set(int index, int value) {
+        checkIndexInRange(index);
+        values[correctIdx(headIdx + index)] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public void clear() {
+        headIdx = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the sum of the values, the result is <tt>long</tt> to avoid
+     * overflow.
+     */
+    public long sum() {
+        long result = 0L;
+        int first = Math.min(size, values.length - headIdx);
+        for (int idx = headIdx; idx < headIdx + first; idx++) {
+            result += values[idx];
+        }
+        for (int idx = 0; idx < size - first; idx++) {
+            result += values[idx];
+        }
+        return result;
+    }
+
+    public int min() {
+        assertSizeIsNotZero();
+        int result = Integer.MAX_VALUE;
+        int first = Math.min(size, values.length - headIdx);
+        for (int idx = headIdx; idx < headIdx + first; idx++) {
+            result = Math.min(result, values[idx]);
+        }
+        for (int idx = 0; idx < size - first; idx++) {
+            result = Math.min(result, values[idx]);
+        }
+        return result;
+    }
+
+    public int max() {
+        assertSizeIsNotZero();
+        int result = Integer.MIN_VALUE;
+        int first = Math.min(size, values.length - headIdx);
+        for (int idx = headIdx; idx < headIdx + first; idx++) {
+            result = Math.max(result, values[idx]);
+        }
+        for (int idx = 0; idx < size - first; idx++) {
+            result = Math.max(result, values[idx]);
+        }
+        return result;
+    }
+
+    public int[] toArray() {
+        int[] result = new int[size];
+        int first = Math.min(size, values.length - headIdx);
+        System.arraycopy(values, headIdx, result, 0, first);
+        System.arraycopy(values, 0, result, first, size - first);
+        return result;
+    }
+
+    private int correctIdx(int idx) {
+        return idx >= values.length ? idx - values.length : idx;
+    }
+
+    private void assertSizeIsNotZero() {
+        if (size == 0) {
+            throw new NoSuchElementException("IntRingBuffer is empty");
+        }
+    }
+
+    private void checkIndexInRange(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof IntRingBuffer)) {
+            return false;
+        }
+        return Arrays.equals(toArray(), ((IntRingBuffer) o).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("{size=").append(size).append(", capacity=").append(values.length)
+                .append(", headIdx=").append(headIdx).append("}").toString();
+    }
+
+}
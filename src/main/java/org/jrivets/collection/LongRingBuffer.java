@@ -0,0 +1,202 @@
+package org.jrivets.collection;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Ring Buffer of <tt>long</tt> values. This is {@link RingBuffer} counterpart
+ * which stores values in an array of primitives, so no boxing or allocations
+ * happen when values are added. The buffer has fixed capacity and FIFO
+ * discipline: values can be added to the end of the buffer and removed from
+ * the head only.
+ * <p>
+ * When the buffer is full <tt>offer()</tt> returns <tt>false</tt> and
+ * <tt>add()</tt> throws {@link IllegalStateException} as {@link RingBuffer}
+ * does, but <tt>put()</tt> overwrites the oldest value, so the buffer can be
+ * used like a window of last <tt>capacity</tt> values. The aggregate methods
+ * <tt>sum()</tt>, <tt>min()</tt> and <tt>max()</tt> are calculated over the
+ * values in the buffer.
+ * <p>
+ * <strong>Note that this implementation is not synchronized.</strong>
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class LongRingBuffer {
+
+    private final long[] values;
+
+    private int headIdx;
+
+    private int size;
+
+    public LongRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.values = new long[capacity];
+    }
+
+    public void add(long value) {
+        if (!offer(value)) {
+            throw new IllegalStateException("The buffer is full");
+        }
+    }
+
+    public boolean offer(long value) {
+        if (size == values.length) {
+            return false;
+        }
+        values[correctIdx(headIdx + size)] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Adds the value to the end of the buffer. If the buffer is full, the
+     * oldest value is removed.
+     *
+     * @param value
+     * @return <tt>true</tt> if the oldest value was overwritten
+     */
+    public boolean put(long value) {
+        if (size < values.length) {
+            values[correctIdx(headIdx + size)] = value;
+            size++;
+            return false;
+        }
+        values[headIdx] = value;
+        headIdx = correctIdx(headIdx + 1);
+        return true;
+    }
+
+    public long remove() {
+        assertSizeIsNotZero();
+        long result = values[headIdx];
+        headIdx = correctIdx(headIdx + 1);
+        size--;
+        return result;
+    }
+
+    public long element() {
+        assertSizeIsNotZero();
+        return values[headIdx];
+    }
+
+    public long last() {
+        assertSizeIsNotZero();
+        return values[correctIdx(headIdx + size - 1)];
+    }
+
+    /**
+     * Returns the value by its index, the head of the buffer has index 0.
+     */
+    public long get(int index) {
+        checkIndexInRange(index);
+        return values[correctIdx(headIdx + index)];
+    }
+
+    public void set(int index, long value) {
+        checkIndexInRange(index);
+        values[correctIdx(headIdx + index)] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public void clear() {
+        headIdx = 0;
+        size = 0;
+    }
+
+    public long sum() {
+        long result = 0L;
+        int first = Math.min(size, values.length - headIdx);
+        for (int idx = headIdx; idx < headIdx + first; idx++) {
+            result += values[idx];
+        }
+        for (int idx = 0; idx < size - first; idx++) {
+            result += values[idx];
+        }
+        return result;
+    }
+
+    public long min() {
+        assertSizeIsNotZero();
+        long result = Long.MAX_VALUE;
+        int first = Math.min(size, values.length - headIdx);
+        for (int idx = headIdx; idx < headIdx + first; idx++) {
+            result = Math.min(result, values[idx]);
+        }
+        for (int idx = 0; idx < size - first; idx++) {
+            result = Math.min(result, values[idx]);
+        }
+        return result;
+    }
+
+    public long max() {
+        assertSizeIsNotZero();
+        long result = Long.MIN_VALUE;
+        int first = Math.min(size, values.length - headIdx);
+        for (int idx = headIdx; idx < headIdx + first; idx++) {
+            result = Math.max(result, values[idx]);
+        }
+        for (int idx = 0; idx < size - first; idx++) {
+            result = Math.max(result, values[idx]);
+        }
+        return result;
+    }
+
+    public long[] toArray() {
+        long[] result = new long[size];
+        int first = Math.min(size, values.length - headIdx);
+        System.arraycopy(values, headIdx, result, 0, first);
+        System.arraycopy(values, 0, result, first, size - first);
+        return result;
+    }
+
+    private int correctIdx(int idx) {
+        return idx >= values.length ? idx - values.length : idx;
+    }
+
+    private void assertSizeIsNotZero() {
+        if (size == 0) {
+            throw new NoSuchElementException("LongRingBuffer is empty");
+        }
+    }
+
+    private void checkIndexInRange(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof LongRingBuffer)) {
+            return false;
+        }
+        return Arrays.equals(toArray(), ((LongRingBuffer) o).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("{size=").append(size).append(", capacity=").append(values.length)
+                .append(", headIdx=").append(headIdx).append("}").toString();
+    }
+
+}
@@ -0,0 +1,239 @@
+package org.jrivets.collection;
+
+import java.util.Arrays;
+
+/**
+ * Resizable auto-sorted array of <tt>long</tt> values. This is
+ * {@link SortedArray} counterpart which stores values in an array of
+ * primitives, so values are not boxed and compared without a comparator. The
+ * values are sorted in ascending order, duplicates are allowed.
+ * <p>
+ * The search is branch-free binary search: the loop has fixed number of
+ * iterations for the array size and the comparison result selects the next
+ * base by conditional move, so there are no mispredicted branches.
+ * <tt>interpolationSearch()</tt> estimates the value position by its value
+ * which is faster for large arrays of uniformly distributed values; it falls
+ * back to binary search after <tt>log(n)</tt> probes, so it is never worse
+ * than O(log n).
+ * <p>
+ * <tt>add()</tt>, <tt>removeValue()</tt>, <tt>removeByIndex()</tt>,
+ * <tt>removeBefore()</tt> and <tt>trimToSize()</tt> follow the
+ * {@link SortedArray} semantics including the capacity growth and shrinking.
+ * <p>
+ * <strong>Note that this implementation is not synchronized.</strong>
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class LongSortedArray {
+
+    private long[] values;
+
+    private int size;
+
+    public LongSortedArray() {
+        this(10);
+    }
+
+    public LongSortedArray(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity=" + capacity + " should not be negative");
+        }
+        this.values = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+        values = new long[10];
+    }
+
+    public void trimToSize() {
+        if (values.length > size) {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    public long get(int index) {
+        checkIndexInRange(index);
+        return values[index];
+    }
+
+    public void add(long value) {
+        if (size == values.length) {
+            setCapacity(size * 3 / 2 + 1);
+        }
+        int idx = size == 0 || values[size - 1] <= value ? size : upperBound(value);
+        System.arraycopy(values, idx, values, idx + 1, size - idx);
+        values[idx] = value;
+        size++;
+    }
+
+    /**
+     * Returns index of the value or <tt>(-(insertion point) - 1)</tt> if the
+     * value is not found, the same way as
+     * {@link Arrays#binarySearch(long[], long)} does. The index of the first
+     * of equal values is returned.
+     */
+    public int getIndexOf(long value) {
+        int idx = lowerBound(value);
+        return idx < size && values[idx] == value ? idx : -idx - 1;
+    }
+
+    /**
+     * Same as <tt>getIndexOf()</tt>, but uses interpolation search, which
+     * should be used for large arrays of uniformly distributed values. An
+     * index of arbitrary one of equal values is returned.
+     */
+    public int interpolationSearch(long value) {
+        int lo = 0;
+        int hi = size - 1;
+        int probes = 32 - Integer.numberOfLeadingZeros(size);
+        while (lo <= hi && probes-- > 0) {
+            long loValue = values[lo];
+            long hiValue = values[hi];
+            if (value < loValue || value > hiValue) {
+                break;
+            }
+            if (loValue == hiValue) {
+                return lo;
+            }
+            int mid = lo + (int) (((double) value - loValue) / ((double) hiValue - loValue) * (hi - lo));
+            if (values[mid] < value) {
+                lo = mid + 1;
+            } else if (values[mid] > value) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        int idx = lowerBound(lo, hi + 1, value);
+        return idx < size && values[idx] == value ? idx : -idx - 1;
+    }
+
+    /**
+     * Returns index of the first value which is not less than the provided
+     * one, or <tt>size()</tt> if there is no such value.
+     */
+    public int lowerBound(long value) {
+        return lowerBound(0, size, value);
+    }
+
+    /**
+     * Returns index of the first value which is greater than the provided one,
+     * or <tt>size()</tt> if there is no such value.
+     */
+    public int upperBound(long value) {
+        if (size == 0) {
+            return 0;
+        }
+        int base = 0;
+        int n = size;
+        while (n > 1) {
+            int half = n >>> 1;
+            base = values[base + half] <= value ? base + half : base;
+            n -= half;
+        }
+        return base + (values[base] <= value ? 1 : 0);
+    }
+
+    public boolean contains(long value) {
+        return getIndexOf(value) >= 0;
+    }
+
+    public boolean removeValue(long value) {
+        int idx = getIndexOf(value);
+        if (idx >= 0) {
+            removeByIndex(idx);
+            return true;
+        }
+        return false;
+    }
+
+    public long removeByIndex(int index) {
+        checkIndexInRange(index);
+        long result = values[index];
+        if (index < --size) {
+            System.arraycopy(values, index + 1, values, index, size - index);
+        }
+        shrinkCapacityAfterDelete();
+        return result;
+    }
+
+    public void removeBefore(int index) {
+        if (index <= 0) {
+            return;
+        }
+        if (index >= size) {
+            clear();
+            return;
+        }
+        size -= index;
+        System.arraycopy(values, index, values, 0, size);
+        shrinkCapacityAfterDelete();
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    int capacity() {
+        return values.length;
+    }
+
+    private int lowerBound(int from, int to, long value) {
+        if (from >= to) {
+            return from;
+        }
+        int base = from;
+        int n = to - from;
+        while (n > 1) {
+            int half = n >>> 1;
+            base = values[base + half] < value ? base + half : base;
+            n -= half;
+        }
+        return base + (values[base] < value ? 1 : 0);
+    }
+
+    private void setCapacity(int newCapacity) {
+        values = Arrays.copyOf(values, newCapacity);
+    }
+
+    private void shrinkCapacityAfterDelete() {
+        if (size <= values.length / 2 && values.length > 100) {
+            setCapacity(size * 3 / 2 + 1);
+        }
+    }
+
+    private void checkIndexInRange(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof LongSortedArray)) {
+            return false;
+        }
+        return Arrays.equals(toArray(), ((LongSortedArray) o).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("{size=").append(size).append(", capacity=").append(values.length)
+                .append(", values=").append(Arrays.toString(toArray())).append("}").toString();
+    }
+}
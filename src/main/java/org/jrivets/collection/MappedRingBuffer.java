@@ -0,0 +1,386 @@
+package org.jrivets.collection;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.jrivets.util.CheckUtils;
+
+/**
+ * Ring Buffer of fixed-size binary records stored in a memory-mapped file. The
+ * buffer has fixed capacity and FIFO discipline as {@link RingBuffer} does, but
+ * records are stored off-heap, so adding or removing a record doesn't allocate
+ * any objects, and the buffer content survives the JVM restart.
+ * <p>
+ * The file consists of a header and the records area. The header contains the
+ * record size, the capacity and the head and tail sequences which are placed
+ * in different cache lines, the sequences are stored in the native byte
+ * order. The sequences are never wrapped, the record slot
+ * is defined by the sequence modulo capacity. A record is written to its slot
+ * first and then the tail sequence is updated, so a reader which sees the tail
+ * sequence can read all the records before it. The same is for the head
+ * sequence and the slots freed by the reader. The sequences are stored with
+ * release semantics (ordered store), so the record stores cannot be reordered
+ * after the sequence store, and loaded with acquire semantics (volatile load),
+ * so the record loads cannot be reordered before the sequence load. The
+ * mapped memory is coherent between processes on the same host, so another
+ * process can map the same file and read the records. The ordered accesses to
+ * the mapped memory use <tt>sun.misc.Unsafe</tt>, the constructor throws
+ * {@link UnsupportedOperationException} if the runtime doesn't provide it.
+ * <p>
+ * The buffer is safe for one writer (<tt>offer()</tt>) and one reader (
+ * <tt>poll()</tt>, <tt>peek()</tt>) which can be in different threads or even
+ * processes. <tt>size()</tt>, <tt>capacity()</tt> and <tt>recordSize()</tt>
+ * can be called from any thread. The header is validated when an existing file
+ * is opened, {@link IllegalStateException} is thrown if it is inconsistent.
+ * <p>
+ * <tt>close()</tt> releases the file mapping, the buffer must not be used
+ * after that, and <tt>close()</tt> must not be called while other threads
+ * use the buffer.
+ * <p>
+ * The file size cannot exceed 2G, so <tt>capacity * recordSize</tt> is
+ * limited.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class MappedRingBuffer implements Closeable {
+
+    private static final int MAGIC = 0x4A524246;
+
+    private static final int VERSION = 2;
+
+    private static final int RECORD_SIZE_OFFSET = 8;
+
+    private static final int CAPACITY_OFFSET = 12;
+
+    private static final int HEAD_OFFSET = 64;
+
+    private static final int TAIL_OFFSET = 128;
+
+    static final int DATA_OFFSET = 192;
+
+    private final File file;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final ByteBuffer writeView;
+
+    private final ByteBuffer readView;
+
+    private final int recordSize;
+
+    private final int capacity;
+
+    private long head;
+
+    private long tailCache;
+
+    private long tail;
+
+    private long headCache;
+
+    /**
+     * Addresses of the head and tail sequences in the mapped memory
+     */
+    private final long headAddress;
+
+    private final long tailAddress;
+
+    private boolean closed;
+
+    /**
+     * Opens existing buffer file. The record size and capacity are read from
+     * the file header.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public MappedRingBuffer(File file) throws IOException {
+        this(file, 0, 0);
+    }
+
+    /**
+     * Opens the buffer file or creates new one if the file doesn't exist or
+     * it is empty. If the file exists its record size and capacity should be
+     * same as provided.
+     *
+     * @param file
+     * @param recordSize
+     *            - size of one record in bytes, positive value or 0 if the
+     *            existing file is opened
+     * @param capacity
+     *            - maximum number of records in the buffer, positive value or
+     *            0 if the existing file is opened
+     * @throws IOException
+     */
+    @SuppressWarnings("resource")
+    public MappedRingBuffer(File file, int recordSize, int capacity) throws IOException {
+        if (recordSize < 0 || capacity < 0 || (long) recordSize * capacity > Integer.MAX_VALUE - DATA_OFFSET) {
+            throw new IllegalArgumentException("recordSize=" + recordSize + ", capacity=" + capacity
+                    + " should be positive and their product should not exceed 2G");
+        }
+        if (!UnsafeMemory.isSupported()) {
+            throw new UnsupportedOperationException("The runtime doesn't support ordered access to mapped memory");
+        }
+        this.file = file;
+        this.channel = new RandomAccessFile(file, "rw").getChannel();
+        try {
+            boolean exists = channel.size() > 0L;
+            if (exists) {
+                if (channel.size() < DATA_OFFSET) {
+                    throw new IllegalStateException("The file " + file + " is not a ring buffer file");
+                }
+                ByteBuffer header = ByteBuffer.allocate(DATA_OFFSET);
+                channel.read(header, 0L);
+                int storedRecordSize = header.getInt(RECORD_SIZE_OFFSET);
+                int storedCapacity = header.getInt(CAPACITY_OFFSET);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IllegalStateException("The file " + file + " is not a ring buffer file");
+                }
+                if (storedRecordSize <= 0 || storedCapacity <= 0
+                        || (long) storedRecordSize * storedCapacity > channel.size() - DATA_OFFSET) {
+                    throw new IllegalStateException("The file " + file + " is corrupted: recordSize="
+                            + storedRecordSize + ", capacity=" + storedCapacity + ", size=" + channel.size());
+                }
+                if ((recordSize != 0 && recordSize != storedRecordSize)
+                        || (capacity != 0 && capacity != storedCapacity)) {
+                    throw new IllegalStateException("The file " + file + " contains buffer with recordSize="
+                            + storedRecordSize + ", capacity=" + storedCapacity + ", but expected recordSize="
+                            + recordSize + ", capacity=" + capacity);
+                }
+                recordSize = storedRecordSize;
+                capacity = storedCapacity;
+            } else if (recordSize == 0 || capacity == 0) {
+                throw new IllegalArgumentException("recordSize and capacity should be positive for new file " + file);
+            }
+            this.recordSize = recordSize;
+            this.capacity = capacity;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, DATA_OFFSET + (long) recordSize
+                    * capacity);
+            if (!exists) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(RECORD_SIZE_OFFSET, recordSize);
+                buffer.putInt(CAPACITY_OFFSET, capacity);
+                buffer.putLong(HEAD_OFFSET, 0L);
+                buffer.putLong(TAIL_OFFSET, 0L);
+                buffer.force();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.writeView = buffer.duplicate();
+        this.readView = buffer.duplicate();
+        long address = UnsafeMemory.address(buffer);
+        this.headAddress = address + HEAD_OFFSET;
+        this.tailAddress = address + TAIL_OFFSET;
+        this.head = this.headCache = UnsafeMemory.getLongVolatile(headAddress);
+        this.tail = this.tailCache = UnsafeMemory.getLongVolatile(tailAddress);
+        if (head < 0L || tail < head || tail - head > this.capacity) {
+            close();
+            throw new IllegalStateException("The file " + file + " is corrupted: head=" + head + ", tail=" + tail);
+        }
+    }
+
+    /**
+     * Adds the record from the array to the end of the buffer.
+     *
+     * @param src
+     * @param off
+     *            - the record offset in the array, <tt>recordSize()</tt>
+     *            bytes will be copied from there
+     * @return <tt>false</tt> if the buffer is full
+     */
+    public boolean offer(byte[] src, int off) {
+        CheckUtils.arrayBounds(src.length, off, recordSize);
+        if (!isReadyToWrite()) {
+            return false;
+        }
+        setSlot(writeView, tail);
+        writeView.put(src, off, recordSize);
+        publishTail();
+        return true;
+    }
+
+    /**
+     * Adds the record from the byte buffer to the end of the buffer. The
+     * record is read from the <tt>src</tt> position, which is moved on
+     * <tt>recordSize()</tt> bytes in case of success.
+     *
+     * @param src
+     * @return <tt>false</tt> if the buffer is full
+     * @throws BufferUnderflowException
+     *             if <tt>src</tt> has less than <tt>recordSize()</tt>
+     *             remaining bytes
+     */
+    public boolean offer(ByteBuffer src) {
+        if (src.remaining() < recordSize) {
+            throw new BufferUnderflowException();
+        }
+        if (!isReadyToWrite()) {
+            return false;
+        }
+        int limit = src.limit();
+        src.limit(src.position() + recordSize);
+        setSlot(writeView, tail);
+        writeView.put(src);
+        src.limit(limit);
+        publishTail();
+        return true;
+    }
+
+    /**
+     * Removes the head record from the buffer and copies it to the array.
+     *
+     * @param dst
+     * @param off
+     * @return <tt>false</tt> if the buffer is empty
+     */
+    public boolean poll(byte[] dst, int off) {
+        if (!peek(dst, off)) {
+            return false;
+        }
+        publishHead();
+        return true;
+    }
+
+    /**
+     * Removes the head record from the buffer and copies it to the byte
+     * buffer, the <tt>dst</tt> position is moved on <tt>recordSize()</tt>
+     * bytes.
+     *
+     * @param dst
+     * @return <tt>false</tt> if the buffer is empty
+     * @throws BufferOverflowException
+     *             if <tt>dst</tt> has less than <tt>recordSize()</tt>
+     *             remaining bytes
+     */
+    public boolean poll(ByteBuffer dst) {
+        if (dst.remaining() < recordSize) {
+            throw new BufferOverflowException();
+        }
+        if (!isReadyToRead()) {
+            return false;
+        }
+        setSlot(readView, head);
+        dst.put(readView);
+        publishHead();
+        return true;
+    }
+
+    /**
+     * Copies the head record to the array without removing it.
+     *
+     * @param dst
+     * @param off
+     * @return <tt>false</tt> if the buffer is empty
+     */
+    public boolean peek(byte[] dst, int off) {
+        CheckUtils.arrayBounds(dst.length, off, recordSize);
+        if (!isReadyToRead()) {
+            return false;
+        }
+        setSlot(readView, head);
+        readView.get(dst, off, recordSize);
+        return true;
+    }
+
+    public int size() {
+        checkOpen();
+        long h = UnsafeMemory.getLongVolatile(headAddress);
+        long t = UnsafeMemory.getLongVolatile(tailAddress);
+        return (int) Math.min(Math.max(t - h, 0L), capacity);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int recordSize() {
+        return recordSize;
+    }
+
+    /**
+     * Forces the buffer content to be written to the storage device.
+     */
+    public void force() {
+        checkOpen();
+        buffer.force();
+    }
+
+    /**
+     * Forces the buffer content to the storage device and releases the file
+     * mapping, the buffer must not be used after that.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            buffer.force();
+        } finally {
+            UnsafeMemory.unmap(buffer);
+            channel.close();
+        }
+    }
+
+    private boolean isReadyToWrite() {
+        checkOpen();
+        if (tail - headCache >= capacity) {
+            headCache = UnsafeMemory.getLongVolatile(headAddress);
+            return tail - headCache < capacity;
+        }
+        return true;
+    }
+
+    private boolean isReadyToRead() {
+        checkOpen();
+        if (head >= tailCache) {
+            tailCache = UnsafeMemory.getLongVolatile(tailAddress);
+            return head < tailCache;
+        }
+        return true;
+    }
+
+    private void setSlot(ByteBuffer view, long seq) {
+        int position = DATA_OFFSET + (int) (seq % capacity) * recordSize;
+        view.limit(position + recordSize);
+        view.position(position);
+    }
+
+    private void publishTail() {
+        UnsafeMemory.putOrderedLong(tailAddress, ++tail);
+    }
+
+    private void publishHead() {
+        UnsafeMemory.putOrderedLong(headAddress, ++head);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The buffer " + file + " is closed");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("{file=").append(file).append(", recordSize=").append(recordSize)
+                .append(", capacity=").append(capacity).append(", size=").append(closed ? 0 : size()).append("}").toString();
+    }
+}
@@ -0,0 +1,115 @@
+package org.jrivets.collection;
+
+import java.util.function.Consumer;
+
+/**
+ * Lock-free multi-producer multi-consumer Ring Buffer. The buffer is a bounded
+ * container with FIFO discipline where elements can be added and removed by
+ * any number of threads simultaneously.
+ * <p>
+ * Producers and consumers claim slots by CAS on the tail and head sequences
+ * respectively (see {@link AbstractSequencedRingBuffer}), so producers don't
+ * contend with consumers. Please note, that the elements are available in the
+ * order the slots were claimed, so <tt>poll()</tt> can return <tt>null</tt>
+ * while the next slot is claimed, but its element is not published yet by the
+ * producer, even though some elements after it are already published.
+ * <p>
+ * <tt>drain()</tt> removes a batch of the published elements by one CAS on
+ * the head sequence.
+ * 
+ * @author Dmitry Spasibenko
+ * 
+ * @param <T>
+ */
+public final class MpmcRingBuffer<T> extends AbstractSequencedRingBuffer<T> {
+
+    public MpmcRingBuffer(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    public T poll() {
+        while (true) {
+            long pos = head;
+            int idx = index(pos);
+            long dif = sequences.get(idx) - (pos + 1);
+            if (dif == 0L) {
+                if (HEAD.compareAndSet(this, pos, pos + 1)) {
+                    return release(pos);
+                }
+            } else if (dif < 0L) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Removes up to <tt>max</tt> published elements and passes them to the
+     * consumer in FIFO order. The published elements following the head are
+     * claimed by one CAS on the head sequence, and then every slot is
+     * released before its element is passed to the consumer. If the consumer
+     * throws an exception, the rest of the claimed elements are removed
+     * without passing them to the consumer.
+     *
+     * @param consumer
+     * @param max
+     * @return number of the removed elements
+     */
+    public int drain(Consumer<? super T> consumer, int max) {
+        while (max > 0) {
+            long pos = head;
+            int n = 0;
+            while (n < max && sequences.get(index(pos + n)) == pos + n + 1) {
+                n++;
+            }
+            if (n == 0) {
+                if (sequences.get(index(pos)) - (pos + 1) < 0L) {
+                    return 0;
+                }
+                // the head is moved by another consumer
+                continue;
+            }
+            if (HEAD.compareAndSet(this, pos, pos + n)) {
+                int i = 0;
+                try {
+                    for (; i < n; i++) {
+                        consumer.accept(release(pos + i));
+                    }
+                } finally {
+                    for (i++; i < n; i++) {
+                        release(pos + i);
+                    }
+                }
+                return n;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public T peek() {
+        while (true) {
+            long pos = head;
+            int idx = index(pos);
+            long dif = sequences.get(idx) - (pos + 1);
+            if (dif == 0L) {
+                T result = values[idx];
+                // the CAS is a full fence, so the slot is read before the
+                // check that the slot is still published for the position
+                if (result != null && sequences.compareAndSet(idx, pos + 1, pos + 1)) {
+                    return result;
+                }
+            } else if (dif < 0L) {
+                return null;
+            }
+        }
+    }
+
+    private T release(long pos) {
+        int idx = index(pos);
+        T result = values[idx];
+        values[idx] = null;
+        sequences.lazySet(idx, pos + length);
+        return result;
+    }
+}
@@ -0,0 +1,51 @@
+package org.jrivets.collection;
+
+/**
+ * Lock-free multi-producer single-consumer Ring Buffer. The buffer is a
+ * bounded container with FIFO discipline where elements can be added by any
+ * number of threads simultaneously (<tt>add()</tt>, <tt>offer()</tt>) and
+ * removed by one thread at a time (<tt>remove()</tt>, <tt>poll()</tt>,
+ * <tt>element()</tt>, <tt>peek()</tt>, <tt>clear()</tt>).
+ * <p>
+ * Producers claim slots by CAS on the tail sequence (see
+ * {@link AbstractSequencedRingBuffer}), the consumer doesn't use any CAS at
+ * all. Please note, that the consumer sees the elements in the order the slots
+ * were claimed, so <tt>poll()</tt> can return <tt>null</tt> while the next
+ * slot is claimed, but its element is not published yet by the producer, even
+ * though some elements after it are already published.
+ * 
+ * @author Dmitry Spasibenko
+ * 
+ * @param <T>
+ */
+public final class MpscRingBuffer<T> extends AbstractSequencedRingBuffer<T> {
+
+    public MpscRingBuffer(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    public T poll() {
+        long pos = head;
+        int idx = index(pos);
+        if (sequences.get(idx) != pos + 1) {
+            return null;
+        }
+        T result = values[idx];
+        values[idx] = null;
+        sequences.lazySet(idx, pos + length);
+        HEAD.lazySet(this, pos + 1);
+        return result;
+    }
+
+    @Override
+    public T peek() {
+        long pos = head;
+        int idx = index(pos);
+        if (sequences.get(idx) != pos + 1) {
+            return null;
+        }
+        return values[idx];
+    }
+
+}
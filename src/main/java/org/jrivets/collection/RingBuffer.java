@@ -6,6 +6,10 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Queue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.jrivets.util.CheckUtils;
 
 /**
  * Ring Buffer is a container with fixed capacity and FIFO discipline: elements
@@ -15,6 +19,12 @@ import java.util.Queue;
  * like <tt>addAll()</tt>, <tt>removeAll()</tt> etc. are not supported and will
  * throw {@link UnsupportedOperationException} exception.
  * <p>
+ * The buffer behavior when it is full is defined by {@link OverflowPolicy}
+ * provided in the constructor. By default (<tt>REJECT</tt>) new elements are
+ * not accepted, <tt>OVERWRITE</tt> policy removes the oldest element to place
+ * the new one (so the buffer keeps last <tt>capacity</tt> elements) and
+ * <tt>GROW</tt> policy doubles the buffer capacity.
+ * <p>
  * <strong>Note that this implementation is not synchronized.</strong> If
  * multiple threads access a <tt>RingBuffer</tt> instance concurrently, and at
  * least one of the threads modifies the list structurally, it <i>must</i> be
@@ -26,7 +36,17 @@ import java.util.Queue;
  * <tt>offer()</tt> <tt>capacity()</tt> and <tt>size()</tt> methods only), the
  * methods can be called without any synchronization. For all other scenarios
  * the buffer is not thread-safe, so methods invocations should be properly
- * guarded in case of multi-threads usage.
+ * guarded in case of multi-threads usage. The batch methods
+ * <tt>drainTo()</tt> (reader) and <tt>offerBatch()</tt>, <tt>fill()</tt>
+ * (writer) follow the same rule, they update the head (tail) index once per
+ * call. The reader/writer scenario is applicable for <tt>REJECT</tt> overflow
+ * policy only, because the writer changes the head index (or the elements
+ * array) when the buffer is full for others.
+ * <p>
+ * Please note, the head and tail indexes are not volatile, so the
+ * reader/writer scenario above relies on some other synchronization between
+ * the threads to make the changes visible. {@link SpscRingBuffer} should be
+ * used for passing objects from one thread to another one instead.
  * 
  * @author Dmitry Spasibenko
  * 
@@ -36,6 +56,31 @@ public final class RingBuffer<T> implements Queue<T>, Serializable {
 
     private static final long serialVersionUID = -8275240829599598029L;
 
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 9;
+
+    /**
+     * Defines what happens when an element is added to the full buffer.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The element is not added, <tt>offer()</tt> returns <tt>false</tt>
+         */
+        REJECT,
+
+        /**
+         * The oldest element (head of the buffer) is removed to free space for
+         * the new one
+         */
+        OVERWRITE,
+
+        /**
+         * The buffer capacity is doubled
+         */
+        GROW;
+    }
+
+    private OverflowPolicy policy;
+
     private transient T[] values;
 
     private transient int headIdx;
@@ -69,12 +114,20 @@ public final class RingBuffer<T> implements Queue<T>, Serializable {
 
     }
 
-    @SuppressWarnings("unchecked")
     public RingBuffer(int capacity) {
-        if (capacity <= 0) {
+        this(capacity, OverflowPolicy.REJECT);
+    }
+
+    @SuppressWarnings("unchecked")
+    public RingBuffer(int capacity, OverflowPolicy policy) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
             throw new IllegalArgumentException();
         }
+        if (policy == null) {
+            throw new NullPointerException();
+        }
         this.values = (T[]) new Object[capacity + 1];
+        this.policy = policy;
     }
 
     @Override
@@ -87,12 +140,25 @@ public final class RingBuffer<T> implements Queue<T>, Serializable {
 
     @Override
     public boolean offer(T value) {
-        if (size() < values.length - 1) {
-            values[tailIdx] = value;
-            tailIdx = correctIdx(tailIdx + 1);
-            return true;
+        if (size() == values.length - 1) {
+            switch (policy) {
+            case OVERWRITE:
+                values[tailIdx] = value;
+                tailIdx = headIdx;
+                removeFirst();
+                return true;
+            case GROW:
+                if (!grow(values.length)) {
+                    return false;
+                }
+                break;
+            default:
+                return false;
+            }
         }
-        return false;
+        values[tailIdx] = value;
+        tailIdx = correctIdx(tailIdx + 1);
+        return true;
     }
 
     @Override
@@ -162,6 +228,115 @@ public final class RingBuffer<T> implements Queue<T>, Serializable {
         headIdx = tailIdx;
     }
 
+    /**
+     * Removes up to <tt>maxElements</tt> elements from the head of the buffer
+     * and passes them to the consumer in FIFO order. The head index is moved
+     * once, after the consumer is called for all the elements. If the consumer
+     * throws an exception, the elements passed to it before are removed from
+     * the buffer.
+     * 
+     * @param consumer
+     * @param maxElements
+     * @return number of elements passed to the consumer
+     */
+    public int drainTo(Consumer<? super T> consumer, int maxElements) {
+        int n = Math.min(size(), maxElements);
+        if (n <= 0) {
+            return 0;
+        }
+        int head = headIdx;
+        int first = Math.min(n, values.length - head);
+        int done = 0;
+        try {
+            for (int idx = head; done < first; idx++, done++) {
+                consumer.accept(values[idx]);
+            }
+            for (int idx = 0; done < n; idx++, done++) {
+                consumer.accept(values[idx]);
+            }
+        } finally {
+            removeFirst(done);
+        }
+        return n;
+    }
+
+    /**
+     * Removes up to <tt>maxElements</tt> elements from the head of the buffer
+     * and adds them to the provided collection in FIFO order.
+     * 
+     * @param c
+     * @param maxElements
+     * @return number of elements added to the collection
+     */
+    public int drainTo(Collection<? super T> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException("The buffer cannot be drained to itself");
+        }
+        return drainTo((Consumer<? super T>) c::add, maxElements);
+    }
+
+    /**
+     * Adds up to <tt>len</tt> elements from the <tt>src</tt> array starting
+     * from the <tt>off</tt> index to the end of the buffer. The elements are
+     * copied by 2 {@link System#arraycopy} calls at most and the tail index is
+     * moved once. If the buffer doesn't have enough space for all the
+     * elements, the overflow policy is applied: with <tt>OVERWRITE</tt> policy
+     * the oldest elements are removed (only last <tt>capacity()</tt> elements
+     * of the batch are added if it is bigger than the buffer), with
+     * <tt>GROW</tt> the buffer is grown once.
+     * 
+     * @param src
+     * @param off
+     * @param len
+     * @return number of elements added, it can be less than <tt>len</tt> if the
+     *         buffer doesn't have enough space for all of them
+     */
+    public int offerBatch(T[] src, int off, int len) {
+        CheckUtils.arrayBounds(src.length, off, len);
+        int n = reserve(len);
+        if (n <= 0) {
+            return 0;
+        }
+        if (n < len && policy == OverflowPolicy.OVERWRITE) {
+            off += len - n;
+        }
+        int tail = tailIdx;
+        int first = Math.min(n, values.length - tail);
+        System.arraycopy(src, off, values, tail, first);
+        if (first < n) {
+            System.arraycopy(src, off + first, values, 0, n - first);
+        }
+        tailIdx = correctIdx(tail + n);
+        return n;
+    }
+
+    /**
+     * Adds up to <tt>maxElements</tt> elements provided by the supplier to the
+     * end of the buffer. The supplier is called once per added element, the
+     * tail index is moved once. The overflow policy is applied as for
+     * <tt>offerBatch()</tt>.
+     * 
+     * @param supplier
+     * @param maxElements
+     * @return number of elements added
+     */
+    public int fill(Supplier<? extends T> supplier, int maxElements) {
+        int n = reserve(maxElements);
+        if (n <= 0) {
+            return 0;
+        }
+        int tail = tailIdx;
+        int first = Math.min(n, values.length - tail);
+        for (int idx = tail; idx < tail + first; idx++) {
+            values[idx] = supplier.get();
+        }
+        for (int idx = 0; idx < n - first; idx++) {
+            values[idx] = supplier.get();
+        }
+        tailIdx = correctIdx(tail + n);
+        return n;
+    }
+
     public T last() {
         assertSizeIsNotZero();
         return values[correctIdx(tailIdx - 1)];
@@ -235,6 +410,10 @@ public final class RingBuffer<T> implements Queue<T>, Serializable {
         return values.length - 1;
     }
 
+    public OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof RingBuffer)) {
@@ -279,6 +458,71 @@ public final class RingBuffer<T> implements Queue<T>, Serializable {
         return result;
     }
 
+    /**
+     * Applies the overflow policy to free space for <tt>n</tt> new elements.
+     * 
+     * @return number of elements which can be added
+     */
+    private int reserve(int n) {
+        int free = capacity() - size();
+        if (n <= free) {
+            return n;
+        }
+        switch (policy) {
+        case OVERWRITE:
+            n = Math.min(n, capacity());
+            removeFirst(n - free);
+            return n;
+        case GROW:
+            long required = (long) size() + n;
+            if (required > MAX_CAPACITY) {
+                return free;
+            }
+            grow((int) required);
+            return n;
+        default:
+            return free;
+        }
+    }
+
+    /**
+     * Moves the elements to new array with doubled capacity (or the provided
+     * one if it is bigger), the head element is placed to the beginning of the
+     * new array.
+     * 
+     * @return false if the buffer cannot grow anymore
+     */
+    @SuppressWarnings("unchecked")
+    private boolean grow(int minCapacity) {
+        int capacity = capacity();
+        if (capacity == MAX_CAPACITY) {
+            return false;
+        }
+        int newCapacity = (int) Math.min(Math.max(minCapacity, (long) capacity * 2), MAX_CAPACITY);
+        int size = size();
+        T[] newValues = (T[]) new Object[newCapacity + 1];
+        int first = Math.min(size, values.length - headIdx);
+        System.arraycopy(values, headIdx, newValues, 0, first);
+        System.arraycopy(values, 0, newValues, first, size - first);
+        values = newValues;
+        headIdx = 0;
+        tailIdx = size;
+        return true;
+    }
+
+    private void removeFirst(int n) {
+        if (n <= 0) {
+            return;
+        }
+        int head = headIdx;
+        int first = Math.min(n, values.length - head);
+        Arrays.fill(values, head, head + first, null);
+        if (first < n) {
+            Arrays.fill(values, 0, n - first, null);
+        }
+        headIdx = correctIdx(head + n);
+    }
+
     private int correctIdx(int idx) {
         if (idx >= values.length) {
             return idx - values.length;
@@ -333,12 +577,15 @@ public final class RingBuffer<T> implements Queue<T>, Serializable {
         headIdx = 0;
         tailIdx = size;
         values = (T[]) a;
+        if (policy == null) {
+            policy = OverflowPolicy.REJECT; // serialized by previous version
+        }
     }
 
     @Override
     public String toString() {
         return new StringBuilder().append("{size=").append(size()).append(", capacity=").append(capacity())
-                .append(", headIdx=").append(headIdx).append(", tailIdx=").append(tailIdx).append("}").toString();
+                .append(", policy=").append(policy).append(", headIdx=").append(headIdx).append(", tailIdx=").append(tailIdx).append("}").toString();
     }
 
 }
@@ -0,0 +1,77 @@
+package org.jrivets.collection;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Padded <tt>long</tt> sequence counter used by {@link EventRing} producers and
+ * consumers. The value is padded to be placed in its own cache line, so
+ * sequences of different threads don't share one.
+ * <p>
+ * <tt>set()</tt> is ordered (lazy) store, which is enough to publish the
+ * previous writes to the threads reading the sequence, <tt>setVolatile()</tt>
+ * is the full volatile store.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class Sequence extends SequencePad2 {
+
+    static final long INITIAL_VALUE = -1L;
+
+    private static final AtomicLongFieldUpdater<SequenceValue> VALUE = AtomicLongFieldUpdater.newUpdater(
+            SequenceValue.class, "value");
+
+    public Sequence() {
+        this(INITIAL_VALUE);
+    }
+
+    public Sequence(long initialValue) {
+        VALUE.lazySet(this, initialValue);
+    }
+
+    public long get() {
+        return value;
+    }
+
+    public void set(long value) {
+        VALUE.lazySet(this, value);
+    }
+
+    public void setVolatile(long value) {
+        this.value = value;
+    }
+
+    public boolean compareAndSet(long expected, long value) {
+        return VALUE.compareAndSet(this, expected, value);
+    }
+
+    /**
+     * Returns minimum value of the sequences or <tt>defValue</tt> if the
+     * array is empty.
+     */
+    static long min(Sequence[] sequences, long defValue) {
+        long result = Long.MAX_VALUE;
+        for (Sequence s : sequences) {
+            result = Math.min(result, s.get());
+        }
+        return sequences.length == 0 ? defValue : result;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(value);
+    }
+}
+
+abstract class SequencePad0 {
+    long p00, p01, p02, p03, p04, p05, p06, p07, p08, p09, p0a, p0b, p0c, p0d, p0e, p0f;
+}
+
+abstract class SequenceValue extends SequencePad0 {
+
+    volatile long value;
+}
+
+abstract class SequencePad2 extends SequenceValue {
+    long p20, p21, p22, p23, p24, p25, p26, p27, p28, p29, p2a, p2b, p2c, p2d, p2e, p2f;
+}
@@ -0,0 +1,81 @@
+package org.jrivets.collection;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Barrier which is used by an {@link EventRing} consumer to wait for the
+ * sequences it can process. The barrier tracks the ring cursor and the
+ * sequences of the consumers the consumer depends on, so a consumer never
+ * overtakes the ones it depends on and the consumers can be organized in
+ * dependency chains (graphs).
+ * <p>
+ * The barrier can be alerted, which wakes up the waiting consumer with
+ * {@link InterruptedException}, this is the way to stop the consumer.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class SequenceBarrier {
+
+    private final EventRing<?> ring;
+
+    private final Sequence cursor;
+
+    private final Sequence[] dependents;
+
+    private final WaitStrategy waitStrategy;
+
+    private volatile boolean alerted;
+
+    SequenceBarrier(EventRing<?> ring, Sequence cursor, Sequence[] dependents, WaitStrategy waitStrategy) {
+        this.ring = ring;
+        this.cursor = cursor;
+        this.dependents = dependents;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Waits till the <tt>sequence</tt> is published and processed by the
+     * dependencies.
+     *
+     * @param sequence
+     * @return the highest sequence which is available to the consumer. It can
+     *         be less than <tt>sequence</tt> if the sequence is claimed, but
+     *         it is not published yet by a concurrent producer, so the caller
+     *         should repeat the call
+     * @throws InterruptedException
+     *             if the thread is interrupted or the barrier is alerted
+     * @throws TimeoutException
+     *             if the wait strategy has timeout and it is expired
+     */
+    public long waitFor(long sequence) throws InterruptedException, TimeoutException {
+        checkAlert();
+        long available = waitStrategy.waitFor(sequence, cursor, dependents, this);
+        if (available < sequence) {
+            return available;
+        }
+        return ring.getHighestPublished(sequence, available);
+    }
+
+    public void alert() {
+        alerted = true;
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    public void clearAlert() {
+        alerted = false;
+    }
+
+    public boolean isAlerted() {
+        return alerted;
+    }
+
+    public void checkAlert() throws InterruptedException {
+        if (alerted) {
+            throw new InterruptedException("The barrier is alerted");
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+}
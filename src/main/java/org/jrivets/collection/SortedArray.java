@@ -2,10 +2,14 @@ package org.jrivets.collection;
 
 import java.io.Serializable;
 import java.util.AbstractCollection;
+import java.util.AbstractList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 /**
  * Resizable auto-sorted array. Added element is placed to the position in order
@@ -22,6 +26,14 @@ import java.util.NoSuchElementException;
  * <tt>add(T t)</tt>, <tt>remove(T t)</tt>, <tt>indexOf(T t)</tt> and other
  * methods will throw {@link NullPointerException} if null is provided like
  * argument.
+ * <p>
+ * The array is navigable: <tt>lowerBound()</tt> and <tt>upperBound()</tt>
+ * return the first and the next after the last positions of the elements which
+ * are equal to the provided one (<tt>getIndexOf()</tt> returns arbitrary one of
+ * equal elements), <tt>floor()</tt>, <tt>ceiling()</tt>, <tt>lower()</tt> and
+ * <tt>higher()</tt> return the closest elements, and <tt>subRange()</tt> and
+ * <tt>iterator(from, to)</tt> give access to a range of elements without
+ * copying them. All of them are O(log n).
  * 
  * <p>
  * This is not thread-safe implementation, so concurrent modifications from
@@ -34,6 +46,12 @@ public class SortedArray<T> extends AbstractCollection<T> implements Serializabl
 
     private static final long serialVersionUID = 7201373894996158833L;
 
+    /**
+     * Bulk operations sort their input by {@link Arrays#parallelSort} if it
+     * is not less than the threshold.
+     */
+    static final int PARALLEL_SORT_THRESHOLD = 1 << 13;
+
     private final Comparator<T> comparator;
 
     private transient T[] elements;
@@ -53,6 +71,44 @@ public class SortedArray<T> extends AbstractCollection<T> implements Serializabl
         this(10);
     }
 
+    /**
+     * Creates bounded (top-K) sorted collection which keeps <tt>k</tt>
+     * greatest elements in terms of the comparator order, see
+     * {@link BoundedSortedArray}.
+     */
+    public static <T> BoundedSortedArray<T> bounded(int k, Comparator<T> comparator) {
+        return new BoundedSortedArray<T>(k, comparator);
+    }
+
+    /**
+     * Creates bounded (top-K) sorted collection of {@link Comparable}
+     * elements.
+     */
+    public static <T extends Comparable<T>> BoundedSortedArray<T> bounded(int k) {
+        return new BoundedSortedArray<T>(k, null);
+    }
+
+    /**
+     * Creates the array over the sorted elements, the elements array is not
+     * copied.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> SortedArray<T> wrap(Comparator<T> comparator, Object[] sorted) {
+        SortedArray<T> result = new SortedArray<T>(comparator, 0);
+        result.elements = (T[]) sorted;
+        result.size = sorted.length;
+        return result;
+    }
+
+    /**
+     * Returns the backing array trimmed to the size, the array is copied only
+     * if its length differs from the size.
+     */
+    Object[] trimmedElements() {
+        trimToSize();
+        return elements;
+    }
+
     @Override
     public int size() {
         return size;
@@ -84,10 +140,176 @@ public class SortedArray<T> extends AbstractCollection<T> implements Serializabl
         return true;
     }
 
+    /**
+     * Adds all elements of the collection. The elements are sorted first (if
+     * the collection is not {@link SortedArray} with the same comparator) and
+     * then merged with the array content in one pass into new array, so adding
+     * <tt>k</tt> elements to the array of <tt>n</tt> elements is O(n + k*log(k))
+     * instead of O(n*k) for one by one addition.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean addAll(Collection<? extends T> c) {
+        Object[] a = c.toArray();
+        if (!isSortedAs(c)) {
+            sort((T[]) a);
+        }
+        return merge((T[]) a);
+    }
+
+    /**
+     * Adds all elements of the array, see {@link #addAll(Collection)}. The
+     * provided array is not changed.
+     */
+    public boolean addAll(T[] elements) {
+        T[] a = Arrays.copyOf(elements, elements.length);
+        sort(a);
+        return merge(a);
+    }
+
+    /**
+     * Removes all elements which are equal (in terms of the array ordering) to
+     * any of the collection elements. The collection elements are sorted (if
+     * the collection is not {@link SortedArray} with the same comparator) and
+     * the array is compacted in one pass.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean removeAll(Collection<?> c) {
+        if (size == 0 || c.isEmpty()) {
+            return false;
+        }
+        T[] removed = (T[]) c.toArray();
+        if (!isSortedAs(c)) {
+            sort(removed);
+        }
+        int j = 0;
+        int newSize = 0;
+        for (int i = 0; i < size; i++) {
+            T element = elements[i];
+            while (j < removed.length && compare(removed[j], element) < 0) {
+                j++;
+            }
+            if (j < removed.length && compare(removed[j], element) == 0) {
+                continue;
+            }
+            elements[newSize++] = element;
+        }
+        if (newSize == size) {
+            return false;
+        }
+        Arrays.fill(elements, newSize, size, null);
+        size = newSize;
+        shrinkCapacityAfterDelete();
+        return true;
+    }
+
     public int getIndexOf(T element) {
         return Arrays.binarySearch(elements, 0, size, element, comparator);
     }
 
+    /**
+     * Returns index of the first element which is not less than the provided
+     * one, or <tt>size()</tt> if there is no such element.
+     */
+    public int lowerBound(T element) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(elements[mid], element) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns index of the first element which is greater than the provided
+     * one, or <tt>size()</tt> if there is no such element.
+     */
+    public int upperBound(T element) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(elements[mid], element) <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the greatest element which is less than or equal to the provided
+     * one, or <tt>null</tt> if there is no such element.
+     */
+    public T floor(T element) {
+        int idx = upperBound(element);
+        return idx > 0 ? elements[idx - 1] : null;
+    }
+
+    /**
+     * Returns the least element which is greater than or equal to the
+     * provided one, or <tt>null</tt> if there is no such element.
+     */
+    public T ceiling(T element) {
+        int idx = lowerBound(element);
+        return idx < size ? elements[idx] : null;
+    }
+
+    /**
+     * Returns the least element which is strictly greater than the provided
+     * one, or <tt>null</tt> if there is no such element.
+     */
+    public T higher(T element) {
+        int idx = upperBound(element);
+        return idx < size ? elements[idx] : null;
+    }
+
+    /**
+     * Returns the greatest element which is strictly less than the provided
+     * one, or <tt>null</tt> if there is no such element.
+     */
+    public T lower(T element) {
+        int idx = lowerBound(element);
+        return idx > 0 ? elements[idx - 1] : null;
+    }
+
+    /**
+     * Returns read-only view of the elements in <tt>[from..to)</tt> range. The
+     * view is backed by the array, it doesn't copy the elements, and it is
+     * valid till the array is modified.
+     */
+    public List<T> subRange(T from, T to) {
+        int fromIdx = lowerBound(from);
+        return subRangeByIndex(fromIdx, Math.max(lowerBound(to), fromIdx));
+    }
+
+    /**
+     * Returns read-only view of the elements with indexes in
+     * <tt>[fromIdx..toIdx)</tt> range, see {@link #subRange(Object, Object)}
+     */
+    public List<T> subRangeByIndex(int fromIdx, int toIdx) {
+        if (fromIdx < 0 || toIdx > size || fromIdx > toIdx) {
+            throw new IndexOutOfBoundsException("fromIdx: " + fromIdx + ", toIdx: " + toIdx + ", size: " + size);
+        }
+        return new RangeList<T>(elements, fromIdx, toIdx - fromIdx);
+    }
+
+    /**
+     * Returns iterator over the elements in <tt>[from..to)</tt> range. The
+     * iterator supports removal of the elements.
+     */
+    public Iterator<T> iterator(T from, T to) {
+        int fromIdx = lowerBound(from);
+        return new RangeIterator(fromIdx, Math.max(lowerBound(to), fromIdx));
+    }
+
     public boolean removeElement(T element) {
         int idx = getIndexOf(element);
         if (idx >= 0) {
@@ -155,6 +377,73 @@ public class SortedArray<T> extends AbstractCollection<T> implements Serializabl
         };
     }
 
+    private class RangeIterator implements Iterator<T> {
+
+        private int idx;
+
+        private int toIdx;
+
+        private int removeIdx = -1;
+
+        RangeIterator(int fromIdx, int toIdx) {
+            this.idx = fromIdx;
+            this.toIdx = toIdx;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return idx < toIdx;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            removeIdx = idx++;
+            return elements[removeIdx];
+        }
+
+        @Override
+        public void remove() {
+            if (removeIdx == -1) {
+                throw new IllegalStateException();
+            }
+            removeByIndex(removeIdx);
+            removeIdx = -1;
+            --idx;
+            --toIdx;
+        }
+    }
+
+    private static final class RangeList<T> extends AbstractList<T> implements RandomAccess {
+
+        private final T[] elements;
+
+        private final int fromIdx;
+
+        private final int size;
+
+        RangeList(T[] elements, int fromIdx, int size) {
+            this.elements = elements;
+            this.fromIdx = fromIdx;
+            this.size = size;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+            }
+            return elements[fromIdx + index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public boolean contains(Object o) {
@@ -215,6 +504,40 @@ public class SortedArray<T> extends AbstractCollection<T> implements Serializabl
         }
     }
 
+    private boolean isSortedAs(Collection<?> c) {
+        return c instanceof SortedArray && ((SortedArray<?>) c).comparator == comparator;
+    }
+
+    private void sort(T[] a) {
+        if (a.length >= PARALLEL_SORT_THRESHOLD) {
+            Arrays.parallelSort(a, comparator);
+        } else {
+            Arrays.sort(a, comparator);
+        }
+    }
+
+    /**
+     * Merges the sorted array with the elements into new array
+     */
+    @SuppressWarnings("unchecked")
+    private boolean merge(T[] a) {
+        if (a.length == 0) {
+            return false;
+        }
+        T[] result = (T[]) new Object[size + a.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < size && j < a.length) {
+            result[k++] = compare(a[j], elements[i]) < 0 ? a[j++] : elements[i++];
+        }
+        System.arraycopy(elements, i, result, k, size - i);
+        System.arraycopy(a, j, result, k + size - i, a.length - j);
+        elements = result;
+        size += a.length;
+        return true;
+    }
+
     private int getIndexForInsertion(T element) {
         if (size == 0) {
             return 0;
@@ -0,0 +1,182 @@
+package org.jrivets.collection;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Lock-free single-producer single-consumer Ring Buffer. The buffer is a
+ * bounded container with FIFO discipline intended for passing objects from one
+ * thread (writer) to another one (reader).
+ * <p>
+ * Only one thread can add elements (<tt>add()</tt>, <tt>offer()</tt>) and only
+ * one thread can remove them (<tt>remove()</tt>, <tt>poll()</tt>,
+ * <tt>element()</tt>, <tt>peek()</tt>, <tt>clear()</tt>) at a time, the
+ * <tt>size()</tt>, <tt>isEmpty()</tt> and <tt>capacity()</tt> methods can be
+ * called from any thread. Elements put by the writer are safely published to
+ * the reader (happens-before relation is established between <tt>offer()</tt>
+ * and <tt>poll()</tt> of the element).
+ * <p>
+ * The head and tail sequences are never wrapped, the elements array size is
+ * power of two, so the array index is calculated by masking the sequence. The
+ * sequences are updated by ordered (lazy) stores, and every side keeps cached
+ * value of another side sequence, so the shared sequence is read only when the
+ * cached value says the buffer is full (empty). The reader and writer fields
+ * are padded to be placed in different cache lines.
+ * <p>
+ * <tt>null</tt> elements are not allowed. The iteration and bulk methods like
+ * <tt>contains()</tt>, <tt>toArray()</tt>, <tt>remove(Object)</tt> etc. are not
+ * supported and will throw {@link UnsupportedOperationException} exception.
+ *
+ * @author Dmitry Spasibenko
+ *
+ * @param <T>
+ */
+public final class SpscRingBuffer<T> extends SpscRingBufferPad2<T> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<SpscRingBufferReader> HEAD = AtomicLongFieldUpdater.newUpdater(
+            SpscRingBufferReader.class, "head");
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<SpscRingBufferWriter> TAIL = AtomicLongFieldUpdater.newUpdater(
+            SpscRingBufferWriter.class, "tail");
+
+    private final T[] values;
+
+    private final int mask;
+
+    private final int capacity;
+
+    @SuppressWarnings("unchecked")
+    public SpscRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity=" + capacity + " should be in [1.." + (1 << 30) + "]");
+        }
+        this.capacity = capacity;
+        int length = Integer.highestOneBit(capacity);
+        if (length < capacity) {
+            length <<= 1;
+        }
+        this.values = (T[]) new Object[length];
+        this.mask = length - 1;
+    }
+
+    @Override
+    public boolean offer(T value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        long t = tail;
+        if (t - headCache >= capacity) {
+            headCache = head;
+            if (t - headCache >= capacity) {
+                return false;
+            }
+        }
+        values[(int) t & mask] = value;
+        TAIL.lazySet(this, t + 1);
+        return true;
+    }
+
+    @Override
+    public T poll() {
+        long h = head;
+        if (h >= tailCache) {
+            tailCache = tail;
+            if (h >= tailCache) {
+                return null;
+            }
+        }
+        int idx = (int) h & mask;
+        T result = values[idx];
+        values[idx] = null;
+        HEAD.lazySet(this, h + 1);
+        return result;
+    }
+
+    @Override
+    public T peek() {
+        long h = head;
+        if (h >= tailCache) {
+            tailCache = tail;
+            if (h >= tailCache) {
+                return null;
+            }
+        }
+        return values[(int) h & mask];
+    }
+
+    /**
+     * Removes all elements from the buffer. Should be called by the reader.
+     */
+    @Override
+    public void clear() {
+        long h = head;
+        long t = tail;
+        for (long s = h; s < t; s++) {
+            values[(int) s & mask] = null;
+        }
+        tailCache = t;
+        HEAD.lazySet(this, t);
+    }
+
+    @Override
+    public int size() {
+        long h = head;
+        long t = tail;
+        return (int) Math.min(Math.max(t - h, 0L), capacity);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head >= tail;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        throw new UnsupportedOperationException("The method iterator() is not supported by the SpscRingBuffer");
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("{size=").append(size()).append(", capacity=").append(capacity)
+                .append(", head=").append(head).append(", tail=").append(tail).append("}").toString();
+    }
+}
+
+abstract class SpscRingBufferPad0<T> extends AbstractQueue<T> {
+    long p00, p01, p02, p03, p04, p05, p06, p07, p08, p09, p0a, p0b, p0c, p0d, p0e, p0f;
+}
+
+/**
+ * The reader fields: head sequence and cached tail.
+ */
+abstract class SpscRingBufferReader<T> extends SpscRingBufferPad0<T> {
+
+    volatile long head;
+
+    long tailCache;
+}
+
+abstract class SpscRingBufferPad1<T> extends SpscRingBufferReader<T> {
+    long p10, p11, p12, p13, p14, p15, p16, p17, p18, p19, p1a, p1b, p1c, p1d, p1e, p1f;
+}
+
+/**
+ * The writer fields: tail sequence and cached head.
+ */
+abstract class SpscRingBufferWriter<T> extends SpscRingBufferPad1<T> {
+
+    volatile long tail;
+
+    long headCache;
+}
+
+abstract class SpscRingBufferPad2<T> extends SpscRingBufferWriter<T> {
+    long p20, p21, p22, p23, p24, p25, p26, p27, p28, p29, p2a, p2b, p2c, p2d, p2e, p2f;
+}
@@ -0,0 +1,149 @@
+package org.jrivets.collection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import org.jrivets.util.StaticSingleton;
+
+/**
+ * Ordered and volatile access to the off-heap memory of direct buffers via
+ * <tt>sun.misc.Unsafe</tt>. The library is built with <tt>-Werror</tt>, and
+ * the compiler warns about any reference to the internal API, so the methods
+ * are looked up reflectively once and invoked through constant method
+ * handles, which the JIT compiles to the plain intrinsics.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+final class UnsafeMemory extends StaticSingleton {
+
+    private static final MethodHandle PUT_ORDERED_LONG;
+
+    private static final MethodHandle GET_LONG_VOLATILE;
+
+    private static final MethodHandle GET_LONG;
+
+    private static final MethodHandle INVOKE_CLEANER;
+
+    private static final long ADDRESS_OFFSET;
+
+    static {
+        MethodHandle putOrdered = null;
+        MethodHandle getVolatile = null;
+        MethodHandle get = null;
+        MethodHandle invokeCleaner = null;
+        long addressOffset = -1L;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            putOrdered = lookup.findVirtual(unsafeClass, "putOrderedLong",
+                    MethodType.methodType(void.class, Object.class, long.class, long.class)).bindTo(unsafe);
+            getVolatile = lookup.findVirtual(unsafeClass, "getLongVolatile",
+                    MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+            get = lookup.findVirtual(unsafeClass, "getLong",
+                    MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+            Method objectFieldOffset = unsafeClass.getMethod("objectFieldOffset", Field.class);
+            addressOffset = (Long) objectFieldOffset.invoke(unsafe, Buffer.class.getDeclaredField("address"));
+            invokeCleaner = findInvokeCleaner(lookup, unsafeClass, unsafe);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            putOrdered = null;
+        }
+        PUT_ORDERED_LONG = putOrdered;
+        GET_LONG_VOLATILE = getVolatile;
+        GET_LONG = get;
+        INVOKE_CLEANER = invokeCleaner;
+        ADDRESS_OFFSET = addressOffset;
+    }
+
+    static boolean isSupported() {
+        return PUT_ORDERED_LONG != null;
+    }
+
+    /**
+     * Returns the address of the direct buffer memory
+     */
+    static long address(Buffer buffer) {
+        try {
+            return (long) GET_LONG.invokeExact((Object) buffer, ADDRESS_OFFSET);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Cannot get the buffer address", t);
+        }
+    }
+
+    /**
+     * Stores the value, the previous stores cannot be reordered with the store
+     * (release semantics).
+     */
+    static void putOrderedLong(long address, long value) {
+        try {
+            PUT_ORDERED_LONG.invokeExact((Object) null, address, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Cannot store the value", t);
+        }
+    }
+
+    /**
+     * Loads the value, the following loads cannot be reordered with the load
+     * (acquire semantics).
+     */
+    static long getLongVolatile(long address) {
+        try {
+            return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Cannot load the value", t);
+        }
+    }
+
+    /**
+     * Releases the memory mapping of the buffer without waiting for the
+     * garbage collector. The buffer and all its views must not be accessed
+     * after that. Does nothing if the runtime doesn't allow to release the
+     * mapping explicitly.
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+                return;
+            }
+            // Java 8: DirectByteBuffer.cleaner().clean()
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                Method clean = cleaner.getClass().getMethod("clean");
+                clean.setAccessible(true);
+                clean.invoke(cleaner);
+            }
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            // the mapping will be released by the garbage collector
+        }
+    }
+
+    private static MethodHandle findInvokeCleaner(MethodHandles.Lookup lookup, Class<?> unsafeClass, Object unsafe) {
+        try {
+            return lookup.findVirtual(unsafeClass, "invokeCleaner",
+                    MethodType.methodType(void.class, ByteBuffer.class)).bindTo(unsafe);
+        } catch (ReflectiveOperationException e) {
+            // Java 8
+            return null;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.jrivets.collection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Strategy of waiting for a sequence to be available to {@link EventRing}
+ * consumers. The strategies trade the latency for CPU consumption:
+ * <ul>
+ * <li>{@link #busySpin()} - the consumer thread spins in the loop, the lowest
+ * latency, but it burns a CPU core;
+ * <li>{@link #yielding()} - spins for a while and yields the thread then;
+ * <li>{@link #blocking()} - waits on the lock condition which is signalled by
+ * producers, the highest latency and the lowest CPU consumption;
+ * <li>{@link #timeoutBlocking(long, TimeUnit)} - as blocking, but throws
+ * {@link TimeoutException} if nothing is published in the timeout.
+ * </ul>
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public interface WaitStrategy {
+
+    /**
+     * Waits till the <tt>sequence</tt> is reached by the dependent sequences
+     * (or by the cursor if there are no dependencies).
+     *
+     * @param sequence
+     *            - sequence to wait for
+     * @param cursor
+     *            - the ring cursor, the last claimed or published sequence
+     * @param dependents
+     *            - sequences of the consumers the waiting one depends on
+     * @param barrier
+     *            - the barrier which is waiting, to check its alert status
+     * @return the available sequence, can be greater than requested one
+     * @throws InterruptedException
+     *             if the thread is interrupted or the barrier is alerted
+     * @throws TimeoutException
+     */
+    long waitFor(long sequence, Sequence cursor, Sequence[] dependents, SequenceBarrier barrier)
+            throws InterruptedException, TimeoutException;
+
+    /**
+     * Notifies the waiting consumers that the cursor is moved.
+     */
+    void signalAllWhenBlocking();
+
+    static WaitStrategy busySpin() {
+        return new BusySpinWaitStrategy();
+    }
+
+    static WaitStrategy yielding() {
+        return new YieldingWaitStrategy();
+    }
+
+    static WaitStrategy blocking() {
+        return new BlockingWaitStrategy(0L);
+    }
+
+    static WaitStrategy timeoutBlocking(long timeout, TimeUnit unit) {
+        if (timeout <= 0L) {
+            throw new IllegalArgumentException("timeout=" + timeout + " should be positive");
+        }
+        return new BlockingWaitStrategy(unit.toNanos(timeout));
+    }
+}
+
+final class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public long waitFor(long sequence, Sequence cursor, Sequence[] dependents, SequenceBarrier barrier)
+            throws InterruptedException {
+        long available;
+        while ((available = Sequence.min(dependents, cursor.get())) < sequence) {
+            barrier.checkAlert();
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        // nobody blocks
+    }
+
+    @Override
+    public String toString() {
+        return "BusySpin";
+    }
+}
+
+final class YieldingWaitStrategy implements WaitStrategy {
+
+    private static final int SPIN_TRIES = 100;
+
+    @Override
+    public long waitFor(long sequence, Sequence cursor, Sequence[] dependents, SequenceBarrier barrier)
+            throws InterruptedException {
+        long available;
+        int counter = SPIN_TRIES;
+        while ((available = Sequence.min(dependents, cursor.get())) < sequence) {
+            barrier.checkAlert();
+            if (counter > 0) {
+                --counter;
+            } else {
+                Thread.yield();
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        // nobody blocks
+    }
+
+    @Override
+    public String toString() {
+        return "Yielding";
+    }
+}
+
+/**
+ * Blocks on the condition till the cursor reaches the sequence, and then spins
+ * for the dependent sequences (the dependent consumers are supposed to be
+ * running, so they move forward shortly).
+ */
+final class BlockingWaitStrategy implements WaitStrategy {
+
+    private final Lock lock = new ReentrantLock();
+
+    private final Condition published = lock.newCondition();
+
+    private final long timeoutNanos;
+
+    BlockingWaitStrategy(long timeoutNanos) {
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public long waitFor(long sequence, Sequence cursor, Sequence[] dependents, SequenceBarrier barrier)
+            throws InterruptedException, TimeoutException {
+        if (cursor.get() < sequence) {
+            long nanos = timeoutNanos;
+            lock.lock();
+            try {
+                while (cursor.get() < sequence) {
+                    barrier.checkAlert();
+                    if (timeoutNanos == 0L) {
+                        published.await();
+                    } else {
+                        if (nanos <= 0L) {
+                            throw new TimeoutException();
+                        }
+                        nanos = published.awaitNanos(nanos);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        long available;
+        while ((available = Sequence.min(dependents, cursor.get())) < sequence) {
+            barrier.checkAlert();
+            Thread.yield();
+        }
+        return available;
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        lock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return timeoutNanos == 0L ? "Blocking" : "TimeoutBlocking(" + timeoutNanos + "ns)";
+    }
+}
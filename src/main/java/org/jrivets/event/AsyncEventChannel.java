@@ -1,6 +1,5 @@
 package org.jrivets.event;
 
-import java.util.Collection;
 import java.util.concurrent.Executor;
 
 import org.jrivets.log.Logger;
@@ -22,18 +21,15 @@ public class AsyncEventChannel implements EventChannel {
     @Override
     public boolean publish(final Object e) {
         executor.execute(() -> {
-            int skip = 0;
-            Collection<Subscriber> subscribers = subscribersRegistry.getSubscribers();
+            Subscriber[] subscribers = subscribersRegistry.getSubscribers(e);
             for (Subscriber subscriber : subscribers) {
                 try {
-                    if (Subscriber.NO_SUCH_METHOD == subscriber.notifySubscriberIfMethodExists(e)) {
-                        ++skip;
-                    }
+                    subscriber.notifySubscriberIfMethodExists(e);
                 } catch (Exception ex) {
                     logger.error("Got the error while delivering notification about event=", e, " to ", subscriber, ex);
                 }
             }
-            if (skip == subscribers.size()) {
+            if (subscribers.length == 0) {
                 onNoSubscribers(e);
             }
         });
@@ -0,0 +1,167 @@
+package org.jrivets.event;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invokes an event handler method of a subscriber. The invoker is created
+ * once, when the subscriber type is parsed. For a public instance method of a
+ * public class, which is visible from the library class loader, a class
+ * implementing {@link Handler} (or {@link VoidHandler}) is generated via
+ * {@link LambdaMetafactory}, so the method is called directly, and the JIT
+ * can inline it like any other interface call. For other methods (static,
+ * non-public or declared in non-public classes) the method handle adapted to
+ * <tt>(Object, Object)Object</tt> type is used. In both cases the invocation
+ * doesn't allocate arguments array and doesn't check access like
+ * {@link Method#invoke} does.
+ */
+final class EventInvoker {
+
+    private static final MethodType HANDLER_TYPE = MethodType.methodType(Object.class, Object.class, Object.class);
+
+    private static final MethodType VOID_HANDLER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    interface Handler {
+        Object invoke(Object subscriber, Object e) throws Throwable;
+    }
+
+    interface VoidHandler {
+        void invoke(Object subscriber, Object e) throws Throwable;
+    }
+
+    private final String name;
+
+    private final Class<?> subscriberType;
+
+    private final Class<?> eventType;
+
+    private final Handler handler;
+
+    private final VoidHandler voidHandler;
+
+    private final boolean generated;
+
+    EventInvoker(Method m) throws IllegalAccessException {
+        m.setAccessible(true);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle mh = lookup.unreflect(m);
+        boolean isStatic = Modifier.isStatic(m.getModifiers());
+        this.name = m.getName();
+        this.subscriberType = isStatic ? null : m.getDeclaringClass();
+        this.eventType = m.getParameterTypes()[0];
+        Object h = isLinkable(m) ? generate(lookup, mh, m.getReturnType() == void.class) : null;
+        this.generated = h != null;
+        if (h instanceof VoidHandler) {
+            this.handler = null;
+            this.voidHandler = (VoidHandler) h;
+        } else if (h instanceof Handler) {
+            this.handler = (Handler) h;
+            this.voidHandler = null;
+        } else {
+            if (isStatic) {
+                mh = MethodHandles.dropArguments(mh, 0, Object.class);
+            }
+            final MethodHandle adapted = mh.asType(HANDLER_TYPE);
+            this.handler = (s, e) -> (Object) adapted.invokeExact(s, e);
+            this.voidHandler = null;
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Returns whether the handler class is generated for the method, or the
+     * method handle is used
+     */
+    boolean isGenerated() {
+        return generated;
+    }
+
+    /**
+     * Invokes the method of the subscriber, exceptions thrown by the method
+     * are wrapped into {@link InvocationTargetException} the same way as
+     * {@link Method#invoke} does, but errors are thrown as they are. The
+     * arguments are checked before the invocation, so
+     * {@link ClassCastException} of a wrong argument is thrown unwrapped too.
+     */
+    Object invoke(Object subscriber, Object e) throws InvocationTargetException {
+        if (subscriberType != null) {
+            subscriberType.cast(subscriber);
+        }
+        eventType.cast(e);
+        try {
+            if (voidHandler != null) {
+                voidHandler.invoke(subscriber, e);
+                return null;
+            }
+            return handler.invoke(subscriber, e);
+        } catch (Error err) {
+            throw err;
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * Returns whether the generated handler class can call the method
+     * directly: the method is a public instance one, and the types of the
+     * subscriber and the event are public and visible from the class loader
+     * of the library, which defines the generated class.
+     */
+    private static boolean isLinkable(Method m) {
+        int modifiers = m.getModifiers();
+        return Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers) && isLinkable(m.getDeclaringClass())
+                && isLinkable(m.getParameterTypes()[0]);
+    }
+
+    private static boolean isLinkable(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        for (Class<?> c = clazz; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        try {
+            return Class.forName(clazz.getName(), false, EventInvoker.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the generated {@link Handler} or {@link VoidHandler}, or
+     * <tt>null</tt> if the runtime cannot generate it, so the method handle
+     * is used.
+     */
+    private static Object generate(MethodHandles.Lookup lookup, MethodHandle mh, boolean isVoid) {
+        MethodType instantiated = mh.type().changeReturnType(isVoid ? void.class : Object.class);
+        try {
+            CallSite site = LambdaMetafactory.metafactory(lookup, "invoke",
+                    MethodType.methodType(isVoid ? VoidHandler.class : Handler.class),
+                    isVoid ? VOID_HANDLER_TYPE : HANDLER_TYPE, mh, instantiated);
+            return site.getTarget().invoke();
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "{name=" + name + "}";
+    }
+}
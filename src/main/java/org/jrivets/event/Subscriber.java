@@ -1,7 +1,6 @@
 package org.jrivets.event;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.Set;
 
 public final class Subscriber {
@@ -42,9 +41,9 @@ public final class Subscriber {
     }
 
     public Object notifySubscriberIfMethodExists(Object e) throws IllegalArgumentException, IllegalAccessException, InvocationTargetException {
-        Method m = typeDetails.getMethod(e);
-        if (m != null) {
-            return m.invoke(subscriber, e);
+        EventInvoker invoker = typeDetails.getInvoker(e);
+        if (invoker != null) {
+            return invoker.invoke(subscriber, e);
         }
         return NO_SUCH_METHOD;
     }
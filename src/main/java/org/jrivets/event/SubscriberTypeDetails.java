@@ -1,22 +1,21 @@
 package org.jrivets.event;
 
-import java.lang.reflect.Method;
 import java.util.Collections;
 import java.util.Map;
 
 final class SubscriberTypeDetails {
 
-    private final Map<Class<?>, Method> eventsMap;
+    private final Map<Class<?>, EventInvoker> eventsMap;
     
-    SubscriberTypeDetails(Map<Class<?>, Method> eventsMap) {
+    SubscriberTypeDetails(Map<Class<?>, EventInvoker> eventsMap) {
         this.eventsMap = Collections.unmodifiableMap(eventsMap);
     }
     
-    Method getMethod(Object e) {
+    EventInvoker getInvoker(Object e) {
         return eventsMap.get(e.getClass());
     }
     
-    Map<Class<?>, Method> getEventsMap() {
+    Map<Class<?>, EventInvoker> getEventsMap() {
         return eventsMap;
     }
     
@@ -43,7 +43,7 @@ final class SubscriberTypeParser {
     
     private SubscriberTypeDetails parseNewType(Class<?> clazz) {
         logger.info("Parsing class ", clazz);
-        Map<Class<?>, Method> eventsMap = new HashMap<Class<?>, Method>();
+        Map<Class<?>, EventInvoker> eventsMap = new HashMap<Class<?>, EventInvoker>();
         Class<?> clz = clazz;
         while(clz != null) {
             parseType(clz, eventsMap);
@@ -55,7 +55,7 @@ final class SubscriberTypeParser {
         return new SubscriberTypeDetails(eventsMap);
     }
     
-    private void parseType(Class<?> clazz, Map<Class<?>, Method> eventsMap) {
+    private void parseType(Class<?> clazz, Map<Class<?>, EventInvoker> eventsMap) {
         Method[] methods = clazz.getDeclaredMethods();
         if (methods != null) {
             for (Method m: methods) {
@@ -66,19 +66,28 @@ final class SubscriberTypeParser {
                         onError("The class " + clazz + " cannot be used like subscriber: method " + m.getName() 
                                 + " should contain only one parameter with the handled event type.");
                     }
-                    Method anotherMethod = eventsMap.get(params[0]);
+                    EventInvoker anotherMethod = eventsMap.get(params[0]);
                     if (anotherMethod != null) {
                         onError("The class " + clazz + " cannot be used like subscriber due to ambiguous methods: " + m.getName() 
                                 + " and " + anotherMethod.getName() + " both have same type parameter.");
                     }
                     logger.info("Accepting ", m.getName(), " with param ", params[0]);
-                    m.setAccessible(true);
-                    eventsMap.put(params[0], m);
+                    eventsMap.put(params[0], newInvoker(clazz, m));
                 }
             }
         }
     }
     
+    private EventInvoker newInvoker(Class<?> clazz, Method m) {
+        try {
+            return new EventInvoker(m);
+        } catch (IllegalAccessException | RuntimeException e) {
+            onError("The class " + clazz + " cannot be used like subscriber: method " + m.getName()
+                    + " is not accessible: " + e.getMessage());
+            return null;
+        }
+    }
+
     private void onError(String message) {
         logger.error("Wrong subscriber: ", message);
         throw new IllegalArgumentException(message);
@@ -1,7 +1,7 @@
 package org.jrivets.event;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -10,11 +10,17 @@ import java.util.concurrent.locks.ReentrantLock;
 
 final class SubscribersRegistry {
 
+    private static final Subscriber[] NO_SUBSCRIBERS = new Subscriber[0];
+
     private final CopyOnWriteArraySet<Subscriber> subscribers = new CopyOnWriteArraySet<Subscriber>();
     
-    private Set<Class<?>> acceptableEvents = new HashSet<Class<?>>();
-    
-    private final Map<Class<?>, Integer> listenersCounter = new HashMap<Class<?>, Integer>();
+    /**
+     * Copy-on-write dispatch table: event type to subscribers which have a
+     * method to handle the type, in the subscription order. The map and the
+     * arrays are never modified after publishing, so the channels read them
+     * without locking.
+     */
+    private volatile Map<Class<?>, Subscriber[]> dispatchTable = new HashMap<Class<?>, Subscriber[]>();
     
     private final SubscriberTypeParser parser;
     
@@ -25,7 +31,7 @@ final class SubscribersRegistry {
     }
     
     void subscribe(Object subscriberObject) {
-        lock.tryLock();
+        lock.lock();
         try {
             Subscriber subscriber = newSubscriber(subscriberObject);
             if (subscribers.contains(subscriber)) {
@@ -38,7 +44,7 @@ final class SubscribersRegistry {
     }
     
     void unsubscribe(Object subscriberObject) {
-        lock.tryLock();
+        lock.lock();
         try {
             Subscriber subscriber = newSubscriber(subscriberObject);
             if (subscribers.remove(subscriber)) {
@@ -50,51 +56,63 @@ final class SubscribersRegistry {
     }
     
     boolean isEventAcceptable(Object event) {
-        Set<Class<?>> events = acceptableEvents;
-        return events.contains(event.getClass());
+        return getSubscribers(event).length > 0;
     }
     
     Set<Subscriber> getSubscribers() {
         return subscribers;
     }
     
-    private void storeNewSubscriber(Subscriber subscriber) {
-        subscribers.add(subscriber);
-        Set<Class<?>> acceptedEvents = subscriber.getAcceptedEventsSet();
-        for (Class<?> event: acceptedEvents) {
-            addNewEventOrUpdateCounter(event);
+    /**
+     * Returns subscribers which handle the event type, the returned array
+     * must not be modified.
+     */
+    Subscriber[] getSubscribers(Object event) {
+        if (event == null) {
+            return NO_SUBSCRIBERS;
         }
+        Subscriber[] result = dispatchTable.get(event.getClass());
+        return result == null ? NO_SUBSCRIBERS : result;
     }
     
-    private void addNewEventOrUpdateCounter(Class<?> event) {
-        Integer counter = listenersCounter.get(event);
-        if (counter == null) {
-            Set<Class<?>> events = new HashSet<Class<?>>(acceptableEvents);
-            events.add(event);
-            acceptableEvents = events;
-            counter = 0;
+    private void storeNewSubscriber(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        Map<Class<?>, Subscriber[]> table = new HashMap<Class<?>, Subscriber[]>(dispatchTable);
+        for (Class<?> event: subscriber.getAcceptedEventsSet()) {
+            Subscriber[] eventSubscribers = table.get(event);
+            if (eventSubscribers == null) {
+                eventSubscribers = NO_SUBSCRIBERS;
+            }
+            eventSubscribers = Arrays.copyOf(eventSubscribers, eventSubscribers.length + 1);
+            eventSubscribers[eventSubscribers.length - 1] = subscriber;
+            table.put(event, eventSubscribers);
         }
-        listenersCounter.put(event, counter + 1);
+        dispatchTable = table;
     }
     
     private void removeSubscriber(Subscriber subscriber) {
         subscribers.remove(subscriber);
-        Set<Class<?>> acceptedEvents = subscriber.getAcceptedEventsSet();
-        for (Class<?> event: acceptedEvents) {
-            removeEvent(event);
+        Map<Class<?>, Subscriber[]> table = new HashMap<Class<?>, Subscriber[]>(dispatchTable);
+        for (Class<?> event: subscriber.getAcceptedEventsSet()) {
+            removeEvent(table, event, subscriber);
         }
+        dispatchTable = table;
     }
     
-    private void removeEvent(Class<?> event) {
-        Integer counter = listenersCounter.get(event);
-        if (counter.equals(1)) {
-            listenersCounter.remove(event);
-            Set<Class<?>> events = new HashSet<Class<?>>(acceptableEvents);
-            events.remove(event);
-            acceptableEvents = events;
+    private void removeEvent(Map<Class<?>, Subscriber[]> table, Class<?> event, Subscriber subscriber) {
+        Subscriber[] eventSubscribers = table.get(event);
+        if (eventSubscribers.length == 1) {
+            table.remove(event);
             return;
         }
-        listenersCounter.put(event, counter - 1);
+        Subscriber[] result = new Subscriber[eventSubscribers.length - 1];
+        int idx = 0;
+        for (Subscriber s: eventSubscribers) {
+            if (!s.equals(subscriber)) {
+                result[idx++] = s;
+            }
+        }
+        table.put(event, result);
     }
     
     private Subscriber newSubscriber(Object subscriberObject) {
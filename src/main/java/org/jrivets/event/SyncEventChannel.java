@@ -36,7 +36,7 @@ public class SyncEventChannel implements EventChannel {
     public boolean publish(Object e) {
         lock.lock();
         try {
-            for (Subscriber subscriber : subscribersRegistry.getSubscribers()) {
+            for (Subscriber subscriber : subscribersRegistry.getSubscribers(e)) {
                 subscriber.notifySubscriberSilently(e);
             }
         } finally {
@@ -120,6 +120,21 @@ abstract class AbstractChunkingPolicy {
         }
     }
 
+    /**
+     * Flushes the output chunk and persists the journal positions, so the
+     * data written before is picked up by new journal instance after restart.
+     * 
+     * @throws IOException
+     */
+    void flushOutput() throws IOException {
+        outputChunk.flush();
+        writeJournalInfo();
+    }
+
+    boolean isMarked() {
+        return markedChunk != null;
+    }
+
     /**
      * 
      * @return
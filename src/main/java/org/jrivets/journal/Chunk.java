@@ -4,12 +4,19 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
-import org.jrivets.util.SyncUtils;
+import org.jrivets.log.Logger;
+import org.jrivets.log.LoggerFactory;
 
 
 class Chunk {
 
+    private final Logger logger = LoggerFactory.getLogger(Chunk.class);
+
     private final int id;
 
     private final File file;
@@ -33,11 +40,39 @@ class Chunk {
 
     private volatile int readers;
 
+    /**
+     * Readers wait for new data on the condition, the lock is used instead of
+     * the object monitor, so waiting virtual threads don't pin their carriers.
+     */
+    private final Lock lock = new ReentrantLock();
+
+    private final Condition dataWritten = lock.newCondition();
+
+    /**
+     * Per-block checksums of the chunk data, <tt>null</tt> if the checksums
+     * are not used.
+     */
+    private final ChunkChecksum checksum;
+
     Chunk(int id, long capacity, File file, boolean append, boolean singleWrite) throws IOException {
+        this(id, capacity, file, append, singleWrite, 0);
+    }
+
+    Chunk(int id, long capacity, File file, boolean append, boolean singleWrite, int checksumBlockSize)
+            throws IOException {
         this.id = id;
         this.file = file;
         this.out = new FileOutputStream(file, append);
         this.singleWrite = singleWrite;
+        this.in = new FileInputStream(file);
+        if (checksumBlockSize > 0) {
+            this.checksum = new ChunkChecksum(id, checksumBlockSize, file, append);
+        } else {
+            this.checksum = null;
+            if (!append) {
+                ChunkChecksum.getFile(file).delete(); // stale one
+            }
+        }
         if (append && file.exists()) {
             long position = file.length();
             this.capacity = Math.max(capacity, position);
@@ -45,7 +80,6 @@ class Chunk {
         } else {
             this.capacity = capacity;
         }
-        this.in = new FileInputStream(file);
     }
 
     int getId() {
@@ -60,6 +94,9 @@ class Chunk {
         position = Math.max(0L, position);
         in.getChannel().position(position);
         bytesRead = in.getChannel().position();
+        if (checksum != null) {
+            checksum.seekRead(bytesRead, in.getChannel());
+        }
     }
 
     long getWritePosition() {
@@ -69,6 +106,9 @@ class Chunk {
     void setWritePosition(long position) throws IOException {
         position = Math.min(file.length(), Math.max(0L, position));
         out.getChannel().position(position);
+        if (checksum != null) {
+            checksum.seekWrite(position, in.getChannel());
+        }
         bytesWritten = position;
     }
 
@@ -76,6 +116,9 @@ class Chunk {
         int result = in.read();
         if (result >= 0) {
             ++bytesRead;
+            if (checksum != null) {
+                checksum.onRead(result);
+            }
         }
         return result;
     }
@@ -84,6 +127,9 @@ class Chunk {
         int result = in.read(b, off, len);
         if (result >= 0) {
             bytesRead += result;
+            if (checksum != null) {
+                checksum.onRead(b, off, result);
+            }
         }
         return result;
     }
@@ -91,6 +137,9 @@ class Chunk {
     long skip(long n) throws IOException {
         long result = in.skip(Math.max(n, 0L));
         bytesRead = in.getChannel().position();
+        if (checksum != null) {
+            checksum.seekRead(bytesRead, in.getChannel());
+        }
         return result;
     }
 
@@ -103,6 +152,9 @@ class Chunk {
             return false;
         }
         out.write(b);
+        if (checksum != null) {
+            checksum.onWrite(b, capacity);
+        }
         ++bytesWritten;
         notifyReaders();
         return true;
@@ -111,6 +163,9 @@ class Chunk {
     void delete() {
         close();
         file.delete();
+        if (checksum != null) {
+            checksum.delete();
+        }
     }
 
     int write(byte b[], int off, int len) throws IOException {
@@ -124,6 +179,9 @@ class Chunk {
             len = (int) Math.min(len, capacity - bytesWritten);
         }
         out.write(b, off, len);
+        if (checksum != null) {
+            checksum.onWrite(b, off, len, capacity);
+        }
         bytesWritten += len;
         notifyReaders();
         return len;
@@ -135,17 +193,19 @@ class Chunk {
         }
     }
 
-    synchronized void waitDataToRead(long timeout) throws IOException {
+    void waitDataToRead(long timeout) throws IOException {
+        lock.lock();
         ++readers;
         try {
             long stopTime = System.currentTimeMillis() + timeout;
             while (!isDone() && !isReadyToRead() && stopTime - System.currentTimeMillis() > 0L) {
-                if (!SyncUtils.waitQuietly(this, Math.max(1, stopTime - System.currentTimeMillis()))) {
-                    return;
-                }
+                dataWritten.await(Math.max(1, stopTime - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } finally {
             --readers;
+            lock.unlock();
         }
     }
 
@@ -164,9 +224,20 @@ class Chunk {
     void close() {
         IOUtils.closeQuietly(in);
         closeOut();
+        if (checksum != null) {
+            checksum.close();
+        }
     }
 
     void closeOut() {
+        if (checksum != null && out != null) {
+            try {
+                checksum.flushWrite();
+            } catch (IOException e) {
+                logger.error("Cannot store checksum of the last block of ", file,
+                        ", the block will not be verified: ", e);
+            }
+        }
         IOUtils.closeQuietly(out);
         out = null;
     }
@@ -177,8 +248,11 @@ class Chunk {
 
     private void notifyReaders() {
         if (readers > 0) {
-            synchronized (this) {
-                notifyAll();
+            lock.lock();
+            try {
+                dataWritten.signalAll();
+            } finally {
+                lock.unlock();
             }
         }
     }
@@ -187,7 +261,7 @@ class Chunk {
     public String toString() {
         return new StringBuilder(150).append("Chunk{ id=").append(id).append(", capacity=").append(capacity)
                 .append(", bytesRead=").append(bytesRead).append(", bytesWritten=").append(bytesWritten)
-                .append(", readers=").append(readers).append("}").toString();
+                .append(", readers=").append(readers).append(", checksum=").append(checksum).append("}").toString();
     }
 
 }
\ No newline at end of file
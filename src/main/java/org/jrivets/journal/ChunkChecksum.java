@@ -0,0 +1,347 @@
+package org.jrivets.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.Checksum;
+
+import org.jrivets.log.Logger;
+import org.jrivets.log.LoggerFactory;
+
+/**
+ * Per-block checksums of a chunk data file.
+ * <p>
+ * The chunk data is split into blocks of <code>blockSize</code> bytes. A block
+ * checksum is calculated incrementally while the block is written and it is
+ * stored (in memory and in the side-car file, 4 bytes per block) as soon as the
+ * block is complete. The last block of the chunk can be shorter than
+ * <code>blockSize</code>, its checksum is stored when the chunk is full or when
+ * the chunk output is closed.
+ * <p>
+ * Read data is verified lazily: the checksum of read bytes is calculated on the
+ * fly and it is compared with the stored one when the reader reaches the block
+ * end, so a corrupted block is reported by {@link CorruptedChunkException} at
+ * the latest when its last byte is read. If the read position is moved, the
+ * checksum of the block prefix is re-calculated from the file.
+ * <p>
+ * The writer stores the block checksum after the block data is written, so a
+ * tailing reader can reach the block end before the checksum is stored. The
+ * block is verified later then: its read checksum is kept as pending till
+ * <code>limit</code> passes the block end (<code>MAX_PENDING</code> blocks
+ * at most, the oldest pending block is skipped if there is no room). The
+ * skipped blocks are counted and logged at debug level.
+ * <p>
+ * Checksums are stored for contiguous region of the chunk started from its
+ * beginning only (see <code>limit</code>), data written without checksums (by
+ * previous journal instance, for example) is not verified.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+final class ChunkChecksum {
+
+    static final String FILE_SUFFIX = ".crc";
+
+    static final int MAX_PENDING = 64;
+
+    private final Logger logger = LoggerFactory.getLogger(ChunkChecksum.class);
+
+    private final int chunkId;
+
+    private final int blockSize;
+
+    private final File file;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer entry = ByteBuffer.allocate(4);
+
+    private volatile int[] sums;
+
+    /**
+     * The end of the last block whose checksum is stored. Updated by writer
+     * after the checksum is put into <code>sums</code>
+     */
+    private volatile long limit;
+
+    private final Checksum writeSum = IOUtils.newChecksum();
+
+    private long writeBlockStart;
+
+    private long writePos;
+
+    private final Checksum readSum = IOUtils.newChecksum();
+
+    private long readBlockStart;
+
+    private long readPos;
+
+    private boolean readVerifiable = true;
+
+    /**
+     * Starts and read checksums of the blocks read completely, but not
+     * verified yet, the ring of <code>MAX_PENDING</code> entries
+     */
+    private final long[] pendingStarts = new long[MAX_PENDING];
+
+    private final int[] pendingSums = new int[MAX_PENDING];
+
+    private int pendingHead;
+
+    private int pendingCount;
+
+    private long skippedBlocks;
+
+    @SuppressWarnings("resource")
+    ChunkChecksum(int chunkId, int blockSize, File dataFile, boolean append) throws IOException {
+        this.chunkId = chunkId;
+        this.blockSize = blockSize;
+        this.file = getFile(dataFile);
+        if (!append) {
+            file.delete();
+        }
+        this.channel = new RandomAccessFile(file, "rw").getChannel();
+        this.sums = new int[0];
+        if (append) {
+            load(dataFile.length());
+        }
+    }
+
+    static File getFile(File dataFile) {
+        return new File(dataFile.getPath() + FILE_SUFFIX);
+    }
+
+    void onWrite(int b, long capacity) throws IOException {
+        beforeWrite();
+        writeSum.update(b);
+        ++writePos;
+        afterWrite(capacity);
+    }
+
+    void onWrite(byte b[], int off, int len, long capacity) throws IOException {
+        beforeWrite();
+        while (len > 0) {
+            int n = (int) Math.min(len, writeBlockStart + blockSize - writePos);
+            writeSum.update(b, off, n);
+            writePos += n;
+            off += n;
+            len -= n;
+            afterWrite(capacity);
+        }
+    }
+
+    /**
+     * Moves write position and re-calculates checksum of the block prefix from
+     * the chunk data file.
+     */
+    void seekWrite(long position, FileChannel data) throws IOException {
+        writeBlockStart = position - position % blockSize;
+        writePos = position;
+        writeSum.reset();
+        update(writeSum, data, writeBlockStart, position);
+    }
+
+    /**
+     * Stores checksum of the last incomplete block, if any.
+     */
+    void flushWrite() throws IOException {
+        if (writePos > writeBlockStart && writePos > limit) {
+            store();
+        }
+    }
+
+    void onRead(int b) throws CorruptedChunkException {
+        readSum.update(b);
+        ++readPos;
+        afterRead();
+    }
+
+    void onRead(byte b[], int off, int len) throws CorruptedChunkException {
+        while (len > 0) {
+            long end = readBlockStart + blockSize;
+            long lim = limit;
+            if (lim > readPos && lim < end) {
+                end = lim;
+            }
+            int n = (int) Math.min(len, end - readPos);
+            readSum.update(b, off, n);
+            readPos += n;
+            off += n;
+            len -= n;
+            afterRead();
+        }
+    }
+
+    /**
+     * Moves read position and re-calculates checksum of the block prefix from
+     * the chunk data file.
+     */
+    void seekRead(long position, FileChannel data) throws IOException {
+        readBlockStart = position - position % blockSize;
+        readPos = position;
+        readSum.reset();
+        readVerifiable = update(readSum, data, readBlockStart, position);
+    }
+
+    void close() {
+        if (pendingCount > 0 || skippedBlocks > 0) {
+            logger.debug("Chunk ", chunkId, ": ", skippedBlocks + pendingCount,
+                    " read blocks are not verified, their checksums are not stored");
+        }
+        IOUtils.closeQuietly(channel);
+    }
+
+    long getSkippedBlocks() {
+        return skippedBlocks;
+    }
+
+    void delete() {
+        close();
+        file.delete();
+    }
+
+    long getLimit() {
+        return limit;
+    }
+
+    private void beforeWrite() throws IOException {
+        if (limit > writeBlockStart) {
+            // the block (and all following ones) is going to be re-written
+            limit = writeBlockStart;
+            channel.truncate(getIndex(writeBlockStart) * 4L);
+        }
+    }
+
+    private void afterWrite(long capacity) throws IOException {
+        if (writePos == writeBlockStart + blockSize) {
+            store();
+            writeBlockStart = writePos;
+            writeSum.reset();
+        } else if (writePos == capacity) {
+            store();
+        }
+    }
+
+    private void store() throws IOException {
+        if (writeBlockStart > limit) {
+            // no checksums for previous blocks, so the region is not contiguous
+            return;
+        }
+        int idx = getIndex(writeBlockStart);
+        int value = (int) writeSum.getValue();
+        int[] s = sums;
+        if (idx >= s.length) {
+            s = Arrays.copyOf(s, Math.max(idx + 1, s.length * 2));
+        }
+        s[idx] = value;
+        sums = s;
+        entry.clear();
+        entry.putInt(value);
+        entry.flip();
+        channel.write(entry, idx * 4L);
+        limit = writePos;
+    }
+
+    private void afterRead() throws CorruptedChunkException {
+        long blockEnd = readBlockStart + blockSize;
+        long lim = limit;
+        if (pendingCount > 0) {
+            verifyPending(lim);
+        }
+        if (readVerifiable && readPos <= lim && (readPos == blockEnd || readPos == lim)) {
+            verify(readBlockStart, (int) readSum.getValue());
+        } else if (readVerifiable && readPos == blockEnd) {
+            // the writer doesn't store the block checksum yet
+            addPending(readBlockStart, (int) readSum.getValue());
+        }
+        if (readPos == blockEnd) {
+            readBlockStart = readPos;
+            readSum.reset();
+            readVerifiable = true;
+        }
+    }
+
+    private void verify(long blockStart, int actual) throws CorruptedChunkException {
+        int expected = sums[getIndex(blockStart)];
+        if (expected != actual) {
+            throw new CorruptedChunkException(chunkId, blockStart, expected, actual);
+        }
+    }
+
+    private void verifyPending(long lim) throws CorruptedChunkException {
+        while (pendingCount > 0 && pendingStarts[pendingHead] + blockSize <= lim) {
+            long start = pendingStarts[pendingHead];
+            int actual = pendingSums[pendingHead];
+            pendingHead = (pendingHead + 1) % MAX_PENDING;
+            pendingCount--;
+            verify(start, actual);
+        }
+    }
+
+    private void addPending(long blockStart, int actual) {
+        if (pendingCount == MAX_PENDING) {
+            skippedBlocks++;
+            logger.debug("Chunk ", chunkId, ": the block at ", pendingStarts[pendingHead],
+                    " is not verified, its checksum is not stored");
+            pendingHead = (pendingHead + 1) % MAX_PENDING;
+            pendingCount--;
+        }
+        int idx = (pendingHead + pendingCount) % MAX_PENDING;
+        pendingStarts[idx] = blockStart;
+        pendingSums[idx] = actual;
+        pendingCount++;
+    }
+
+    private void load(long dataLength) throws IOException {
+        int count = (int) (channel.size() / 4);
+        int[] s = new int[count];
+        ByteBuffer buf = ByteBuffer.allocate(count * 4);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, buf.position()) <= 0) {
+                break;
+            }
+        }
+        buf.flip();
+        count = buf.remaining() / 4;
+        for (int i = 0; i < count; i++) {
+            s[i] = buf.getInt();
+        }
+        sums = s;
+        limit = Math.min((long) count * blockSize, dataLength);
+    }
+
+    private int getIndex(long position) {
+        return (int) (position / blockSize);
+    }
+
+    /**
+     * Updates the checksum by the data file content in [from..to) region.
+     * Returns false if the region cannot be read completely.
+     */
+    private static boolean update(Checksum checksum, FileChannel data, long from, long to) throws IOException {
+        if (from >= to) {
+            return true;
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.min(to - from, 8192));
+        while (from < to) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), to - from));
+            int n = data.read(buf, from);
+            if (n <= 0) {
+                return false;
+            }
+            checksum.update(buf.array(), 0, n);
+            from += n;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("{blockSize=").append(blockSize).append(", limit=").append(limit)
+                .append(", writePos=").append(writePos).append(", readPos=").append(readPos).append("}").toString();
+    }
+}
@@ -26,10 +26,13 @@ import org.jrivets.log.LoggerFactory;
 final class ChunkingPolicy extends AbstractChunkingPolicy {
     
     private final boolean singleWrite;
+    
+    private final int checksumBlockSize;
 
-    ChunkingPolicy(long maxCapacity, long maxChunkSize, String folderName, String prefixName, boolean cleanAfterOpen, boolean singleWrite) throws IOException, ChunkNotFoundException {
+    ChunkingPolicy(long maxCapacity, long maxChunkSize, String folderName, String prefixName, boolean cleanAfterOpen, boolean singleWrite, int checksumBlockSize) throws IOException, ChunkNotFoundException {
         super(LoggerFactory.getLogger(ChunkingPolicy.class, "(" + prefixName + ") %2$s", null), maxCapacity, maxChunkSize, folderName, prefixName, cleanAfterOpen);
         this.singleWrite = singleWrite;
+        this.checksumBlockSize = checksumBlockSize;
         init(cleanAfterOpen);
         logger.info("New ChunkingPolicy: ", this);
     }
@@ -49,7 +52,7 @@ final class ChunkingPolicy extends AbstractChunkingPolicy {
                 throw new ChunkNotFoundException(id);
             }
             long capacity = file.length();
-            Chunk chunk = new Chunk(id, capacity, file, true, singleWrite);
+            Chunk chunk = new Chunk(id, capacity, file, true, singleWrite, checksumBlockSize);
             chunks.add(chunk);
         }
         nextChunkId = getNextChunkId(journalInfo.getWriter().getFirst());
@@ -87,7 +90,7 @@ final class ChunkingPolicy extends AbstractChunkingPolicy {
         if (outputChunk != null) {
             outputChunk.closeOut(); // previous one is not going to be used anymore
         }
-        outputChunk = new Chunk(nextChunkId, capacity, file, false, singleWrite);
+        outputChunk = new Chunk(nextChunkId, capacity, file, false, singleWrite, checksumBlockSize);
         chunks.add(outputChunk);
         nextChunkId = getNextChunkId(nextChunkId);
         logger.debug("newChunk(): New chunk is creaged ", outputChunk, ", nextChunkId=", nextChunkId);
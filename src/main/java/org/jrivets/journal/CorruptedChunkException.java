@@ -0,0 +1,36 @@
+package org.jrivets.journal;
+
+import java.io.IOException;
+
+/**
+ * Thrown by the journal input stream when the read data doesn't match the
+ * checksum stored for the data block when it was written.
+ * 
+ * @author Dmitry Spasibenko
+ * 
+ */
+public class CorruptedChunkException extends IOException {
+
+    private static final long serialVersionUID = -2404562735930870217L;
+
+    private final int chunkId;
+
+    private final long blockPosition;
+
+    CorruptedChunkException(int chunkId, long blockPosition, int expected, int actual) {
+        super("The data block at position " + blockPosition + " of the chunkId=" + chunkId
+                + " is corrupted: expected checksum=" + Integer.toHexString(expected) + ", actual="
+                + Integer.toHexString(actual));
+        this.chunkId = chunkId;
+        this.blockPosition = blockPosition;
+    }
+
+    public int getChunkId() {
+        return chunkId;
+    }
+
+    public long getBlockPosition() {
+        return blockPosition;
+    }
+
+}
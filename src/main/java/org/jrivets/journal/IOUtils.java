@@ -2,14 +2,34 @@ package org.jrivets.journal;
 
 import java.io.Closeable;
 import java.io.File;
+import java.lang.reflect.Constructor;
 import java.nio.channels.FileLock;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
 
 final class IOUtils {
 
     static final String temporaryDirectory = System.getProperty("java.io.tmpdir");
     
+    /**
+     * CRC32C (Castagnoli) is available since Java 9 and it is intrinsified by
+     * modern JVMs, the hardware-accelerated CRC32 is used for older ones.
+     */
+    private static final Constructor<? extends Checksum> crc32c = getCrc32cConstructor();
+    
+    static Checksum newChecksum() {
+        if (crc32c != null) {
+            try {
+                return crc32c.newInstance();
+            } catch (Exception e) {
+                // falls back to CRC32
+            }
+        }
+        return new CRC32();
+    }
+    
     static void closeQuietly(Closeable closeable) {
         try {
             closeable.close();
@@ -36,4 +56,12 @@ final class IOUtils {
         }
         return result;
     }
+    
+    private static Constructor<? extends Checksum> getCrc32cConstructor() {
+        try {
+            return Class.forName("java.util.zip.CRC32C").asSubclass(Checksum.class).getConstructor();
+        } catch (Exception e) {
+            return null;
+        }
+    }
 }
@@ -26,6 +26,8 @@ public final class JournalBuilder {
 
     private boolean singleWrite;
 
+    private int checksumBlockSize;
+
     /**
      * Allows to set maximum journal (size) capacity. Default is
      * {@code Long.MAX_VALUE} which is maximum supported journal size.
@@ -110,6 +112,29 @@ public final class JournalBuilder {
         return this;
     }
 
+    /**
+     * Turns on per-block checksums for file system data journals. Every chunk
+     * is split into blocks of <code>blockSize</code> bytes, a block checksum
+     * (CRC32C, or CRC32 if the JVM doesn't provide it) is calculated while the
+     * block is written and it is stored in the side-car file with the chunk
+     * file name and ".crc" suffix. Read data is verified when the reader
+     * reaches the block end, so a corrupted block makes the input stream throw
+     * {@link CorruptedChunkException} no later than its last byte is read.
+     * <p>
+     * The value 0 turns the checksums off, which is default.
+     * 
+     * @param blockSize
+     *            the checksum block size in bytes, 64K is a reasonable value
+     * @return the builder object
+     */
+    public JournalBuilder withChecksum(int blockSize) {
+        if (blockSize < 0) {
+            throw new IllegalArgumentException("blockSize=" + blockSize + " should not be negative.");
+        }
+        this.checksumBlockSize = blockSize;
+        return this;
+    }
+
     /**
      * Constructs new {@link Journal} instance with the builder configuration
      * settings.
@@ -168,7 +193,7 @@ public final class JournalBuilder {
                     + " should not be greater than maxCapacity=" + maxCapacity);
         }
         return new FileSystemJournal(new ChunkingPolicy(maxCapacity, maxChunkSize, folderName, prefixName,
-                cleanAfterOpen, singleWrite));
+                cleanAfterOpen, singleWrite, checksumBlockSize));
     }
 
 }
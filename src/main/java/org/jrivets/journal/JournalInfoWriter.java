@@ -6,6 +6,9 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.Checksum;
 
 import org.jrivets.log.Logger;
 import org.jrivets.log.LoggerFactory;
@@ -23,7 +26,14 @@ final class JournalInfoWriter {
     
     private JournalInfo journalInfo = JournalInfo.NULL_INFO;
     
-    private ByteBuffer buffer = ByteBuffer.allocateDirect(52);
+    private final ByteBuffer buffer = ByteBuffer.allocate(52);
+    
+    private final Checksum checksum = IOUtils.newChecksum();
+    
+    /**
+     * Guards the writes which come from the journal reader and writer threads
+     */
+    private final Lock lock = new ReentrantLock();
     
     @SuppressWarnings("resource")
     JournalInfoWriter(File metaFile, boolean cleanAfterOpen) throws IOException {
@@ -48,11 +58,16 @@ final class JournalInfoWriter {
     }
     
     void set(JournalInfo info) throws IOException {
-        if (info.equals(journalInfo)) {
-            return;
+        lock.lock();
+        try {
+            if (info.equals(journalInfo)) {
+                return;
+            }
+            writeJournalInfo(info);
+            journalInfo = info;
+        } finally {
+            lock.unlock();
         }
-        writeJournalInfo(info);
-        journalInfo = info;
     }
     
     void close() {
@@ -64,16 +79,31 @@ final class JournalInfoWriter {
         long ts = System.currentTimeMillis();
         buffer.clear();
         buffer.putLong(ts);
-        buffer.putInt(hashCode(ts, info.hashCode()));
+        buffer.putInt(0);
         write(info.getMarker());
         write(info.getReader());
         write(info.getWriter());
         buffer.putInt(info.getReadLimit());
+        buffer.putInt(8, checksum());
         buffer.flip();
         channel.write(buffer, 0L);
     }
     
-    private int hashCode(long l, int h) {
+    /**
+     * Calculates checksum of the buffer content except the checksum field
+     * itself (bytes 8..11)
+     */
+    private int checksum() {
+        checksum.reset();
+        checksum.update(buffer.array(), 0, 8);
+        checksum.update(buffer.array(), 12, buffer.capacity() - 12);
+        return (int) checksum.getValue();
+    }
+    
+    /**
+     * The hash which was used instead of the checksum by previous versions.
+     */
+    private int legacyHashCode(long l, int h) {
         return Long.hashCode(l)*19 + h;
     }
     
@@ -100,10 +130,12 @@ final class JournalInfoWriter {
         int readLimit = buffer.getInt();
         journalInfo = new JournalInfo(marker, reader, writer, readLimit);
         
-        int expectedHash = hashCode(ts, journalInfo.hashCode());
+        int expectedHash = checksum();
         logger.debug("Read from file: ts=", ts, ", jHash=", jHash, "(expectedHash=", expectedHash, "), journalInfo=", journalInfo);
-        if (jHash != expectedHash) {
-            logger.error("Corrupted information in meta-file (wrong hash), stop processing: ", this);
+        if (jHash != expectedHash && jHash == legacyHashCode(ts, journalInfo.hashCode())) {
+            logger.info("The meta-file is written by previous version, it will be re-written with checksum: ", this);
+        } else if (jHash != expectedHash) {
+            logger.error("Corrupted information in meta-file (wrong checksum), stop processing: ", this);
             JournalInfo ji = journalInfo;
             journalInfo = null;
             throw new IllegalStateException("The meta-file is corrupted " + ji);
@@ -153,6 +153,14 @@ public final class JournalInputStream extends InputStream {
         policy.mark(readlimit);
     }
 
+    /**
+     * Returns whether the position is marked, so <code>reset</code> can be
+     * invoked. The mark is picked up by new journal instance after restart.
+     */
+    public boolean hasMark() {
+        return policy.isMarked();
+    }
+
     @Override
     public void reset() throws IOException {
         policy.reset();
@@ -52,6 +52,6 @@ final class JournalOutputStream extends OutputStream {
 
     @Override
     public void flush() throws IOException {
-        policy.outputChunk.flush();
+        policy.flushOutput();
     }
 }
\ No newline at end of file
@@ -0,0 +1,300 @@
+package org.jrivets.mq;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jrivets.util.OverflowException;
+
+/**
+ * Base class of the bounded in-memory queues which are guarded by one lock.
+ * The class implements the {@link MessageQueue} contract: the size limit,
+ * waiting consumers and producers, and termination; the subclasses define
+ * the order the messages are delivered in.
+ * <p>
+ * A message is put with an attribute which meaning is defined by the
+ * subclass (for example, a delay or a priority). A message can be not ready
+ * for delivery yet, the subclass reports when the next message becomes ready
+ * by <tt>readyDelay()</tt>, and consumers wait for it.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+abstract class AbstractBlockingQueue implements MessageQueue {
+
+    final int maxSize;
+
+    int size;
+
+    final Lock lock;
+
+    final Condition cond;
+
+    final Condition notFull;
+
+    int readers;
+
+    int writers;
+
+    boolean terminated;
+
+    AbstractBlockingQueue(int maxSize, boolean fair) {
+        this.maxSize = maxSize;
+        this.lock = new ReentrantLock(fair);
+        this.cond = lock.newCondition();
+        this.notFull = lock.newCondition();
+    }
+
+    /**
+     * Adds the value to the queue, called under the lock when the queue has
+     * room for the value.
+     */
+    abstract void enqueue(Object value, long attribute);
+
+    /**
+     * Removes and returns the first ready value, called under the lock when
+     * <tt>readyDelay()</tt> returned 0.
+     */
+    abstract Object dequeue();
+
+    /**
+     * Returns <tt>0</tt> if a value is ready for delivery, otherwise returns
+     * the time in milliseconds a consumer should wait before checking again,
+     * <tt>Long.MAX_VALUE</tt> if the queue is empty. Called under the lock.
+     */
+    abstract long readyDelay(long nowMs);
+
+    /**
+     * Removes all values, called under the lock.
+     */
+    abstract void clean();
+
+    /**
+     * The attribute of the values which are put by <tt>put()</tt>,
+     * <tt>offer()</tt> and <tt>putAll()</tt>
+     */
+    long defaultAttribute() {
+        return 0L;
+    }
+
+    @Override
+    public <T> void put(T value) throws OverflowException {
+        putWith(value, defaultAttribute());
+    }
+
+    @Override
+    public <T> boolean offer(T value) {
+        return offerWith(value, defaultAttribute());
+    }
+
+    @Override
+    public <T> boolean put(T value, long timeoutMs) {
+        long stopTime = timeoutMs > 0L ? System.currentTimeMillis() + timeoutMs : 0L;
+        lock.lock();
+        ++writers;
+        try {
+            while (true) {
+                checkNotTerminated();
+                if (size < maxSize) {
+                    putInternal(value, defaultAttribute());
+                    return true;
+                }
+                long rest = stopTime - System.currentTimeMillis();
+                if (stopTime == 0L || rest <= 0L) {
+                    return false;
+                }
+                notFull.await(rest, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            --writers;
+            notifyReaders();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public <T> void putAll(Collection<? extends T> values) throws OverflowException {
+        if (values.isEmpty()) {
+            return;
+        }
+        checkWrite(values.size());
+        lock.lock();
+        try {
+            checkWrite(values.size());
+            for (T value : values) {
+                putInternal(value, defaultAttribute());
+            }
+        } finally {
+            notifyReaders();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Object get(long timeoutMs) {
+        long stopTime = timeoutMs > 0L ? System.currentTimeMillis() + timeoutMs : 0L;
+        lock.lock();
+        ++readers;
+        try {
+            if (!waitData(stopTime)) {
+                return null;
+            }
+            Object value = pop();
+            signalWriters(1);
+            return value;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            --readers;
+            notifyReaders();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> int drain(Collection<? super T> sink, int max, long timeoutMs) {
+        if (max <= 0) {
+            return 0;
+        }
+        long stopTime = timeoutMs > 0L ? System.currentTimeMillis() + timeoutMs : 0L;
+        lock.lock();
+        ++readers;
+        int count = 0;
+        try {
+            if (waitData(stopTime)) {
+                long now = System.currentTimeMillis();
+                do {
+                    Object value = pop();
+                    count++;
+                    sink.add((T) value);
+                } while (count < max && readyDelay(now) == 0L);
+            }
+            return count;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            signalWriters(count);
+            --readers;
+            notifyReaders();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void terminate() {
+        lock.lock();
+        try {
+            terminated = true;
+            clean();
+            size = 0;
+            if (readers > 0) {
+                cond.signalAll();
+            }
+            if (writers > 0) {
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    final void putWith(Object value, long attribute) throws OverflowException {
+        checkWrite(1);
+        lock.lock();
+        try {
+            checkWrite(1);
+            putInternal(value, attribute);
+        } finally {
+            notifyReaders();
+            lock.unlock();
+        }
+    }
+
+    final boolean offerWith(Object value, long attribute) {
+        lock.lock();
+        try {
+            checkNotTerminated();
+            if (size >= maxSize) {
+                return false;
+            }
+            putInternal(value, attribute);
+            return true;
+        } finally {
+            notifyReaders();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits till the queue has a ready value or the stop time, returns
+     * whether the value is available.
+     */
+    private boolean waitData(long stopTime) throws InterruptedException {
+        while (!terminated) {
+            long now = System.currentTimeMillis();
+            long delay = readyDelay(now);
+            if (delay == 0L) {
+                return true;
+            }
+            long rest = stopTime - now;
+            if (stopTime == 0L || rest <= 0L) {
+                break;
+            }
+            cond.await(Math.min(rest, delay), TimeUnit.MILLISECONDS);
+        }
+        return false;
+    }
+
+    private Object pop() {
+        Object value = dequeue();
+        size--;
+        return value;
+    }
+
+    /**
+     * Wakes up the producers waiting for room after <tt>freed</tt> values are
+     * removed, called under the lock.
+     */
+    private void signalWriters(int freed) {
+        if (writers == 0 || freed == 0) {
+            return;
+        }
+        if (freed > 1) {
+            notFull.signalAll();
+        } else {
+            notFull.signal();
+        }
+    }
+
+    private void putInternal(Object value, long attribute) {
+        enqueue(value, attribute);
+        size++;
+    }
+
+    private void notifyReaders() {
+        if (readers > 0 && size > 0) {
+            cond.signal();
+        }
+    }
+
+    private void checkWrite(int count) throws OverflowException {
+        if (size > maxSize - count) {
+            throw new OverflowException("The size=" + (size + count) + " cannot be greater than " + maxSize);
+        }
+        checkNotTerminated();
+    }
+
+    private void checkNotTerminated() {
+        if (terminated) {
+            throw new IllegalStateException("The queue is terminated");
+        }
+    }
+}
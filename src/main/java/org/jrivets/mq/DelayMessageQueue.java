@@ -0,0 +1,234 @@
+package org.jrivets.mq;
+
+import java.util.Arrays;
+
+import org.jrivets.util.OverflowException;
+
+/**
+ * Bounded queue of delayed messages: a message put by
+ * <tt>putWithDelay()</tt> becomes visible for consumers when its delay
+ * expires. The messages put by <tt>put()</tt>, <tt>offer()</tt> and
+ * <tt>putAll()</tt> are visible immediately. The size limit, waiting and
+ * termination behave the same way as {@link InMemoryFifoQueue} ones, the
+ * delayed messages are counted in the queue size.
+ * <p>
+ * The delayed messages are kept in a hierarchical timing wheel: the time is
+ * split to ticks of <tt>tickMs</tt> milliseconds, and every wheel level has
+ * 64 slots, so a slot of level <tt>n</tt> covers <tt>64^n</tt> ticks. A
+ * message is put to the slot of the highest level where its due tick differs
+ * from the current one, so the insert is O(1). When the time comes to a slot
+ * the slot messages are moved to the lower levels (or to the ready list if
+ * they are due), and every message is moved at most once per level. The
+ * occupied slots of every level are tracked by a bitmask, so the next slot to
+ * process is found without scanning empty ones, and consumers wait exactly
+ * till it.
+ * <p>
+ * A message becomes visible within one tick after its delay expiration.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class DelayMessageQueue extends AbstractBlockingQueue {
+
+    private static final int SLOT_BITS = 6;
+
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    private static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+
+    private final long tickMs;
+
+    private final Node[] heads = new Node[LEVELS * SLOTS];
+
+    private final Node[] tails = new Node[LEVELS * SLOTS];
+
+    private final long[] occupied = new long[LEVELS];
+
+    private Node readyHead;
+
+    private Node readyTail;
+
+    private long currentTick;
+
+    private static final class Node {
+
+        final Object value;
+
+        final long dueTick;
+
+        Node next;
+
+        Node(Object value, long dueTick) {
+            this.value = value;
+            this.dueTick = dueTick;
+        }
+    }
+
+    public DelayMessageQueue(int maxSize) {
+        this(maxSize, 1L);
+    }
+
+    /**
+     * @param maxSize
+     * @param tickMs
+     *            - the timing wheel resolution in milliseconds
+     */
+    public DelayMessageQueue(int maxSize, long tickMs) {
+        super(maxSize, false);
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize=" + maxSize + " should be positive");
+        }
+        if (tickMs <= 0L) {
+            throw new IllegalArgumentException("tickMs=" + tickMs + " should be positive");
+        }
+        this.tickMs = tickMs;
+        this.currentTick = System.currentTimeMillis() / tickMs;
+    }
+
+    /**
+     * Puts the value which becomes visible for consumers in
+     * <tt>delayMs</tt>.
+     *
+     * @throws OverflowException
+     *             if the queue is full
+     */
+    public <T> void putWithDelay(T value, long delayMs) throws OverflowException {
+        putWith(value, delayMs);
+    }
+
+    /**
+     * Puts the value which becomes visible for consumers in <tt>delayMs</tt>
+     * if the queue is not full.
+     *
+     * @return <tt>false</tt> if the queue is full
+     */
+    public <T> boolean offerWithDelay(T value, long delayMs) {
+        return offerWith(value, delayMs);
+    }
+
+    @Override
+    void enqueue(Object value, long delayMs) {
+        long dueTick = currentTick;
+        if (delayMs > 0L) {
+            long now = System.currentTimeMillis();
+            dueTick = delayMs < Long.MAX_VALUE - now - tickMs ? (now + delayMs + tickMs - 1) / tickMs
+                    : Long.MAX_VALUE / tickMs;
+        }
+        insert(new Node(value, dueTick));
+    }
+
+    @Override
+    Object dequeue() {
+        Node node = readyHead;
+        readyHead = node.next;
+        if (readyHead == null) {
+            readyTail = null;
+        }
+        return node.value;
+    }
+
+    @Override
+    long readyDelay(long nowMs) {
+        advance(nowMs / tickMs);
+        if (readyHead != null) {
+            return 0L;
+        }
+        long next = nextSlotTick();
+        return next < 0L ? Long.MAX_VALUE : Math.max(1L, next * tickMs - nowMs);
+    }
+
+    @Override
+    void clean() {
+        Arrays.fill(heads, null);
+        Arrays.fill(tails, null);
+        Arrays.fill(occupied, 0L);
+        readyHead = null;
+        readyTail = null;
+    }
+
+    private void insert(Node node) {
+        if (node.dueTick <= currentTick) {
+            if (readyTail == null) {
+                readyHead = node;
+            } else {
+                readyTail.next = node;
+            }
+            readyTail = node;
+            return;
+        }
+        int level = (63 - Long.numberOfLeadingZeros(node.dueTick ^ currentTick)) / SLOT_BITS;
+        int slot = (int) (node.dueTick >>> (level * SLOT_BITS)) & (SLOTS - 1);
+        int idx = level * SLOTS + slot;
+        if (tails[idx] == null) {
+            heads[idx] = node;
+        } else {
+            tails[idx].next = node;
+        }
+        tails[idx] = node;
+        occupied[level] |= 1L << slot;
+    }
+
+    /**
+     * Moves the current tick to <tt>nowTick</tt> processing the slots which
+     * are passed.
+     */
+    private void advance(long nowTick) {
+        while (currentTick < nowTick) {
+            long next = nextSlotTick();
+            if (next < 0L || next > nowTick) {
+                currentTick = nowTick;
+                return;
+            }
+            currentTick = next;
+            cascade(next);
+        }
+    }
+
+    /**
+     * Returns the first tick of the nearest occupied slot or <tt>-1</tt> if
+     * there are no delayed messages.
+     */
+    private long nextSlotTick() {
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * SLOT_BITS;
+            int digit = (int) (currentTick >>> shift) & (SLOTS - 1);
+            long slots = occupied[level] & (-2L << digit);
+            if (slots != 0L) {
+                long prefix = level + 1 < LEVELS ? (currentTick >>> (shift + SLOT_BITS)) << (shift + SLOT_BITS) : 0L;
+                return prefix | ((long) Long.numberOfTrailingZeros(slots) << shift);
+            }
+        }
+        return -1L;
+    }
+
+    /**
+     * Re-inserts messages of the slot which starts at the tick, the messages
+     * go to lower levels or to the ready list.
+     */
+    private void cascade(long tick) {
+        for (int level = LEVELS - 1; level >= 0; level--) {
+            int shift = level * SLOT_BITS;
+            int slot = (int) (tick >>> shift) & (SLOTS - 1);
+            if ((occupied[level] & (1L << slot)) == 0L) {
+                continue;
+            }
+            int idx = level * SLOTS + slot;
+            Node node = heads[idx];
+            heads[idx] = null;
+            tails[idx] = null;
+            occupied[level] &= ~(1L << slot);
+            while (node != null) {
+                Node next = node.next;
+                node.next = null;
+                insert(node);
+                node = next;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DelayMessageQueue {maxSize=" + maxSize + ", size=" + size + ", tickMs=" + tickMs + ", readers="
+                + readers + ", writers=" + writers + "}";
+    }
+}
@@ -1,29 +1,10 @@
 package org.jrivets.mq;
 
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+final class InMemoryFifoQueue extends AbstractBlockingQueue {
 
-import org.jrivets.util.OverflowException;
-
-final class InMemoryFifoQueue implements MessageQueue {
-
-    final int maxSize;
-    
-    int size;
-    
-    final Lock lock = new ReentrantLock();
-    
-    final Condition cond = lock.newCondition();
-    
     ValueHolder head;
     
     ValueHolder tail;
-    
-    int readers;
-    
-    boolean terminated;
         
     private static class ValueHolder {
         
@@ -42,79 +23,22 @@ final class InMemoryFifoQueue implements MessageQueue {
     }
 
     InMemoryFifoQueue(int maxSize) {
-        this.maxSize = maxSize;
+        this(maxSize, false);
     }
 
-    @Override
-    public <T> void put(T value) throws OverflowException {
-        checkWrite();
-        lock.lock();
-        try {
-            checkWrite();
-            putInternal(value);
-        } finally {
-            notifyReaders();
-            lock.unlock();
-        }
+    /**
+     * @param maxSize
+     * @param fair
+     *            - whether the lock is fair, so the producers and consumers
+     *            acquire it in the arrival order
+     */
+    InMemoryFifoQueue(int maxSize, boolean fair) {
+        super(maxSize, fair);
     }
 
     @Override
-    public Object get(long timeoutMs) {
-        long stopTime = timeoutMs > 0L ? System.currentTimeMillis() + timeoutMs : 0L;
-        lock.lock();
-        ++readers;
-        try {
-            return getInternal(stopTime);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return null;
-        } finally {
-            --readers;
-            notifyReaders();
-            lock.unlock();
-        }
-    }
-    
-    @Override
-    public void terminate() {
-        lock.lock();
-        try {
-            terminated = true;
-            clean();
-            if (readers > 0) {
-                cond.signalAll();
-            }
-        } finally {
-            lock.unlock();
-        }
-    }
-
-    private Object getInternal(long stopTime) throws InterruptedException {
-        do {
-            if (terminated) {
-                break;
-            }
-            if (head != null) {
-                ValueHolder holder = head;
-                size--;
-                Object value = holder.value;
-                head = head.next;
-                if (head == null) {
-                    tail = null;
-                }
-                holder.clear();
-                return value;
-            }
-            if (stopTime > 0L) {
-                cond.await(stopTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-            }
-        } while (stopTime > 0L && stopTime > System.currentTimeMillis());
-        return null;
-    }
-    
-    private void putInternal(Object value) {
+    void enqueue(Object value, long attribute) {
         ValueHolder holder = new ValueHolder(value);
-        size++;
         if (head == null) {
             tail = head = holder;
             return;
@@ -123,8 +47,26 @@ final class InMemoryFifoQueue implements MessageQueue {
         tail.next = holder;
         tail = holder;
     }
+
+    @Override
+    Object dequeue() {
+        ValueHolder holder = head;
+        Object value = holder.value;
+        head = head.next;
+        if (head == null) {
+            tail = null;
+        }
+        holder.clear();
+        return value;
+    }
+
+    @Override
+    long readyDelay(long nowMs) {
+        return head != null ? 0L : Long.MAX_VALUE;
+    }
     
-    private void clean() {
+    @Override
+    void clean() {
         while (head != null) {
             ValueHolder holder = head;
             head = head.next;
@@ -133,27 +75,12 @@ final class InMemoryFifoQueue implements MessageQueue {
         }
         head = null;
         tail = null;
-        size = 0;
-    }
-
-    private void notifyReaders() {
-        if (readers > 0 && size > 0) {
-            cond.signal();
-        }
-    }
-    
-    private void checkWrite() throws OverflowException {
-        if (size >= maxSize) {
-            throw new OverflowException("The size=" + size + " cannot be greater than " + maxSize);
-        }
-        if (terminated) {
-            throw new IllegalStateException("The queue is terminated");
-        }
     }
     
     @Override
     public String toString() {
-        return "InMemoryFifoQueue {maxSize=" + maxSize + ", size=" + size + ", readers=" + readers + "}";
+        return "InMemoryFifoQueue {maxSize=" + maxSize + ", size=" + size + ", readers=" + readers + ", writers="
+                + writers + "}";
     }
 
 }
@@ -0,0 +1,388 @@
+package org.jrivets.mq;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jrivets.journal.Journal;
+import org.jrivets.journal.JournalInputStream;
+
+/**
+ * Persistent FIFO queue which stores messages in {@link Journal}, so the
+ * messages survive restarts. The messages are converted to bytes by
+ * {@link MessageSerializer} and every message is written as a framed record:
+ * 4 bytes length (<tt>-1</tt> for <tt>null</tt> message) followed by the
+ * serialized message.
+ * <p>
+ * The delivery is at-least-once: consumers read the messages to a small
+ * read-ahead buffer (<tt>readAhead</tt> messages at most), and the journal
+ * read position is marked before the buffer is filled. The mark is moved
+ * (committed) only when the buffer is refilled, that is when all the
+ * messages read before are delivered. New queue instance resets the journal
+ * to the last mark, so the messages which were read, but not committed before
+ * a restart, are delivered again. The memory footprint is bounded by the
+ * read-ahead buffer regardless of the backlog size, the backlog is kept by
+ * the journal.
+ * <p>
+ * Every <tt>put()</tt> returns after the journal is flushed, that is after its
+ * messages are written and the journal positions are persisted, so the
+ * messages of the returned puts survive a crash. The flushes are coalesced:
+ * the producers which come while another producer writes, leave their
+ * records in the pending list, and the next producer which gets the write
+ * lock writes all the pending records and flushes the journal once for all
+ * of them (group commit). So the journal info file is rewritten once per
+ * group of concurrent puts rather than once per message, and no put waits
+ * for a deferred flush.
+ * <p>
+ * The journal capacity is controlled by the journal, writing to a full
+ * journal blocks till the space is freed by the consumers, so <tt>offer()</tt>
+ * and <tt>put(value, timeoutMs)</tt> always put the value and
+ * {@link org.jrivets.util.OverflowException} is never thrown. I/O errors are
+ * reported by {@link IllegalStateException}.
+ * <p>
+ * The queue is thread-safe: producers and consumers are serialized by their
+ * own locks, so one producer and one consumer access the journal at a time.
+ * <tt>terminate()</tt> doesn't close the journal, it should be closed by its
+ * owner after the queue is terminated.
+ *
+ * @author Dmitry Spasibenko
+ *
+ * @param <M>
+ *            - the message type
+ */
+public final class JournalMessageQueue<M> implements MessageQueue {
+
+    private static final Object NULL = new Object();
+
+    private static final int NULL_LENGTH = -1;
+
+    /**
+     * Max time the consumer waits for the journal data without checking
+     * whether the queue is terminated
+     */
+    private static final long POLL_INTERVAL_MS = 50L;
+
+    private final Journal journal;
+
+    private final MessageSerializer<M> serializer;
+
+    private final int readAhead;
+
+    private final ArrayDeque<Object> buffer;
+
+    private final byte[] header = new byte[4];
+
+    private final Lock readLock = new ReentrantLock();
+
+    private final Lock writeLock = new ReentrantLock();
+
+    /**
+     * The serialized records which are not written yet, the records are
+     * written in the order they are added
+     */
+    private final ConcurrentLinkedQueue<Record> pending = new ConcurrentLinkedQueue<Record>();
+
+    /**
+     * Serialized values of one <tt>put()</tt> or <tt>putAll()</tt>, the state
+     * fields are guarded by the write lock
+     */
+    private static final class Record {
+
+        final ByteArrayOutputStream data;
+
+        boolean written;
+
+        IOException error;
+
+        Record(ByteArrayOutputStream data) {
+            this.data = data;
+        }
+    }
+
+    private volatile boolean terminated;
+
+    public JournalMessageQueue(Journal journal, MessageSerializer<M> serializer) {
+        this(journal, serializer, 64);
+    }
+
+    public JournalMessageQueue(Journal journal, MessageSerializer<M> serializer, int readAhead) {
+        if (readAhead <= 0) {
+            throw new IllegalArgumentException("readAhead=" + readAhead + " should be positive");
+        }
+        this.journal = journal;
+        this.serializer = serializer;
+        this.readAhead = readAhead;
+        this.buffer = new ArrayDeque<Object>(readAhead);
+        JournalInputStream in = journal.getInputStream();
+        if (in.hasMark()) {
+            try {
+                in.reset();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot reset the journal to the last mark", e);
+            }
+        }
+    }
+
+    @Override
+    public <T> void put(T value) {
+        write(Collections.singletonList(value));
+    }
+
+    @Override
+    public <T> boolean offer(T value) {
+        put(value);
+        return true;
+    }
+
+    @Override
+    public <T> boolean put(T value, long timeoutMs) {
+        put(value);
+        return true;
+    }
+
+    /**
+     * Writes all the values to the journal by one write operation.
+     */
+    @Override
+    public <T> void putAll(Collection<? extends T> values) {
+        if (!values.isEmpty()) {
+            write(values);
+        }
+    }
+
+    @Override
+    public Object get(long timeoutMs) {
+        long stopTime = System.currentTimeMillis() + Math.max(timeoutMs, 0L);
+        if (!lockReader(timeoutMs)) {
+            return null;
+        }
+        try {
+            if (buffer.isEmpty()) {
+                fill(stopTime);
+            }
+            return terminated ? null : unwrap(buffer.poll());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> int drain(Collection<? super T> sink, int max, long timeoutMs) {
+        if (max <= 0) {
+            return 0;
+        }
+        long stopTime = System.currentTimeMillis() + Math.max(timeoutMs, 0L);
+        if (!lockReader(timeoutMs)) {
+            return 0;
+        }
+        int count = 0;
+        try {
+            if (buffer.isEmpty()) {
+                fill(stopTime);
+            }
+            while (count < max && !terminated && !buffer.isEmpty()) {
+                sink.add((T) unwrap(buffer.poll()));
+                if (++count < max && buffer.isEmpty()) {
+                    fill(0L);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            readLock.unlock();
+        }
+        return count;
+    }
+
+    @Override
+    public void terminate() {
+        terminated = true;
+    }
+
+    private boolean lockReader(long timeoutMs) {
+        if (terminated) {
+            return false;
+        }
+        try {
+            return timeoutMs > 0L ? readLock.tryLock(timeoutMs, TimeUnit.MILLISECONDS) : readLock.tryLock();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void write(Collection<?> values) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+        try {
+            for (Object value : values) {
+                if (value == null) {
+                    dos.writeInt(NULL_LENGTH);
+                    continue;
+                }
+                byte[] data = serializer.serialize((M) value);
+                dos.writeInt(data.length);
+                dos.write(data);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot serialize the message", e);
+        }
+        checkNotTerminated();
+        Record record = new Record(baos);
+        pending.add(record);
+        writeLock.lock();
+        try {
+            if (!record.written) {
+                writePending();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        if (record.error != null) {
+            throw new IllegalStateException("Cannot write to the journal", record.error);
+        }
+    }
+
+    /**
+     * Writes all the pending records and flushes the journal once. Must be
+     * invoked under the write lock.
+     */
+    private void writePending() {
+        List<Record> records = new ArrayList<Record>();
+        IOException error = null;
+        try {
+            OutputStream out = journal.getOutputStream();
+            for (Record r = pending.poll(); r != null; r = pending.poll()) {
+                records.add(r);
+                r.data.writeTo(out);
+            }
+            out.flush();
+        } catch (IOException e) {
+            error = e;
+        }
+        for (Record r : records) {
+            r.written = true;
+            r.error = error;
+        }
+    }
+
+    /**
+     * Commits the delivered messages by marking the current journal position
+     * and reads the next messages to the buffer. Waits for the first message
+     * till <tt>stopTime</tt>, the next ones are read if they are available
+     * only. If the reading fails, the journal is reset to the mark, so the
+     * messages will be read again.
+     */
+    private void fill(long stopTime) throws InterruptedException {
+        JournalInputStream in = journal.getInputStream();
+        boolean done = false;
+        try {
+            in.mark(Integer.MAX_VALUE);
+            if (readRecord(in, stopTime)) {
+                while (buffer.size() < readAhead && in.available() > 0 && readRecord(in, 0L)) {
+                    // reads available messages
+                }
+            }
+            done = true;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read from the journal", e);
+        } finally {
+            if (!done) {
+                buffer.clear();
+                resetQuietly(in);
+            }
+        }
+    }
+
+    private boolean readRecord(JournalInputStream in, long stopTime) throws IOException, InterruptedException {
+        if (!readFully(in, header, stopTime)) {
+            return false;
+        }
+        int length = ((header[0] & 0xFF) << 24) | ((header[1] & 0xFF) << 16) | ((header[2] & 0xFF) << 8)
+                | (header[3] & 0xFF);
+        if (length == NULL_LENGTH) {
+            buffer.add(NULL);
+            return true;
+        }
+        if (length < 0) {
+            throw new IOException("Corrupted record, length=" + length);
+        }
+        byte[] data = new byte[length];
+        if (!readFully(in, data, Long.MAX_VALUE)) {
+            return false;
+        }
+        M message = serializer.deserialize(data);
+        buffer.add(message == null ? NULL : message);
+        return true;
+    }
+
+    /**
+     * Reads the array, waits for the first byte till <tt>stopTime</tt>. Once
+     * the first byte is read, waits for the rest till the queue is terminated.
+     *
+     * @return <tt>false</tt> if nothing was read till <tt>stopTime</tt> or
+     *         the queue is terminated
+     */
+    private boolean readFully(JournalInputStream in, byte[] b, long stopTime) throws IOException,
+            InterruptedException {
+        int read = 0;
+        while (read < b.length) {
+            long timeout = read == 0 ? stopTime - System.currentTimeMillis() : POLL_INTERVAL_MS;
+            int actual = in.read(b, read, b.length - read, Math.max(0L, Math.min(timeout, POLL_INTERVAL_MS)));
+            if (actual > 0) {
+                read += actual;
+                continue;
+            }
+            if (terminated || (read == 0 && stopTime - System.currentTimeMillis() <= 0L)) {
+                return false;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    private static void resetQuietly(JournalInputStream in) {
+        if (!in.hasMark()) {
+            // the mark is lost, nothing to reset to
+            return;
+        }
+        try {
+            in.reset();
+        } catch (IOException e) {
+            // the journal reports the error
+        }
+    }
+
+    private void checkNotTerminated() {
+        if (terminated) {
+            throw new IllegalStateException("The queue is terminated");
+        }
+    }
+
+    private static Object unwrap(Object value) {
+        return value == NULL ? null : value;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalMessageQueue {readAhead=" + readAhead + ", buffered=" + buffer.size() + ", journal=" + journal
+                + "}";
+    }
+}
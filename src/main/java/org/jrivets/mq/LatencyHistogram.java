@@ -0,0 +1,101 @@
+package org.jrivets.mq;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent histogram of non-negative values with logarithmic buckets: the
+ * values below 8 have own buckets, and every power of two range above is
+ * split to 8 buckets, so a value is reported with 12.5% precision at most.
+ * <p>
+ * The counters are striped by thread, so the threads which record values
+ * don't contend on the same counters, and the stripes are merged on read.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    static final int BUCKETS = (Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray[] stripes;
+
+    private final int mask;
+
+    LatencyHistogram() {
+        int n = Integer.highestOneBit(Math.min(64, Runtime.getRuntime().availableProcessors() * 2) * 2 - 1);
+        this.stripes = new AtomicLongArray[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+        this.mask = n - 1;
+    }
+
+    void record(long value) {
+        int stripe = (int) Thread.currentThread().getId() & mask;
+        stripes[stripe].incrementAndGet(bucketOf(Math.max(0L, value)));
+    }
+
+    /**
+     * Returns the merged bucket counts and resets the histogram.
+     */
+    long[] getAndReset() {
+        long[] result = new long[BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                if (stripe.get(i) != 0L) {
+                    result[i] += stripe.getAndSet(i, 0L);
+                }
+            }
+        }
+        return result;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the greatest value which falls to the bucket
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket & (SUB_BUCKETS - 1);
+        long lowest = (SUB_BUCKETS + sub) << (exp - SUB_BITS);
+        return lowest + (1L << (exp - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Returns the value which is not less than <tt>percentile</tt> percents
+     * of the recorded values, <tt>0</tt> if there are no values.
+     */
+    static long percentile(long[] counts, double percentile) {
+        long total = 0L;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(counts.length - 1);
+    }
+}
@@ -0,0 +1,57 @@
+package org.jrivets.mq;
+
+/**
+ * A message delivered by {@link ReliableMessageQueue#receive(long)}. The
+ * lease should be acknowledged or rejected by the consumer before its
+ * visibility timeout expires, otherwise the message is delivered again.
+ * <p>
+ * Every delivery of the message creates new lease, so an outdated lease of
+ * the redelivered message cannot acknowledge it.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class Lease {
+
+    static final int IN_FLIGHT = 0;
+
+    static final int ACKED = 1;
+
+    static final int RELEASED = 2;
+
+    private final Object message;
+
+    private final int deliveryCount;
+
+    final long tick;
+
+    int state = IN_FLIGHT;
+
+    Lease prev;
+
+    Lease next;
+
+    Lease(Object message, int deliveryCount, long tick) {
+        this.message = message;
+        this.deliveryCount = deliveryCount;
+        this.tick = tick;
+    }
+
+    public Object getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns how many times the message was delivered including this
+     * delivery, so it is <tt>1</tt> for the first delivery
+     */
+    public int getDeliveryCount() {
+        return deliveryCount;
+    }
+
+    @Override
+    public String toString() {
+        return "Lease {message=" + message + ", deliveryCount=" + deliveryCount + ", tick=" + tick + ", state="
+                + state + "}";
+    }
+}
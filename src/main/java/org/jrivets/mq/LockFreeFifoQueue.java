@@ -0,0 +1,351 @@
+package org.jrivets.mq;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jrivets.collection.MpmcRingBuffer;
+import org.jrivets.util.OverflowException;
+
+/**
+ * Bounded lock-free FIFO queue. Messages are stored in {@link MpmcRingBuffer},
+ * so producers and consumers don't lock each other and no node is allocated
+ * per message (the ring slots are reused).
+ * <p>
+ * The lock is used only to park and to signal parked threads: a consumer
+ * which doesn't find a message registers itself in the <tt>waiters</tt>
+ * counter, re-checks the queue under the lock and waits on the condition,
+ * and a producer takes the lock to signal the condition only if the counter
+ * is not zero. A consumer doesn't park while there is a claimed, but not
+ * published yet message, it yields outside the lock until the message is
+ * published or the timeout expires. So the wakeup cannot be lost, and while
+ * nobody is parked neither producers nor consumers touch the lock.
+ * <p>
+ * A consumer which got a message after waiting signals the next waiting
+ * consumer if the queue is not empty, so one signal per batch is enough.
+ * <tt>putAll()</tt> claims room for all the messages at once (see
+ * {@link MpmcRingBuffer#offerAll(Object[], int, int)}), so either all of them
+ * are put or {@link OverflowException} is thrown and none is put.
+ * <tt>drain()</tt> claims the available messages at once as well (see
+ * {@link MpmcRingBuffer#drain(java.util.function.Consumer, int)}) and wakes
+ * up the waiting producers once per batch.
+ * <p>
+ * Producers which wait for free room in <tt>put(value, timeoutMs)</tt> are
+ * parked the same way: they register in the <tt>writers</tt> counter and wait
+ * on the not-full condition, which is signalled by a consumer that took a
+ * message only if the counter is not zero. The producer doesn't park while a
+ * consumer claimed the slot, but doesn't release it yet.
+ * <p>
+ * <tt>put()</tt> and <tt>offer()</tt> fail only if the queue is full: while
+ * the slot is claimed, but not released yet by a consumer, they retry.
+ * <p>
+ * <tt>null</tt> messages are allowed, but <tt>get()</tt> returns
+ * <tt>null</tt> on timeout as well.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+final class LockFreeFifoQueue implements MessageQueue {
+
+    private static final Object NULL = new Object();
+
+    final int maxSize;
+
+    final MpmcRingBuffer<Object> buffer;
+
+    final AtomicInteger waiters = new AtomicInteger();
+
+    final AtomicInteger writers = new AtomicInteger();
+
+    private final Lock lock;
+
+    private final Condition cond;
+
+    private final Condition notFull;
+
+    private volatile boolean terminated;
+
+    LockFreeFifoQueue(int maxSize) {
+        this(maxSize, false);
+    }
+
+    /**
+     * @param maxSize
+     * @param fair
+     *            - whether the parking lock is fair, so the waiting producers
+     *            and consumers are woken up in the arrival order
+     */
+    LockFreeFifoQueue(int maxSize, boolean fair) {
+        this.maxSize = maxSize;
+        this.buffer = new MpmcRingBuffer<Object>(maxSize);
+        this.lock = new ReentrantLock(fair);
+        this.cond = lock.newCondition();
+        this.notFull = lock.newCondition();
+    }
+
+    @Override
+    public <T> void put(T value) throws OverflowException {
+        checkNotTerminated();
+        if (!offerValue(value == null ? NULL : value)) {
+            throw new OverflowException("The size=" + buffer.size() + " cannot be greater than " + maxSize);
+        }
+        notifyReaders();
+    }
+
+    @Override
+    public <T> boolean offer(T value) {
+        checkNotTerminated();
+        if (!offerValue(value == null ? NULL : value)) {
+            return false;
+        }
+        notifyReaders();
+        return true;
+    }
+
+    @Override
+    public <T> boolean put(T value, long timeoutMs) {
+        if (offer(value)) {
+            return true;
+        }
+        if (timeoutMs <= 0L) {
+            return false;
+        }
+        try {
+            if (!awaitRoom(value == null ? NULL : value, TimeUnit.MILLISECONDS.toNanos(timeoutMs))) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        notifyReaders();
+        return true;
+    }
+
+    @Override
+    public <T> void putAll(Collection<? extends T> values) throws OverflowException {
+        checkNotTerminated();
+        if (values.isEmpty()) {
+            return;
+        }
+        Object[] batch = values.toArray();
+        for (int i = 0; i < batch.length; i++) {
+            if (batch[i] == null) {
+                batch[i] = NULL;
+            }
+        }
+        if (!buffer.offerAll(batch, 0, batch.length)) {
+            throw new OverflowException("The size=" + (buffer.size() + batch.length) + " cannot be greater than "
+                    + maxSize);
+        }
+        notifyReaders();
+    }
+
+    @Override
+    public Object get(long timeoutMs) {
+        return unwrap(take(timeoutMs));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> int drain(Collection<? super T> sink, int max, long timeoutMs) {
+        if (max <= 0) {
+            return 0;
+        }
+        Object value = take(timeoutMs);
+        if (value == null) {
+            return 0;
+        }
+        sink.add((T) unwrap(value));
+        if (max == 1) {
+            return 1;
+        }
+        int count = buffer.drain(v -> sink.add((T) unwrap(v)), max - 1);
+        if (count > 0 && writers.get() > 0) {
+            signalWriters(count);
+        }
+        return count + 1;
+    }
+
+    @Override
+    public void terminate() {
+        terminated = true;
+        buffer.clear();
+        lock.lock();
+        try {
+            cond.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        return buffer.size();
+    }
+
+    /**
+     * Returns the wrapped message or <tt>null</tt> if there is no message
+     */
+    private Object take(long timeoutMs) {
+        if (terminated) {
+            return null;
+        }
+        Object value = poll();
+        if (value != null || timeoutMs <= 0L) {
+            return value;
+        }
+        try {
+            return await(TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private Object await(long nanos) throws InterruptedException {
+        long deadline = System.nanoTime() + nanos;
+        waiters.incrementAndGet();
+        try {
+            while (true) {
+                Object value = poll();
+                if (value != null) {
+                    if (waiters.get() > 1 && !buffer.isEmpty()) {
+                        notifyReaders();
+                    }
+                    return value;
+                }
+                if (terminated) {
+                    return null;
+                }
+                nanos = deadline - System.nanoTime();
+                if (nanos <= 0L) {
+                    return null;
+                }
+                if (!buffer.isEmpty()) {
+                    // a producer claimed the slot, but it doesn't publish the message yet
+                    Thread.yield();
+                    continue;
+                }
+                lock.lock();
+                try {
+                    // the producer publishes the message before it checks waiters
+                    if (buffer.isEmpty() && !terminated) {
+                        cond.awaitNanos(nanos);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private boolean awaitRoom(Object value, long nanos) throws InterruptedException {
+        long deadline = System.nanoTime() + nanos;
+        writers.incrementAndGet();
+        try {
+            while (true) {
+                checkNotTerminated();
+                if (buffer.offer(value)) {
+                    if (writers.get() > 1 && buffer.size() < maxSize) {
+                        signalWriters(1);
+                    }
+                    return true;
+                }
+                nanos = deadline - System.nanoTime();
+                if (nanos <= 0L) {
+                    return false;
+                }
+                if (buffer.size() < maxSize) {
+                    // a consumer claimed the slot, but it doesn't release it yet
+                    Thread.yield();
+                    continue;
+                }
+                lock.lock();
+                try {
+                    // the consumer claims the slot before it checks writers
+                    if (buffer.size() >= maxSize && !terminated) {
+                        notFull.awaitNanos(nanos);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            writers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Puts the value if the queue is not full. The ring buffer rejects the
+     * value also while a consumer claimed the slot, but doesn't release it
+     * yet, so the offer is retried until the value is put or the queue is
+     * really full.
+     */
+    private boolean offerValue(Object value) {
+        while (!buffer.offer(value)) {
+            if (buffer.size() >= maxSize) {
+                return false;
+            }
+            Thread.yield();
+        }
+        return true;
+    }
+
+    private Object poll() {
+        Object value = buffer.poll();
+        if (value != null && writers.get() > 0) {
+            signalWriters(1);
+        }
+        return value;
+    }
+
+    /**
+     * Wakes up the producers waiting for room, <tt>freed</tt> is the number of
+     * slots which are freed
+     */
+    private void signalWriters(int freed) {
+        lock.lock();
+        try {
+            if (freed > 1) {
+                notFull.signalAll();
+            } else {
+                notFull.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void notifyReaders() {
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                cond.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void checkNotTerminated() {
+        if (terminated) {
+            throw new IllegalStateException("The queue is terminated");
+        }
+    }
+
+    private static Object unwrap(Object value) {
+        return value == NULL ? null : value;
+    }
+
+    @Override
+    public String toString() {
+        return "LockFreeFifoQueue {maxSize=" + maxSize + ", size=" + buffer.size() + ", waiters=" + waiters.get()
+                + ", writers=" + writers.get() + "}";
+    }
+}
@@ -0,0 +1,105 @@
+package org.jrivets.mq;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * In-process broker of named topics. Every {@link Topic} is split to
+ * partitions, a message is put to the partition which is chosen by the
+ * message key hash, so the messages with the same key are consumed in the
+ * order they were put, and the messages with different keys are consumed in
+ * parallel.
+ * <p>
+ * Consumers subscribe to a topic within a consumer group. Every group
+ * receives all messages of the topic, and the topic partitions are assigned
+ * to the group members, so every message is consumed by one member of the
+ * group. Every partition of a group is backed by its own {@link MessageQueue}
+ * which is created by the broker queue factory, and a consumer is woken up
+ * only when a message is put to the partition assigned to it, so there are no
+ * wakeups of the consumers of other topics or partitions.
+ * <p>
+ * The broker is thread-safe.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class MessageBroker {
+
+    private final Supplier<? extends MessageQueue> queueFactory;
+
+    private final ConcurrentMap<String, Topic> topics = new ConcurrentHashMap<String, Topic>();
+
+    /**
+     * Creates the broker which keeps at most <tt>partitionMaxSize</tt>
+     * messages in a partition of a consumer group
+     */
+    public MessageBroker(int partitionMaxSize) {
+        this(() -> new InMemoryFifoQueue(partitionMaxSize));
+        if (partitionMaxSize <= 0) {
+            throw new IllegalArgumentException("partitionMaxSize=" + partitionMaxSize + " should be positive");
+        }
+    }
+
+    /**
+     * @param queueFactory
+     *            - creates a queue for every partition of every consumer
+     *            group
+     */
+    public MessageBroker(Supplier<? extends MessageQueue> queueFactory) {
+        this.queueFactory = queueFactory;
+    }
+
+    /**
+     * Returns the topic with the name, creates it if it doesn't exist.
+     *
+     * @throws IllegalArgumentException
+     *             if the topic exists and has different number of partitions
+     */
+    public Topic createTopic(String name, int partitions) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("partitions=" + partitions + " should be positive");
+        }
+        Topic topic = topics.computeIfAbsent(name, n -> new Topic(n, partitions, queueFactory));
+        if (topic.getPartitions() != partitions) {
+            throw new IllegalArgumentException("The topic " + name + " exists with " + topic.getPartitions()
+                    + " partitions");
+        }
+        return topic;
+    }
+
+    /**
+     * Returns the topic or <tt>null</tt> if there is no topic with the name
+     */
+    public Topic getTopic(String name) {
+        return topics.get(name);
+    }
+
+    /**
+     * Removes the topic, terminates its queues and closes its consumers.
+     *
+     * @return <tt>false</tt> if there is no topic with the name
+     */
+    public boolean deleteTopic(String name) {
+        Topic topic = topics.remove(name);
+        if (topic == null) {
+            return false;
+        }
+        topic.terminate();
+        return true;
+    }
+
+    /**
+     * Deletes all topics
+     */
+    public void terminate() {
+        for (String name : topics.keySet()) {
+            deleteTopic(name);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MessageBroker {topics=" + topics.keySet() + "}";
+    }
+}
@@ -1,14 +1,91 @@
 package org.jrivets.mq;
 
+import java.util.Collection;
+
 import org.jrivets.util.OverflowException;
 
 
+/**
+ * Producers and consumers treat a terminated queue differently: the methods
+ * which put values throw {@link IllegalStateException}, so a value is never
+ * dropped silently, while the methods which get values return <tt>null</tt>
+ * or <tt>0</tt> as if the queue were empty, so consumers just stop.
+ */
 public interface MessageQueue {
 
+    /**
+     * Puts the value.
+     * 
+     * @param value
+     * @throws OverflowException
+     *             if the queue is full
+     * @throws IllegalStateException
+     *             if the queue is terminated
+     */
     <T> void put(T value) throws OverflowException;
 
+    /**
+     * Puts the value if the queue is not full.
+     * 
+     * @param value
+     * @return <tt>false</tt> if the queue is full
+     * @throws IllegalStateException
+     *             if the queue is terminated
+     */
+    <T> boolean offer(T value);
+
+    /**
+     * Puts the value, waits <tt>timeoutMs</tt> at most till the queue has free
+     * room if it is full. The waiting producers are woken up as soon as a
+     * value is taken from the queue.
+     * 
+     * @param value
+     * @param timeoutMs
+     * @return <tt>false</tt> if the timeout expired or the thread was
+     *         interrupted (the interrupt flag is set then)
+     * @throws IllegalStateException
+     *             if the queue is terminated before or while the producer
+     *             waits
+     */
+    <T> boolean put(T value, long timeoutMs);
+
+    /**
+     * Gets the value, waits <tt>timeoutMs</tt> at most (0 means no wait) if
+     * the queue is empty.
+     * 
+     * @param timeoutMs
+     * @return the value, or <tt>null</tt> if the timeout expired or the queue
+     *         is terminated
+     */
     Object get(long timeoutMs);
 
+    /**
+     * Puts all values in the order of the collection iterator by one queue
+     * operation and notifies the readers once.
+     * 
+     * @param values
+     * @throws OverflowException
+     *             if the queue has no room for all values. An implementation
+     *             may put the values which fit (the collection prefix) before
+     *             throwing the exception.
+     * @throws IllegalStateException
+     *             if the queue is terminated
+     */
+    <T> void putAll(Collection<? extends T> values) throws OverflowException;
+
+    /**
+     * Waits till at least one value is available (<tt>timeoutMs</tt> at most,
+     * 0 means no wait) and moves up to <tt>max</tt> available values to the
+     * sink by one queue operation.
+     * 
+     * @param sink
+     * @param max
+     * @param timeoutMs
+     * @return number of values moved to the sink, 0 if the timeout expired or
+     *         the queue is terminated
+     */
+    <T> int drain(Collection<? super T> sink, int max, long timeoutMs);
+
     /**
      * Terminates the queue content and release all resources borrowed for the
      * queue purposes
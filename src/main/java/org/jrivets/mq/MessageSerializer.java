@@ -0,0 +1,53 @@
+package org.jrivets.mq;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Converts messages to bytes and back for the queues which store messages out
+ * of the heap, like {@link JournalMessageQueue}.
+ *
+ * @author Dmitry Spasibenko
+ *
+ * @param <M>
+ *            - the message type
+ */
+public interface MessageSerializer<M> {
+
+    byte[] serialize(M message) throws IOException;
+
+    M deserialize(byte[] data) throws IOException;
+
+    /**
+     * Returns the serializer which uses the standard java serialization.
+     */
+    static <M extends Serializable> MessageSerializer<M> javaSerialization() {
+        return new JavaMessageSerializer<M>();
+    }
+}
+
+final class JavaMessageSerializer<M extends Serializable> implements MessageSerializer<M> {
+
+    @Override
+    public byte[] serialize(M message) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(message);
+        }
+        return baos.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public M deserialize(byte[] data) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (M) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Cannot deserialize the message", e);
+        }
+    }
+}
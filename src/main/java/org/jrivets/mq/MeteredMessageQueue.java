@@ -0,0 +1,222 @@
+package org.jrivets.mq;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jrivets.util.OverflowException;
+
+/**
+ * {@link MessageQueue} decorator which collects the queue metrics: enqueue
+ * and dequeue rates, current and peak depth, overflow rejections, consumer
+ * wait time and percentiles of the time the messages spend in the queue
+ * (sojourn time). The metrics are returned by <tt>getMetrics()</tt>, see
+ * {@link QueueMetrics}.
+ * <p>
+ * The counters are {@link LongAdder}s and the sojourn time histogram is
+ * striped by thread, so producers and consumers don't contend on them, and
+ * they are merged when the metrics are read. The depth is tracked by one
+ * atomic counter. Every message is put to the underlying queue in a
+ * serializable envelope with its enqueue timestamp, so the underlying queue
+ * can be a persistent one which uses Java serialization (e.g.
+ * {@link JournalMessageQueue} with {@link MessageSerializer#javaSerialization()}
+ * ), but not one with a serializer of the message type. The messages which
+ * were put to the underlying queue directly or by another instance (e.g.
+ * before a restart) are returned as they are and counted as dequeued only.
+ * The depth is not accurate if a failed <tt>putAll()</tt> of the underlying
+ * queue puts a part of the values.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class MeteredMessageQueue implements MessageQueue {
+
+    private final MessageQueue queue;
+
+    private final LongAdder enqueued = new LongAdder();
+
+    private final LongAdder dequeued = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder waitNanos = new LongAdder();
+
+    private final AtomicLong depth = new AtomicLong();
+
+    private final AtomicLong peakDepth = new AtomicLong();
+
+    private final LatencyHistogram sojourn = new LatencyHistogram();
+
+    private final Lock lock = new ReentrantLock();
+
+    private long lastTime = System.nanoTime();
+
+    private long lastEnqueued;
+
+    private long lastDequeued;
+
+    private long lastRejected;
+
+    private long lastWaitNanos;
+
+    private static final class Stamped implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final Object value;
+
+        final long nanos;
+
+        /**
+         * The queue which put the message, <tt>null</tt> if the message was
+         * deserialized, the timestamp is meaningful for the owner only.
+         */
+        final transient MeteredMessageQueue owner;
+
+        Stamped(Object value, long nanos, MeteredMessageQueue owner) {
+            this.value = value;
+            this.nanos = nanos;
+            this.owner = owner;
+        }
+    }
+
+    public MeteredMessageQueue(MessageQueue queue) {
+        this.queue = queue;
+    }
+
+    @Override
+    public <T> void put(T value) throws OverflowException {
+        try {
+            queue.put(new Stamped(value, System.nanoTime(), this));
+        } catch (OverflowException e) {
+            rejected.increment();
+            throw e;
+        }
+        onEnqueued(1);
+    }
+
+    @Override
+    public <T> boolean offer(T value) {
+        return onPut(queue.offer(new Stamped(value, System.nanoTime(), this)));
+    }
+
+    @Override
+    public <T> boolean put(T value, long timeoutMs) {
+        return onPut(queue.put(new Stamped(value, System.nanoTime(), this), timeoutMs));
+    }
+
+    @Override
+    public <T> void putAll(Collection<? extends T> values) throws OverflowException {
+        List<Stamped> stamped = new ArrayList<Stamped>(values.size());
+        long now = System.nanoTime();
+        for (T value : values) {
+            stamped.add(new Stamped(value, now, this));
+        }
+        try {
+            queue.putAll(stamped);
+        } catch (OverflowException e) {
+            rejected.add(stamped.size());
+            throw e;
+        }
+        onEnqueued(stamped.size());
+    }
+
+    @Override
+    public Object get(long timeoutMs) {
+        long start = System.nanoTime();
+        Object value = queue.get(timeoutMs);
+        long now = System.nanoTime();
+        waitNanos.add(now - start);
+        return value == null ? null : onDequeued(value, now);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> int drain(Collection<? super T> sink, int max, long timeoutMs) {
+        List<Object> values = new ArrayList<Object>();
+        long start = System.nanoTime();
+        int count = queue.drain(values, max, timeoutMs);
+        long now = System.nanoTime();
+        waitNanos.add(now - start);
+        for (Object value : values) {
+            sink.add((T) onDequeued(value, now));
+        }
+        return count;
+    }
+
+    @Override
+    public void terminate() {
+        queue.terminate();
+        depth.set(0L);
+    }
+
+    /**
+     * Returns the metrics, the interval metrics are measured since the
+     * previous call.
+     */
+    public QueueMetrics getMetrics() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            long totalEnqueued = enqueued.sum();
+            long totalDequeued = dequeued.sum();
+            long totalRejected = rejected.sum();
+            long totalWaitNanos = waitNanos.sum();
+            long currentDepth = Math.max(0L, depth.get());
+            QueueMetrics result = new QueueMetrics(now - lastTime, totalEnqueued - lastEnqueued, totalDequeued
+                    - lastDequeued, totalEnqueued, totalDequeued, currentDepth, Math.max(currentDepth,
+                    peakDepth.getAndSet(currentDepth)), totalRejected - lastRejected, totalWaitNanos - lastWaitNanos,
+                    sojourn.getAndReset());
+            lastTime = now;
+            lastEnqueued = totalEnqueued;
+            lastDequeued = totalDequeued;
+            lastRejected = totalRejected;
+            lastWaitNanos = totalWaitNanos;
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean onPut(boolean result) {
+        if (result) {
+            onEnqueued(1);
+        } else {
+            rejected.increment();
+        }
+        return result;
+    }
+
+    private void onEnqueued(int count) {
+        enqueued.add(count);
+        long d = depth.addAndGet(count);
+        long peak = peakDepth.get();
+        while (d > peak && !peakDepth.compareAndSet(peak, d)) {
+            peak = peakDepth.get();
+        }
+    }
+
+    private Object onDequeued(Object value, long now) {
+        dequeued.increment();
+        if (!(value instanceof Stamped)) {
+            return value;
+        }
+        Stamped stamped = (Stamped) value;
+        if (stamped.owner == this) {
+            depth.decrementAndGet();
+            sojourn.record(TimeUnit.NANOSECONDS.toMicros(now - stamped.nanos));
+        }
+        return stamped.value;
+    }
+
+    @Override
+    public String toString() {
+        return "MeteredMessageQueue {depth=" + depth.get() + ", queue=" + queue + "}";
+    }
+}
@@ -0,0 +1,142 @@
+package org.jrivets.mq;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import org.jrivets.util.OverflowException;
+
+/**
+ * Bounded queue with a small fixed number of priority lanes. Every lane is a
+ * FIFO queue with a weight, lane <tt>0</tt> has the highest priority, and the
+ * messages put by <tt>put()</tt>, <tt>offer()</tt> and <tt>putAll()</tt> go
+ * to the lowest priority (last) lane.
+ * <p>
+ * The lanes are drained in weighted round-robin: in every round a lane
+ * delivers up to its weight messages, the lanes with higher priority first,
+ * and the new round starts when all non-empty lanes spent their weights. So a
+ * busy high priority lane doesn't starve the lower ones, and the lanes share
+ * the consumers in proportion to their weights.
+ * <p>
+ * The size limit is common for all lanes, the size limit, waiting and
+ * termination behave the same way as {@link InMemoryFifoQueue} ones.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class PriorityMessageQueue extends AbstractBlockingQueue {
+
+    private static final Object NULL = new Object();
+
+    private final int[] weights;
+
+    private final int[] credits;
+
+    private final ArrayDeque<Object>[] lanes;
+
+    /**
+     * @param maxSize
+     * @param weights
+     *            - the lane weights, the number of lanes is the number of
+     *            weights
+     */
+    @SuppressWarnings("unchecked")
+    public PriorityMessageQueue(int maxSize, int... weights) {
+        super(maxSize, false);
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize=" + maxSize + " should be positive");
+        }
+        if (weights.length == 0) {
+            throw new IllegalArgumentException("At least one lane weight should be provided");
+        }
+        for (int weight : weights) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("weight=" + weight + " should be positive");
+            }
+        }
+        this.weights = weights.clone();
+        this.credits = weights.clone();
+        this.lanes = new ArrayDeque[weights.length];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ArrayDeque<Object>();
+        }
+    }
+
+    public int getLanes() {
+        return lanes.length;
+    }
+
+    /**
+     * Puts the value to the lane of the priority.
+     *
+     * @throws OverflowException
+     *             if the queue is full
+     * @throws IllegalArgumentException
+     *             if there is no lane with the priority
+     */
+    public <T> void putWithPriority(T value, int priority) throws OverflowException {
+        putWith(value, checkPriority(priority));
+    }
+
+    /**
+     * Puts the value to the lane of the priority if the queue is not full.
+     *
+     * @return <tt>false</tt> if the queue is full
+     * @throws IllegalArgumentException
+     *             if there is no lane with the priority
+     */
+    public <T> boolean offerWithPriority(T value, int priority) {
+        return offerWith(value, checkPriority(priority));
+    }
+
+    @Override
+    long defaultAttribute() {
+        return lanes.length - 1;
+    }
+
+    @Override
+    void enqueue(Object value, long priority) {
+        lanes[(int) priority].add(value == null ? NULL : value);
+    }
+
+    @Override
+    Object dequeue() {
+        while (true) {
+            for (int i = 0; i < lanes.length; i++) {
+                if (credits[i] > 0 && !lanes[i].isEmpty()) {
+                    credits[i]--;
+                    Object value = lanes[i].poll();
+                    return value == NULL ? null : value;
+                }
+            }
+            // non-empty lanes spent their weights, new round
+            System.arraycopy(weights, 0, credits, 0, weights.length);
+        }
+    }
+
+    @Override
+    long readyDelay(long nowMs) {
+        return size > 0 ? 0L : Long.MAX_VALUE;
+    }
+
+    @Override
+    void clean() {
+        for (ArrayDeque<Object> lane : lanes) {
+            lane.clear();
+        }
+        System.arraycopy(weights, 0, credits, 0, weights.length);
+    }
+
+    private int checkPriority(int priority) {
+        if (priority < 0 || priority >= lanes.length) {
+            throw new IllegalArgumentException("priority=" + priority + " should be in [0.." + (lanes.length - 1)
+                    + "]");
+        }
+        return priority;
+    }
+
+    @Override
+    public String toString() {
+        return "PriorityMessageQueue {maxSize=" + maxSize + ", size=" + size + ", weights=" + Arrays.toString(weights)
+                + ", readers=" + readers + ", writers=" + writers + "}";
+    }
+}
@@ -0,0 +1,128 @@
+package org.jrivets.mq;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of {@link MeteredMessageQueue} metrics. The rates,
+ * rejections, wait time, peak depth and sojourn time percentiles are
+ * measured over the interval between two consecutive
+ * <tt>getMetrics()</tt> calls, the totals and the current depth are measured
+ * since the queue creation.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class QueueMetrics {
+
+    private final long intervalNanos;
+
+    private final long enqueued;
+
+    private final long dequeued;
+
+    private final long totalEnqueued;
+
+    private final long totalDequeued;
+
+    private final long depth;
+
+    private final long peakDepth;
+
+    private final long overflowRejections;
+
+    private final long consumerWaitNanos;
+
+    private final long[] sojournMicros;
+
+    QueueMetrics(long intervalNanos, long enqueued, long dequeued, long totalEnqueued, long totalDequeued,
+            long depth, long peakDepth, long overflowRejections, long consumerWaitNanos, long[] sojournMicros) {
+        this.intervalNanos = intervalNanos;
+        this.enqueued = enqueued;
+        this.dequeued = dequeued;
+        this.totalEnqueued = totalEnqueued;
+        this.totalDequeued = totalDequeued;
+        this.depth = depth;
+        this.peakDepth = peakDepth;
+        this.overflowRejections = overflowRejections;
+        this.consumerWaitNanos = consumerWaitNanos;
+        this.sojournMicros = sojournMicros;
+    }
+
+    public long getIntervalMs() {
+        return TimeUnit.NANOSECONDS.toMillis(intervalNanos);
+    }
+
+    /**
+     * Returns number of messages put per second
+     */
+    public double getEnqueueRate() {
+        return rate(enqueued);
+    }
+
+    /**
+     * Returns number of messages taken per second
+     */
+    public double getDequeueRate() {
+        return rate(dequeued);
+    }
+
+    public long getTotalEnqueued() {
+        return totalEnqueued;
+    }
+
+    public long getTotalDequeued() {
+        return totalDequeued;
+    }
+
+    /**
+     * Returns number of messages in the queue
+     */
+    public long getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns max number of messages in the queue during the interval
+     */
+    public long getPeakDepth() {
+        return peakDepth;
+    }
+
+    /**
+     * Returns number of put attempts rejected because the queue was full
+     */
+    public long getOverflowRejections() {
+        return overflowRejections;
+    }
+
+    /**
+     * Returns the total time the consumers spent in the queue waiting for
+     * messages
+     */
+    public long getConsumerWaitTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(consumerWaitNanos);
+    }
+
+    /**
+     * Returns the time in microseconds which is not less than
+     * <tt>percentile</tt> percents of the messages taken during the interval
+     * spent in the queue, <tt>0</tt> if no messages were taken.
+     */
+    public long getSojournPercentileMicros(double percentile) {
+        return LatencyHistogram.percentile(sojournMicros, percentile);
+    }
+
+    private double rate(long count) {
+        return intervalNanos > 0L ? count * 1e9 / intervalNanos : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("{intervalMs=").append(getIntervalMs()).append(", enqueueRate=")
+                .append(getEnqueueRate()).append(", dequeueRate=").append(getDequeueRate()).append(", depth=")
+                .append(depth).append(", peakDepth=").append(peakDepth).append(", overflowRejections=")
+                .append(overflowRejections).append(", consumerWaitTimeMs=").append(getConsumerWaitTimeMs())
+                .append(", sojournP50=").append(getSojournPercentileMicros(50.0)).append("us, sojournP99=")
+                .append(getSojournPercentileMicros(99.0)).append("us}").toString();
+    }
+}
@@ -0,0 +1,333 @@
+package org.jrivets.mq;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jrivets.util.OverflowException;
+
+/**
+ * {@link MessageQueue} with acknowledgements. <tt>receive()</tt> returns a
+ * {@link Lease} of the message instead of removing the message for good; the
+ * consumer acknowledges the processed message by <tt>ack()</tt> or returns
+ * it to the queue by <tt>nack()</tt>. If the lease is neither acknowledged,
+ * nor rejected within the visibility timeout (the consumer crashed or hung),
+ * the message is delivered again. The redelivered messages are delivered
+ * before the messages of the underlying queue.
+ * <p>
+ * The leases in flight are kept in a timing wheel: the time is split to ticks
+ * of <tt>visibilityTimeout / 64</tt> milliseconds, and a lease is linked to
+ * the wheel bucket of the tick it expires in. All leases have the same
+ * timeout, so one wheel turn covers them all, and adding, acknowledging and
+ * expiring a lease costs O(1) regardless of the number of leases in flight.
+ * The wheel is advanced by the consumers in <tt>receive()</tt>, a waiting
+ * consumer wakes up every tick to pick up the expired leases, so a message is
+ * redelivered one tick after its lease expiration at most.
+ * <p>
+ * <tt>get()</tt> and <tt>drain()</tt> acknowledge the received messages
+ * immediately.
+ * <p>
+ * The messages are put to the underlying queue in a serializable envelope
+ * with the delivery count, so the underlying queue can be an in-memory one or
+ * a persistent one which uses Java serialization (e.g.
+ * {@link JournalMessageQueue} with {@link MessageSerializer#javaSerialization()}
+ * ), but not one with a serializer of the message type. The messages which
+ * were put to the underlying queue directly are received as first
+ * deliveries. The leases in flight and the messages to be redelivered are
+ * kept in memory only.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class ReliableMessageQueue implements MessageQueue {
+
+    private static final int TICKS_PER_TIMEOUT = 64;
+
+    private final MessageQueue queue;
+
+    private final long visibilityTimeoutMs;
+
+    private final long tickMs;
+
+    private final Lease[] wheel;
+
+    private final int mask;
+
+    private final Lock lock = new ReentrantLock();
+
+    private final ArrayDeque<Envelope> redelivered = new ArrayDeque<Envelope>();
+
+    private long lastTick;
+
+    private int inFlight;
+
+    private volatile boolean terminated;
+
+    /**
+     * @param maxSize
+     *            - max number of messages which are not delivered yet
+     * @param visibilityTimeoutMs
+     */
+    public ReliableMessageQueue(int maxSize, long visibilityTimeoutMs) {
+        this(new InMemoryFifoQueue(maxSize), visibilityTimeoutMs);
+    }
+
+    /**
+     * @param queue
+     *            - the queue which keeps the messages which are not delivered
+     *            yet
+     * @param visibilityTimeoutMs
+     */
+    public ReliableMessageQueue(MessageQueue queue, long visibilityTimeoutMs) {
+        if (visibilityTimeoutMs <= 0L) {
+            throw new IllegalArgumentException("visibilityTimeoutMs=" + visibilityTimeoutMs + " should be positive");
+        }
+        this.queue = queue;
+        this.visibilityTimeoutMs = visibilityTimeoutMs;
+        this.tickMs = Math.max(1L, visibilityTimeoutMs / TICKS_PER_TIMEOUT);
+        int buckets = Integer.highestOneBit((int) (visibilityTimeoutMs / tickMs + 2) * 2 - 1);
+        this.wheel = new Lease[buckets];
+        this.mask = buckets - 1;
+        this.lastTick = System.currentTimeMillis() / tickMs;
+    }
+
+    @Override
+    public <T> void put(T value) throws OverflowException {
+        queue.put(new Envelope(value, 0));
+    }
+
+    @Override
+    public <T> boolean offer(T value) {
+        return queue.offer(new Envelope(value, 0));
+    }
+
+    @Override
+    public <T> boolean put(T value, long timeoutMs) {
+        return queue.put(new Envelope(value, 0), timeoutMs);
+    }
+
+    @Override
+    public <T> void putAll(Collection<? extends T> values) throws OverflowException {
+        List<Envelope> envelopes = new ArrayList<Envelope>(values.size());
+        for (T value : values) {
+            envelopes.add(new Envelope(value, 0));
+        }
+        queue.putAll(envelopes);
+    }
+
+    /**
+     * Receives a message, waits <tt>timeoutMs</tt> at most if there are no
+     * messages. The message is invisible for other consumers till the
+     * returned lease is acknowledged, rejected or expired.
+     *
+     * @return the message lease or <tt>null</tt> if the timeout expired, the
+     *         queue is terminated or the thread was interrupted (the interrupt
+     *         flag is set then)
+     */
+    public Lease receive(long timeoutMs) {
+        long stopTime = System.currentTimeMillis() + timeoutMs;
+        while (!terminated) {
+            Envelope envelope = pollRedelivered();
+            long rest = stopTime - System.currentTimeMillis();
+            if (envelope == null) {
+                envelope = toEnvelope(queue.get(Math.min(rest, tickMs)));
+            }
+            if (envelope != null) {
+                return lease(envelope);
+            }
+            if (rest <= 0L || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Acknowledges the message, it will not be delivered again.
+     *
+     * @return <tt>false</tt> if the lease is already acknowledged, rejected
+     *         or expired
+     */
+    public boolean ack(Lease lease) {
+        lock.lock();
+        try {
+            return release(lease, Lease.ACKED);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rejects the message, it will be delivered again without waiting for
+     * the visibility timeout.
+     *
+     * @return <tt>false</tt> if the lease is already acknowledged, rejected
+     *         or expired
+     */
+    public boolean nack(Lease lease) {
+        lock.lock();
+        try {
+            if (!release(lease, Lease.RELEASED)) {
+                return false;
+            }
+            redelivered.add(new Envelope(lease.getMessage(), lease.getDeliveryCount()));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns number of the leases which are not acknowledged, rejected or
+     * expired yet.
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Object get(long timeoutMs) {
+        Lease lease = receive(timeoutMs);
+        if (lease == null) {
+            return null;
+        }
+        ack(lease);
+        return lease.getMessage();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> int drain(Collection<? super T> sink, int max, long timeoutMs) {
+        int count = 0;
+        while (count < max) {
+            Lease lease = receive(count == 0 ? timeoutMs : 0L);
+            if (lease == null) {
+                break;
+            }
+            ack(lease);
+            sink.add((T) lease.getMessage());
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void terminate() {
+        terminated = true;
+        queue.terminate();
+        lock.lock();
+        try {
+            for (int i = 0; i < wheel.length; i++) {
+                while (wheel[i] != null) {
+                    release(wheel[i], Lease.RELEASED);
+                }
+            }
+            redelivered.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Lease lease(Envelope envelope) {
+        long tick = (System.currentTimeMillis() + visibilityTimeoutMs + tickMs - 1) / tickMs;
+        Lease lease = new Lease(envelope.message, envelope.deliveries + 1, tick);
+        lock.lock();
+        try {
+            int idx = (int) (tick & mask);
+            lease.next = wheel[idx];
+            if (lease.next != null) {
+                lease.next.prev = lease;
+            }
+            wheel[idx] = lease;
+            inFlight++;
+            return lease;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the leases expired since the last call to the redelivery queue
+     * and returns the first message to be redelivered.
+     */
+    private Envelope pollRedelivered() {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis() / tickMs;
+            long from = Math.max(lastTick + 1, now - mask);
+            for (long tick = from; tick <= now; tick++) {
+                Lease lease = wheel[(int) (tick & mask)];
+                while (lease != null) {
+                    Lease next = lease.next;
+                    if (lease.tick <= now) {
+                        release(lease, Lease.RELEASED);
+                        redelivered.add(new Envelope(lease.getMessage(), lease.getDeliveryCount()));
+                    }
+                    lease = next;
+                }
+            }
+            lastTick = Math.max(lastTick, now);
+            return redelivered.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Envelope toEnvelope(Object value) {
+        if (value == null || value instanceof Envelope) {
+            return (Envelope) value;
+        }
+        return new Envelope(value, 0);
+    }
+
+    /**
+     * Unlinks the lease from the wheel, should be called under the lock.
+     */
+    private boolean release(Lease lease, int state) {
+        if (lease.state != Lease.IN_FLIGHT) {
+            return false;
+        }
+        if (lease.prev != null) {
+            lease.prev.next = lease.next;
+        } else {
+            wheel[(int) (lease.tick & mask)] = lease.next;
+        }
+        if (lease.next != null) {
+            lease.next.prev = lease.prev;
+        }
+        lease.prev = null;
+        lease.next = null;
+        lease.state = state;
+        inFlight--;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "ReliableMessageQueue {visibilityTimeoutMs=" + visibilityTimeoutMs + ", tickMs=" + tickMs
+                + ", inFlight=" + inFlight + ", redelivered=" + redelivered.size() + ", queue=" + queue + "}";
+    }
+
+    private static final class Envelope implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final Object message;
+
+        final int deliveries;
+
+        Envelope(Object message, int deliveries) {
+            this.message = message;
+            this.deliveries = deliveries;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.jrivets.mq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.jrivets.util.OverflowException;
+
+/**
+ * Named partitioned topic of {@link MessageBroker}. A message is put to the
+ * partition chosen by its key hash (messages with <tt>null</tt> key are
+ * distributed round-robin), and it is copied to every consumer group of the
+ * topic. The messages which are put when the topic has no consumer groups are
+ * not delivered.
+ * <p>
+ * Partitions of a group are assigned to the group members round-robin in the
+ * order the members joined, and they are reassigned when a member joins or
+ * leaves the group. The partitions of a group without members keep the
+ * messages till a member joins.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class Topic {
+
+    private final String name;
+
+    private final int partitions;
+
+    private final Supplier<? extends MessageQueue> queueFactory;
+
+    private final AtomicInteger nextPartition = new AtomicInteger();
+
+    private final Lock lock = new ReentrantLock();
+
+    private volatile Group[] groups = new Group[0];
+
+    private volatile boolean terminated;
+
+    Topic(String name, int partitions, Supplier<? extends MessageQueue> queueFactory) {
+        this.name = name;
+        this.partitions = partitions;
+        this.queueFactory = queueFactory;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Returns the partition index for the key
+     */
+    public int partitionOf(Object key) {
+        if (key == null) {
+            return (nextPartition.getAndIncrement() & Integer.MAX_VALUE) % partitions;
+        }
+        int h = key.hashCode();
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % partitions;
+    }
+
+    /**
+     * Puts the value to the key partition of every consumer group.
+     *
+     * @throws OverflowException
+     *             if the partition queue of a group is full, the groups
+     *             before it receive the value then
+     * @throws IllegalStateException
+     *             if the topic is deleted
+     */
+    public <T> void put(Object key, T value) throws OverflowException {
+        if (terminated) {
+            throw new IllegalStateException("The topic " + name + " is deleted");
+        }
+        int partition = partitionOf(key);
+        for (Group group : groups) {
+            group.queues[partition].put(value);
+            TopicConsumer owner = group.owners[partition];
+            if (owner != null) {
+                owner.notifyConsumer();
+            }
+        }
+    }
+
+    /**
+     * Joins new consumer to the group, creates the group if it doesn't exist.
+     * The topic partitions are reassigned between the group members then.
+     */
+    public TopicConsumer subscribe(String groupName) {
+        lock.lock();
+        try {
+            if (terminated) {
+                throw new IllegalStateException("The topic " + name + " is deleted");
+            }
+            Group group = getGroup(groupName);
+            if (group == null) {
+                group = new Group(groupName, newQueues());
+                Group[] newGroups = Arrays.copyOf(groups, groups.length + 1);
+                newGroups[groups.length] = group;
+                groups = newGroups;
+            }
+            TopicConsumer consumer = new TopicConsumer(this, groupName, group.queues);
+            group.members.add(consumer);
+            rebalance(group);
+            return consumer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns names of the consumer groups
+     */
+    public List<String> getGroups() {
+        List<String> result = new ArrayList<String>();
+        for (Group group : groups) {
+            result.add(group.name);
+        }
+        return result;
+    }
+
+    void unsubscribe(TopicConsumer consumer) {
+        lock.lock();
+        try {
+            Group group = getGroup(consumer.getGroup());
+            if (group != null && group.members.remove(consumer)) {
+                rebalance(group);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void terminate() {
+        lock.lock();
+        try {
+            terminated = true;
+            for (Group group : groups) {
+                for (MessageQueue queue : group.queues) {
+                    queue.terminate();
+                }
+                for (TopicConsumer consumer : group.members) {
+                    consumer.terminate();
+                }
+                group.members.clear();
+            }
+            groups = new Group[0];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private MessageQueue[] newQueues() {
+        MessageQueue[] queues = new MessageQueue[partitions];
+        for (int i = 0; i < partitions; i++) {
+            queues[i] = queueFactory.get();
+        }
+        return queues;
+    }
+
+    private Group getGroup(String groupName) {
+        for (Group group : groups) {
+            if (group.name.equals(groupName)) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    private void rebalance(Group group) {
+        int members = group.members.size();
+        TopicConsumer[] owners = new TopicConsumer[partitions];
+        for (int i = 0; i < members; i++) {
+            TopicConsumer consumer = group.members.get(i);
+            int[] assigned = new int[(partitions - i + members - 1) / members];
+            for (int j = 0; j < assigned.length; j++) {
+                assigned[j] = i + j * members;
+                owners[assigned[j]] = consumer;
+            }
+            consumer.assign(assigned);
+        }
+        group.owners = owners;
+    }
+
+    @Override
+    public String toString() {
+        return "Topic {name=" + name + ", partitions=" + partitions + ", groups=" + getGroups() + "}";
+    }
+
+    private static final class Group {
+
+        final String name;
+
+        final MessageQueue[] queues;
+
+        final List<TopicConsumer> members = new ArrayList<TopicConsumer>();
+
+        volatile TopicConsumer[] owners;
+
+        Group(String name, MessageQueue[] queues) {
+            this.name = name;
+            this.queues = queues;
+            this.owners = new TopicConsumer[queues.length];
+        }
+    }
+}
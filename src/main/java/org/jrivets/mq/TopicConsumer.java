@@ -0,0 +1,163 @@
+package org.jrivets.mq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Member of a {@link Topic} consumer group, it consumes the messages of the
+ * partitions assigned to it. The partitions are polled round-robin, so a busy
+ * partition doesn't starve the others.
+ * <p>
+ * A consumer which doesn't find a message registers itself as waiting, and
+ * the producers which put a message to one of its partitions signal it only
+ * then. The consumer re-checks its partitions after the registration, so the
+ * wakeup cannot be lost.
+ * <p>
+ * The consumer is supposed to be used by one thread, <tt>close()</tt> can be
+ * called from any thread.
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class TopicConsumer {
+
+    private final Topic topic;
+
+    private final String group;
+
+    private final MessageQueue[] queues;
+
+    private final List<Object> holder = new ArrayList<Object>(1);
+
+    private final Lock lock = new ReentrantLock();
+
+    private final Condition cond = lock.newCondition();
+
+    private volatile int[] partitions = new int[0];
+
+    private volatile boolean waiting;
+
+    private volatile boolean closed;
+
+    private int next;
+
+    TopicConsumer(Topic topic, String group, MessageQueue[] queues) {
+        this.topic = topic;
+        this.group = group;
+        this.queues = queues;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * Returns indexes of the topic partitions assigned to the consumer
+     */
+    public int[] getPartitions() {
+        return partitions.clone();
+    }
+
+    /**
+     * Returns a message from one of the assigned partitions, waits
+     * <tt>timeoutMs</tt> at most if there are no messages.
+     *
+     * @return the message or <tt>null</tt> if the timeout expired, the
+     *         consumer is closed or the thread was interrupted (the interrupt
+     *         flag is set then)
+     */
+    public Object get(long timeoutMs) {
+        if (closed) {
+            return null;
+        }
+        if (poll() || timeoutMs <= 0L) {
+            return take();
+        }
+        long stopTime = System.currentTimeMillis() + timeoutMs;
+        lock.lock();
+        waiting = true;
+        try {
+            while (!closed) {
+                if (poll()) {
+                    break;
+                }
+                long rest = stopTime - System.currentTimeMillis();
+                if (rest <= 0L) {
+                    break;
+                }
+                cond.await(rest, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting = false;
+            lock.unlock();
+        }
+        return take();
+    }
+
+    /**
+     * Leaves the consumer group, the consumer partitions are reassigned to
+     * the other group members.
+     */
+    public void close() {
+        if (!closed) {
+            topic.unsubscribe(this);
+            terminate();
+        }
+    }
+
+    void assign(int[] partitions) {
+        this.partitions = partitions;
+        notifyConsumer();
+    }
+
+    void notifyConsumer() {
+        if (waiting) {
+            lock.lock();
+            try {
+                cond.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    void terminate() {
+        closed = true;
+        partitions = new int[0];
+        lock.lock();
+        try {
+            cond.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean poll() {
+        int[] parts = partitions;
+        for (int i = 0; i < parts.length; i++) {
+            int idx = (next + i) % parts.length;
+            if (queues[parts[idx]].drain(holder, 1, 0L) > 0) {
+                next = idx + 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object take() {
+        return holder.isEmpty() ? null : holder.remove(0);
+    }
+
+    @Override
+    public String toString() {
+        return "TopicConsumer {topic=" + topic.getName() + ", group=" + group + ", partitions="
+                + Arrays.toString(partitions) + ", waiting=" + waiting + "}";
+    }
+}
@@ -0,0 +1,103 @@
+package org.jrivets.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Factory of executors and thread factories which use virtual threads when
+ * the runtime supports them, and platform threads otherwise. The virtual
+ * threads API is resolved reflectively because the library targets Java 8.
+ * <p>
+ * The blocking code of the library (queues, channels and the journal) waits
+ * on {@link java.util.concurrent.locks.Lock} conditions rather than on object
+ * monitors, so a virtual thread which waits there unmounts from its carrier,
+ * and one virtual thread per consumer doesn't starve the carrier pool. For
+ * example:
+ *
+ * <pre>
+ * EventChannel channel = new SerialEventChannel(&quot;events&quot;, 100, VirtualThreads.newVirtualThreadPerTaskExecutor());
+ * </pre>
+ *
+ * @author Dmitry Spasibenko
+ *
+ */
+public final class VirtualThreads extends StaticSingleton {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR;
+
+    private static final Method OF_VIRTUAL;
+
+    private static final Method BUILDER_NAME;
+
+    private static final Method BUILDER_FACTORY;
+
+    static {
+        Method newExecutor = null;
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        try {
+            newExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            // the preview API of Java 19 and 20 exists, but throws if it is not enabled
+            factory.invoke(name.invoke(ofVirtual.invoke(null), "probe", 0L));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            newExecutor = null;
+        }
+        NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = newExecutor;
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_FACTORY = factory;
+    }
+
+    /**
+     * Returns whether the runtime supports virtual threads
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Returns the executor which starts new virtual thread for every task. If
+     * virtual threads are not supported, the executor which starts (or
+     * reuses idle) platform threads for the tasks is returned.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            return Executors.newCachedThreadPool();
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create virtual thread per task executor", e);
+        }
+    }
+
+    /**
+     * Returns the factory of virtual threads named <tt>prefix</tt> followed
+     * by the thread number. If virtual threads are not supported, the factory
+     * creates daemon platform threads.
+     */
+    public static ThreadFactory newThreadFactory(String prefix) {
+        if (!isSupported()) {
+            final AtomicLong counter = new AtomicLong();
+            return r -> {
+                Thread t = new Thread(r, prefix + counter.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            };
+        }
+        try {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create virtual thread factory", e);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package org.jrivets.util.container;
 
-import org.jrivets.collection.RingBuffer;
+import org.jrivets.collection.LongRingBuffer;
 
 /**
  * Buffer based objects counter implementation.
@@ -16,20 +16,11 @@ import org.jrivets.collection.RingBuffer;
  */
 public class SequentialBucketBufferCounter {
 
-    private final RingBuffer<VHolder> buffer;
+    private final LongRingBuffer buckets;
 
-    private long count;
-
-    private static class VHolder {
-
-        final long bucket;
-
-        long count;
+    private final LongRingBuffer counts;
 
-        VHolder(long bucket) {
-            this.bucket = bucket;
-        }
-    }
+    private long count;
 
     /**
      * Constructor
@@ -38,7 +29,8 @@ public class SequentialBucketBufferCounter {
      *            - set maximum number of buckets allowed in the buffer
      */
     public SequentialBucketBufferCounter(int backetsCount) {
-        buffer = new RingBuffer<VHolder>(backetsCount);
+        buckets = new LongRingBuffer(backetsCount);
+        counts = new LongRingBuffer(backetsCount);
     }
 
     /**
@@ -53,15 +45,17 @@ public class SequentialBucketBufferCounter {
      *            - amount should be added to the bucket
      */
     public void add(long bucket, long count) {
-        if (buffer.size() > 0 && buffer.last().bucket > bucket) {
+        if (buckets.size() > 0 && buckets.last() > bucket) {
             throw new IllegalArgumentException("bucket=" + bucket + " should be equal or bigger than existing one "
-                    + buffer.last().bucket);
+                    + buckets.last());
         }
         sweep(bucket);
-        if (buffer.size() == 0 || buffer.last().bucket < bucket) {
-            buffer.add(new VHolder(bucket));
+        if (buckets.size() == 0 || buckets.last() < bucket) {
+            buckets.add(bucket);
+            counts.add(0L);
         }
-        buffer.last().count += count;
+        int lastIdx = counts.size() - 1;
+        counts.set(lastIdx, counts.get(lastIdx) + count);
         this.count += count;
     }
 
@@ -73,9 +67,10 @@ public class SequentialBucketBufferCounter {
     }
 
     private void sweep(long lastBacket) {
-        long headAcceptable = lastBacket - buffer.capacity() + 1;
-        while (buffer.size() > 0 && buffer.element().bucket < headAcceptable) {
-            count -= buffer.remove().count;
+        long headAcceptable = lastBacket - buckets.capacity() + 1;
+        while (buckets.size() > 0 && buckets.element() < headAcceptable) {
+            buckets.remove();
+            count -= counts.remove();
         }
     }
 }
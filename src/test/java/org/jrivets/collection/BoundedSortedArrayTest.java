@@ -0,0 +1,84 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class BoundedSortedArrayTest {
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void zeroK() {
+        SortedArray.bounded(0);
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void emptyWorst() {
+        SortedArray.<Integer> bounded(2).worst();
+    }
+
+    @Test
+    public void topK() {
+        BoundedSortedArray<Integer> top = SortedArray.bounded(3);
+        assertTrue(top.add(5));
+        assertTrue(top.add(1));
+        assertTrue(top.add(3));
+        assertEquals(top.worst().intValue(), 1);
+        assertFalse(top.add(0));
+        assertFalse(top.add(1));
+        assertTrue(top.add(4));
+        assertEquals(top.size(), 3);
+        assertEquals(top.capacity(), 3);
+        assertEquals(top.toArray(), new Object[] { 3, 4, 5 });
+        assertEquals(top.get(2).intValue(), 5);
+        assertEquals(top.worst().intValue(), 3);
+    }
+
+    @Test
+    public void comparator() {
+        BoundedSortedArray<Integer> bottom = SortedArray.bounded(2, Comparator.<Integer> reverseOrder());
+        for (int i = 0; i < 10; i++) {
+            bottom.add(i);
+        }
+        assertEquals(bottom.toArray(), new Object[] { 1, 0 });
+    }
+
+    @Test
+    public void remove() {
+        BoundedSortedArray<Integer> top = SortedArray.bounded(4);
+        for (int i = 0; i < 10; i++) {
+            top.add(i);
+        }
+        assertTrue(top.remove(7));
+        assertFalse(top.remove(2));
+        assertEquals(top.toArray(), new Object[] { 6, 8, 9 });
+        assertTrue(top.add(1));
+        assertEquals(top.worst().intValue(), 1);
+        top.clear();
+        assertTrue(top.isEmpty());
+    }
+
+    @Test
+    public void random() {
+        Random rnd = new Random(7);
+        BoundedSortedArray<Integer> top = SortedArray.bounded(100);
+        List<Integer> all = new ArrayList<Integer>();
+        for (int i = 0; i < 10000; i++) {
+            int v = rnd.nextInt(100000);
+            top.add(v);
+            all.add(v);
+            if (i % 1000 == 0) {
+                top.iterator();
+            }
+        }
+        Collections.sort(all);
+        List<Integer> result = new ArrayList<Integer>(top);
+        assertEquals(result, all.subList(all.size() - 100, all.size()));
+    }
+}
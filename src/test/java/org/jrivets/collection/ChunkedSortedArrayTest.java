@@ -0,0 +1,159 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class ChunkedSortedArrayTest {
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void wrongBlockSize() {
+        new ChunkedSortedArray<Integer>(null, 3);
+    }
+
+    @Test
+    public void add() {
+        ChunkedSortedArray<Integer> sa = new ChunkedSortedArray<Integer>(null, 4);
+        for (int i = 20; i > 0; i--) {
+            sa.add(i);
+        }
+        assertEquals(sa.size(), 20);
+        assertTrue(sa.blockCount() > 1);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(sa.get(i).intValue(), i + 1);
+            assertEquals(sa.getIndexOf(i + 1), i);
+        }
+        assertEquals(sa.getIndexOf(0), -1);
+        assertEquals(sa.getIndexOf(21), -21);
+    }
+
+    @Test
+    public void comparator() {
+        ChunkedSortedArray<Integer> sa = new ChunkedSortedArray<Integer>(Comparator.reverseOrder(), 4);
+        for (int i = 0; i < 10; i++) {
+            sa.add(i);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(sa.get(i).intValue(), 9 - i);
+        }
+    }
+
+    @Test
+    public void notFoundInsertionPoint() {
+        ChunkedSortedArray<Integer> sa = new ChunkedSortedArray<Integer>(null, 4);
+        for (int i = 0; i < 20; i++) {
+            sa.add(i * 2);
+        }
+        for (int i = 0; i < 20; i++) {
+            assertEquals(sa.getIndexOf(i * 2 + 1), -(i + 1) - 1);
+        }
+        assertTrue(sa.contains(4));
+        assertFalse(sa.contains(5));
+    }
+
+    @Test
+    public void removeBefore() {
+        ChunkedSortedArray<Integer> sa = new ChunkedSortedArray<Integer>(null, 4);
+        for (int i = 0; i < 30; i++) {
+            sa.add(i);
+        }
+        sa.removeBefore(0);
+        assertEquals(sa.size(), 30);
+        sa.removeBefore(9);
+        assertEquals(sa.size(), 21);
+        for (int i = 0; i < 21; i++) {
+            assertEquals(sa.get(i).intValue(), i + 9);
+        }
+        sa.add(100);
+        assertEquals(sa.get(21).intValue(), 100);
+        sa.removeBefore(100);
+        assertTrue(sa.isEmpty());
+        assertEquals(sa.blockCount(), 0);
+    }
+
+    @Test
+    public void iteratorRemove() {
+        ChunkedSortedArray<Integer> sa = new ChunkedSortedArray<Integer>(null, 4);
+        for (int i = 0; i < 40; i++) {
+            sa.add(i);
+        }
+        Iterator<Integer> it = sa.iterator();
+        int expected = 0;
+        while (it.hasNext()) {
+            int v = it.next();
+            assertEquals(v, expected++);
+            if (v % 3 != 0) {
+                it.remove();
+            }
+        }
+        assertEquals(sa.size(), 14);
+        expected = 0;
+        for (Integer v : sa) {
+            assertEquals(v.intValue(), expected);
+            expected += 3;
+        }
+    }
+
+    @Test
+    public void randomOperations() {
+        Random rnd = new Random(17);
+        ChunkedSortedArray<Integer> sa = new ChunkedSortedArray<Integer>(null, 8);
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 0; i < 5000; i++) {
+            int op = rnd.nextInt(10);
+            if (op < 6 || expected.isEmpty()) {
+                int v = rnd.nextInt(500);
+                sa.add(v);
+                expected.add(v);
+                Collections.sort(expected);
+            } else if (op < 8) {
+                int v = rnd.nextInt(500);
+                assertEquals(sa.removeElement(v), expected.remove(Integer.valueOf(v)));
+            } else if (op < 9) {
+                int idx = rnd.nextInt(expected.size());
+                assertEquals(sa.removeByIndex(idx), expected.remove(idx));
+            } else {
+                int idx = rnd.nextInt(expected.size() / 4 + 1);
+                sa.removeBefore(idx);
+                expected.subList(0, Math.min(idx, expected.size())).clear();
+            }
+            assertEquals(sa.size(), expected.size());
+        }
+        assertEquals(sa.toArray(), expected.toArray());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(sa.get(i), expected.get(i));
+            int idx = sa.getIndexOf(expected.get(i));
+            assertEquals(expected.get(idx), expected.get(i));
+        }
+    }
+
+    @Test
+    public void serialization() throws IOException, ClassNotFoundException {
+        ChunkedSortedArray<Integer> sa = new ChunkedSortedArray<Integer>(null, 4);
+        for (int i = 0; i < 10; i++) {
+            sa.add(i);
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(sa);
+        oos.close();
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        @SuppressWarnings("unchecked")
+        ChunkedSortedArray<Integer> sa2 = (ChunkedSortedArray<Integer>) ois.readObject();
+        assertEquals(sa2.toArray(), sa.toArray());
+        sa2.add(5);
+        assertEquals(sa2.size(), 11);
+    }
+}
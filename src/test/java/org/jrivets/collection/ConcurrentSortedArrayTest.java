@@ -0,0 +1,137 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.Test;
+
+public class ConcurrentSortedArrayTest {
+
+    @Test
+    public void addRemove() {
+        ConcurrentSortedArray<Integer> sa = new ConcurrentSortedArray<Integer>();
+        sa.add(3);
+        sa.add(1);
+        sa.add(2);
+        sa.add(2);
+        assertEquals(sa.toArray(), new Object[] { 1, 2, 2, 3 });
+        assertEquals(sa.get(3).intValue(), 3);
+        assertTrue(sa.remove(2));
+        assertFalse(sa.remove(5));
+        assertEquals(sa.toArray(), new Object[] { 1, 2, 3 });
+        assertTrue(sa.contains(3));
+        assertFalse(sa.contains(4));
+        sa.clear();
+        assertTrue(sa.isEmpty());
+    }
+
+    @Test
+    public void navigation() {
+        ConcurrentSortedArray<Integer> sa = new ConcurrentSortedArray<Integer>(Comparator.reverseOrder());
+        sa.addAll(Arrays.asList(1, 3, 3, 5));
+        assertEquals(sa.toArray(), new Object[] { 5, 3, 3, 1 });
+        assertEquals(sa.lowerBound(3), 1);
+        assertEquals(sa.upperBound(3), 3);
+        assertEquals(sa.getIndexOf(3), 1);
+        assertEquals(sa.getIndexOf(4), -2);
+        assertEquals(sa.floor(4).intValue(), 5);
+        assertEquals(sa.ceiling(4).intValue(), 3);
+        assertEquals(sa.higher(3).intValue(), 1);
+        assertEquals(sa.lower(3).intValue(), 5);
+        assertNull(sa.higher(1));
+        assertEquals(sa.subRange(5, 1), Arrays.asList(5, 3, 3));
+    }
+
+    @Test
+    public void snapshotIsImmutable() {
+        ConcurrentSortedArray<Integer> sa = new ConcurrentSortedArray<Integer>();
+        sa.addAll(Arrays.asList(1, 2, 3));
+        List<Integer> snapshot = sa.snapshot();
+        Iterator<Integer> it = sa.iterator();
+        sa.add(0);
+        sa.removeBefore(2);
+        assertEquals(snapshot, Arrays.asList(1, 2, 3));
+        assertEquals(it.next().intValue(), 1);
+        assertEquals(sa.toArray(), new Object[] { 2, 3 });
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void iteratorRemove() {
+        ConcurrentSortedArray<Integer> sa = new ConcurrentSortedArray<Integer>();
+        sa.add(1);
+        Iterator<Integer> it = sa.iterator();
+        it.next();
+        it.remove();
+    }
+
+    @Test
+    public void update() {
+        ConcurrentSortedArray<Integer> sa = new ConcurrentSortedArray<Integer>();
+        sa.addAll(Arrays.asList(1, 2, 3, 4));
+        assertTrue(sa.update(a -> {
+            a.add(10);
+            a.removeElement(1);
+            a.removeElement(3);
+        }));
+        assertEquals(sa.toArray(), new Object[] { 2, 4, 10 });
+        assertFalse(sa.update(a -> a.removeElement(7)));
+        assertTrue(sa.removeAll(Arrays.asList(2, 10)));
+        assertEquals(sa.toArray(), new Object[] { 4 });
+    }
+
+    @Test
+    public void removeAllBatch() {
+        ConcurrentSortedArray<Integer> sa = new ConcurrentSortedArray<Integer>();
+        sa.addAll(Arrays.asList(5, 1, 3, 3, 2, 5));
+        List<Integer> snapshot = sa.snapshot();
+        assertFalse(sa.removeAll(Arrays.asList(0, 4, 6)));
+        assertTrue(sa.removeAll(Arrays.asList(5, 3, 0)));
+        assertEquals(sa.toArray(), new Object[] { 1, 2 });
+        assertEquals(snapshot, Arrays.asList(1, 2, 3, 3, 5, 5));
+        sa.removeBefore(5);
+        assertTrue(sa.isEmpty());
+    }
+
+    @Test
+    public void concurrentReaders() throws Exception {
+        final ConcurrentSortedArray<Integer> sa = new ConcurrentSortedArray<Integer>();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicReference<String> error = new AtomicReference<String>();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (!stop.get()) {
+                        List<Integer> snapshot = sa.snapshot();
+                        for (int j = 1; j < snapshot.size(); j++) {
+                            if (snapshot.get(j - 1) > snapshot.get(j)) {
+                                error.set("Not sorted " + snapshot);
+                            }
+                        }
+                        // every even value is added together with the next odd one
+                        if (snapshot.size() % 2 != 0) {
+                            error.set("Partial batch " + snapshot);
+                        }
+                    }
+                }
+            });
+            readers[i].start();
+        }
+        for (int i = 0; i < 2000; i += 2) {
+            sa.addAll(Arrays.asList(1000 - i, 1001 - i));
+        }
+        stop.set(true);
+        for (Thread t : readers) {
+            t.join();
+        }
+        assertNull(error.get());
+        assertEquals(sa.size(), 2000);
+    }
+}
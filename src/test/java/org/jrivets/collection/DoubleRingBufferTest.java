@@ -0,0 +1,30 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+public class DoubleRingBufferTest {
+
+    @Test
+    public void putTest() {
+        DoubleRingBuffer ringBuffer = new DoubleRingBuffer(2);
+        assertFalse(ringBuffer.put(1.5));
+        assertFalse(ringBuffer.put(2.5));
+        assertTrue(ringBuffer.put(3.5));
+        assertEquals(ringBuffer.toArray(), new double[] { 2.5, 3.5 });
+        assertEquals(ringBuffer.element(), 2.5);
+        assertEquals(ringBuffer.last(), 3.5);
+    }
+
+    @Test
+    public void aggregatesTest() {
+        DoubleRingBuffer ringBuffer = new DoubleRingBuffer(3);
+        ringBuffer.add(0.5);
+        ringBuffer.add(-1.25);
+        ringBuffer.add(2.0);
+        assertEquals(ringBuffer.sum(), 1.25);
+        assertEquals(ringBuffer.min(), -1.25);
+        assertEquals(ringBuffer.max(), 2.0);
+    }
+}
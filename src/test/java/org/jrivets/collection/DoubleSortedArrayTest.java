@@ -0,0 +1,40 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+public class DoubleSortedArrayTest {
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void nan() {
+        new DoubleSortedArray().add(Double.NaN);
+    }
+
+    @Test
+    public void addAndSearch() {
+        DoubleSortedArray sa = new DoubleSortedArray(1);
+        for (double v : new double[] { 0.5, Double.NEGATIVE_INFINITY, 0.3, 0.3, Double.POSITIVE_INFINITY }) {
+            sa.add(v);
+        }
+        assertEquals(sa.toArray(), new double[] { Double.NEGATIVE_INFINITY, 0.3, 0.3, 0.5, Double.POSITIVE_INFINITY });
+        assertEquals(sa.getIndexOf(0.3), 1);
+        assertEquals(sa.getIndexOf(0.4), -4);
+        assertEquals(sa.upperBound(0.3), 3);
+        assertEquals(sa.interpolationSearch(0.5), 3);
+        assertEquals(sa.interpolationSearch(Double.POSITIVE_INFINITY), 4);
+        assertEquals(sa.interpolationSearch(0.4), -4);
+    }
+
+    @Test
+    public void remove() {
+        DoubleSortedArray sa = new DoubleSortedArray();
+        for (int i = 0; i < 5; i++) {
+            sa.add(i / 10.0);
+        }
+        assertTrue(sa.removeValue(0.2));
+        assertFalse(sa.removeValue(0.25));
+        sa.removeBefore(2);
+        assertEquals(sa.toArray(), new double[] { 0.3, 0.4 });
+    }
+}
@@ -0,0 +1,197 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.testng.annotations.Test;
+
+public class EventRingTest {
+
+    private static class LongEvent {
+        long value;
+        long doubled;
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void notPowerOfTwo() {
+        EventRing.singleProducer(3, LongEvent::new, WaitStrategy.busySpin());
+    }
+
+    @Test
+    public void preallocated() {
+        EventRing<LongEvent> ring = EventRing.singleProducer(4, LongEvent::new, WaitStrategy.busySpin());
+        LongEvent e = ring.get(0);
+        assertNotNull(e);
+        assertSame(ring.get(4), e);
+        assertNotSame(ring.get(1), e);
+        assertEquals(ring.size(), 4);
+    }
+
+    @Test
+    public void tryNextSingleProducer() {
+        tryNext(EventRing.singleProducer(4, LongEvent::new, WaitStrategy.busySpin()));
+    }
+
+    @Test
+    public void tryNextMultiProducer() {
+        tryNext(EventRing.multiProducer(4, LongEvent::new, WaitStrategy.busySpin()));
+    }
+
+    private void tryNext(EventRing<LongEvent> ring) {
+        Sequence consumer = new Sequence();
+        ring.addGatingSequences(consumer);
+        assertEquals(ring.remainingCapacity(), 4L);
+        long seq = ring.tryNext(3);
+        assertEquals(seq, 2L);
+        ring.publish(0, 2);
+        assertEquals(ring.tryNext(), 3L);
+        ring.publish(3);
+        assertEquals(ring.tryNext(), -1L);
+        assertEquals(ring.remainingCapacity(), 0L);
+        consumer.set(1L);
+        assertEquals(ring.remainingCapacity(), 2L);
+        assertEquals(ring.tryNext(2), 5L);
+        assertEquals(ring.tryNext(), -1L);
+        assertTrue(ring.removeGatingSequence(consumer));
+        assertFalse(ring.removeGatingSequence(consumer));
+        assertEquals(ring.tryNext(), 6L);
+    }
+
+    @Test
+    public void barrierWaitsForPublish() throws Exception {
+        EventRing<LongEvent> ring = EventRing.multiProducer(4, LongEvent::new, WaitStrategy.busySpin());
+        SequenceBarrier barrier = ring.newBarrier();
+        long s1 = ring.next();
+        long s2 = ring.next();
+        ring.publish(s2);
+        assertEquals(barrier.waitFor(0L), -1L);
+        ring.publish(s1);
+        assertEquals(barrier.waitFor(0L), 1L);
+    }
+
+    @Test(expectedExceptions = TimeoutException.class)
+    public void timeout() throws Exception {
+        EventRing<LongEvent> ring = EventRing.singleProducer(4, LongEvent::new,
+                WaitStrategy.timeoutBlocking(10L, TimeUnit.MILLISECONDS));
+        ring.newBarrier().waitFor(0L);
+    }
+
+    @Test
+    public void alert() throws Exception {
+        EventRing<LongEvent> ring = EventRing.singleProducer(4, LongEvent::new, WaitStrategy.blocking());
+        final SequenceBarrier barrier = ring.newBarrier();
+        final AtomicLong result = new AtomicLong();
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    barrier.waitFor(0L);
+                    result.set(1L);
+                } catch (InterruptedException e) {
+                    result.set(2L);
+                } catch (TimeoutException e) {
+                    result.set(3L);
+                }
+            }
+        });
+        consumer.start();
+        Thread.sleep(20L);
+        barrier.alert();
+        consumer.join(5000L);
+        assertEquals(result.get(), 2L);
+        assertTrue(barrier.isAlerted());
+        barrier.clearAlert();
+        assertFalse(barrier.isAlerted());
+    }
+
+    @Test
+    public void busySpinPipeline() throws Exception {
+        pipeline(EventRing.multiProducer(64, LongEvent::new, WaitStrategy.busySpin()), 2);
+    }
+
+    @Test
+    public void yieldingPipeline() throws Exception {
+        pipeline(EventRing.singleProducer(64, LongEvent::new, WaitStrategy.yielding()), 1);
+    }
+
+    @Test
+    public void blockingPipeline() throws Exception {
+        pipeline(EventRing.multiProducer(16, LongEvent::new, WaitStrategy.blocking()), 3);
+    }
+
+    @Test
+    public void timeoutBlockingPipeline() throws Exception {
+        pipeline(EventRing.singleProducer(16, LongEvent::new, WaitStrategy.timeoutBlocking(1L, TimeUnit.SECONDS)),
+                1);
+    }
+
+    /**
+     * Producers publish values, the first consumer doubles them and the
+     * second one (depends on the first) sums the doubled values.
+     */
+    private void pipeline(final EventRing<LongEvent> ring, int producers) throws Exception {
+        final int count = 20000;
+        final Sequence doublerSeq = new Sequence();
+        final Sequence summerSeq = new Sequence();
+        final SequenceBarrier doublerBarrier = ring.newBarrier();
+        final SequenceBarrier summerBarrier = ring.newBarrier(doublerSeq);
+        ring.addGatingSequences(summerSeq);
+        final long total = (long) count * producers;
+        final AtomicLong sum = new AtomicLong();
+
+        Thread doubler = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                consume(ring, doublerBarrier, doublerSeq, total, e -> e.doubled = e.value * 2);
+            }
+        });
+        Thread summer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                consume(ring, summerBarrier, summerSeq, total, e -> sum.addAndGet(e.doubled));
+            }
+        });
+        doubler.start();
+        summer.start();
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 1; i <= count; i++) {
+                        long seq = ring.next();
+                        ring.get(seq).value = i;
+                        ring.publish(seq);
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        doubler.join(10000L);
+        summer.join(10000L);
+        assertEquals(sum.get(), (long) count * (count + 1) * producers);
+    }
+
+    private static void consume(EventRing<LongEvent> ring, SequenceBarrier barrier, Sequence sequence, long total,
+            Consumer<LongEvent> handler) {
+        long next = sequence.get() + 1;
+        try {
+            while (next < total) {
+                long available = barrier.waitFor(next);
+                for (; next <= available; next++) {
+                    handler.accept(ring.get(next));
+                }
+                sequence.set(available);
+            }
+        } catch (InterruptedException | TimeoutException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
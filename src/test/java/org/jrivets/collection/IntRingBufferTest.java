@@ -0,0 +1,31 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+public class IntRingBufferTest {
+
+    @Test
+    public void putTest() {
+        IntRingBuffer ringBuffer = new IntRingBuffer(3);
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(ringBuffer.put(i), i > 3);
+        }
+        assertEquals(ringBuffer.toArray(), new int[] { 8, 9, 10 });
+        assertEquals(ringBuffer.remove(), 8);
+        assertTrue(ringBuffer.offer(11));
+        assertFalse(ringBuffer.offer(12));
+    }
+
+    @Test
+    public void aggregatesTest() {
+        IntRingBuffer ringBuffer = new IntRingBuffer(2);
+        ringBuffer.add(Integer.MAX_VALUE);
+        ringBuffer.add(Integer.MAX_VALUE);
+        assertEquals(ringBuffer.sum(), 2L * Integer.MAX_VALUE);
+        ringBuffer.put(-1);
+        assertEquals(ringBuffer.min(), -1);
+        assertEquals(ringBuffer.max(), Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,56 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class IntSortedArrayTest {
+
+    @Test
+    public void addAndSearch() {
+        IntSortedArray sa = new IntSortedArray(1);
+        for (int v : new int[] { 5, 1, 3, 3, 7 }) {
+            sa.add(v);
+        }
+        assertEquals(sa.toArray(), new int[] { 1, 3, 3, 5, 7 });
+        assertEquals(sa.getIndexOf(3), 1);
+        assertEquals(sa.getIndexOf(4), -4);
+        assertEquals(sa.lowerBound(3), 1);
+        assertEquals(sa.upperBound(3), 3);
+        assertEquals(sa.interpolationSearch(7), 4);
+        assertEquals(sa.interpolationSearch(0), -1);
+    }
+
+    @Test
+    public void searchRandom() {
+        Random rnd = new Random(5);
+        IntSortedArray sa = new IntSortedArray();
+        int[] expected = new int[1000];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = rnd.nextInt();
+            sa.add(expected[i]);
+        }
+        Arrays.sort(expected);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(sa.interpolationSearch(expected[i]), i);
+            assertEquals(sa.getIndexOf(expected[i]), i);
+        }
+    }
+
+    @Test
+    public void remove() {
+        IntSortedArray sa = new IntSortedArray();
+        for (int i = 0; i < 10; i++) {
+            sa.add(i);
+        }
+        assertTrue(sa.removeValue(5));
+        assertEquals(sa.removeByIndex(0), 0);
+        sa.removeBefore(3);
+        assertEquals(sa.toArray(), new int[] { 4, 6, 7, 8, 9 });
+        sa.clear();
+        assertTrue(sa.isEmpty());
+    }
+}
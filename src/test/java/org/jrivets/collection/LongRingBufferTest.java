@@ -0,0 +1,121 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import java.util.NoSuchElementException;
+
+import org.testng.annotations.Test;
+
+public class LongRingBufferTest {
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void zeroCapacity() {
+        new LongRingBuffer(0);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void addTest() {
+        LongRingBuffer ringBuffer = new LongRingBuffer(1);
+        ringBuffer.add(1L);
+        ringBuffer.add(2L);
+    }
+
+    @Test
+    public void offerTest() {
+        LongRingBuffer ringBuffer = new LongRingBuffer(2);
+        assertTrue(ringBuffer.offer(1L));
+        assertTrue(ringBuffer.offer(2L));
+        assertFalse(ringBuffer.offer(3L));
+        assertEquals(ringBuffer.size(), 2);
+        assertEquals(ringBuffer.element(), 1L);
+        assertEquals(ringBuffer.last(), 2L);
+    }
+
+    @Test
+    public void putTest() {
+        LongRingBuffer ringBuffer = new LongRingBuffer(3);
+        for (long i = 1; i <= 10; i++) {
+            assertEquals(ringBuffer.put(i), i > 3);
+        }
+        assertEquals(ringBuffer.size(), 3);
+        assertEquals(ringBuffer.toArray(), new long[] { 8L, 9L, 10L });
+        assertEquals(ringBuffer.get(0), 8L);
+        assertEquals(ringBuffer.get(2), 10L);
+    }
+
+    @Test
+    public void removeCircular() {
+        LongRingBuffer ringBuffer = new LongRingBuffer(2);
+        ringBuffer.add(0L);
+        for (long i = 1; i < 10; i++) {
+            ringBuffer.add(i);
+            assertEquals(ringBuffer.remove(), i - 1);
+            assertEquals(ringBuffer.element(), i);
+            assertEquals(ringBuffer.last(), i);
+        }
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void removeEmpty() {
+        new LongRingBuffer(2).remove();
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void getOutOfRange() {
+        LongRingBuffer ringBuffer = new LongRingBuffer(2);
+        ringBuffer.add(1L);
+        ringBuffer.get(1);
+    }
+
+    @Test
+    public void setTest() {
+        LongRingBuffer ringBuffer = new LongRingBuffer(2);
+        ringBuffer.put(1L);
+        ringBuffer.put(2L);
+        ringBuffer.put(3L);
+        ringBuffer.set(1, 5L);
+        assertEquals(ringBuffer.last(), 5L);
+    }
+
+    @Test
+    public void aggregatesTest() {
+        LongRingBuffer ringBuffer = new LongRingBuffer(3);
+        assertEquals(ringBuffer.sum(), 0L);
+        ringBuffer.put(5L);
+        ringBuffer.put(-2L);
+        ringBuffer.put(7L);
+        ringBuffer.put(1L);
+        assertEquals(ringBuffer.sum(), 6L);
+        assertEquals(ringBuffer.min(), -2L);
+        assertEquals(ringBuffer.max(), 7L);
+        ringBuffer.remove();
+        assertEquals(ringBuffer.min(), 1L);
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void minEmpty() {
+        new LongRingBuffer(2).min();
+    }
+
+    @Test
+    public void clearTest() {
+        LongRingBuffer ringBuffer = new LongRingBuffer(2);
+        ringBuffer.add(1L);
+        ringBuffer.clear();
+        assertTrue(ringBuffer.isEmpty());
+        assertEquals(ringBuffer.toArray().length, 0);
+    }
+
+    @Test
+    public void equalsTest() {
+        LongRingBuffer ringBuffer1 = new LongRingBuffer(2);
+        LongRingBuffer ringBuffer2 = new LongRingBuffer(5);
+        ringBuffer1.put(1L);
+        ringBuffer1.put(2L);
+        ringBuffer1.put(3L);
+        ringBuffer2.add(2L);
+        ringBuffer2.add(3L);
+        assertEquals(ringBuffer1, ringBuffer2);
+        assertEquals(ringBuffer1.hashCode(), ringBuffer2.hashCode());
+    }
+}
@@ -0,0 +1,131 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class LongSortedArrayTest {
+
+    @Test
+    public void add() {
+        LongSortedArray sa = new LongSortedArray(2);
+        sa.add(2L);
+        sa.add(3L);
+        sa.add(1L);
+        sa.add(2L);
+        assertEquals(sa.size(), 4);
+        assertEquals(sa.toArray(), new long[] { 1L, 2L, 2L, 3L });
+        assertEquals(sa.get(3), 3L);
+    }
+
+    @Test
+    public void search() {
+        LongSortedArray sa = new LongSortedArray();
+        for (long v : new long[] { 5L, 1L, 3L, 3L, 3L, 7L }) {
+            sa.add(v);
+        }
+        assertEquals(sa.getIndexOf(3L), 1);
+        assertEquals(sa.getIndexOf(1L), 0);
+        assertEquals(sa.getIndexOf(7L), 5);
+        assertEquals(sa.getIndexOf(0L), -1);
+        assertEquals(sa.getIndexOf(4L), -5);
+        assertEquals(sa.getIndexOf(8L), -7);
+        assertEquals(sa.lowerBound(3L), 1);
+        assertEquals(sa.upperBound(3L), 4);
+        assertEquals(sa.upperBound(8L), 6);
+        assertTrue(sa.contains(5L));
+        assertFalse(sa.contains(6L));
+        assertEquals(new LongSortedArray().getIndexOf(1L), -1);
+        assertEquals(new LongSortedArray().upperBound(1L), 0);
+    }
+
+    @Test
+    public void searchRandom() {
+        Random rnd = new Random(11);
+        LongSortedArray sa = new LongSortedArray();
+        long[] expected = new long[2000];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = rnd.nextInt(10000) * 2L;
+            sa.add(expected[i]);
+        }
+        Arrays.sort(expected);
+        assertEquals(sa.toArray(), expected);
+        for (int i = 0; i < 5000; i++) {
+            long v = rnd.nextInt(20002) - 1;
+            int idx = sa.interpolationSearch(v);
+            int binIdx = Arrays.binarySearch(expected, v);
+            if (binIdx >= 0) {
+                assertEquals(expected[idx], v);
+                assertEquals(sa.getIndexOf(v), sa.lowerBound(v));
+            } else {
+                assertEquals(idx, binIdx);
+                assertEquals(sa.getIndexOf(v), binIdx);
+            }
+        }
+    }
+
+    @Test
+    public void interpolationSkewed() {
+        LongSortedArray sa = new LongSortedArray();
+        for (int i = 0; i < 1000; i++) {
+            sa.add(i);
+        }
+        sa.add(Long.MAX_VALUE);
+        sa.add(Long.MIN_VALUE);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(sa.interpolationSearch(i), i + 1);
+        }
+        assertEquals(sa.interpolationSearch(Long.MAX_VALUE), 1001);
+        assertEquals(sa.interpolationSearch(Long.MIN_VALUE), 0);
+        assertEquals(sa.interpolationSearch(5000L), -1002);
+    }
+
+    @Test
+    public void remove() {
+        LongSortedArray sa = new LongSortedArray();
+        for (long i = 0; i < 10; i++) {
+            sa.add(i);
+        }
+        assertTrue(sa.removeValue(5L));
+        assertFalse(sa.removeValue(5L));
+        assertEquals(sa.removeByIndex(0), 0L);
+        assertEquals(sa.toArray(), new long[] { 1L, 2L, 3L, 4L, 6L, 7L, 8L, 9L });
+        sa.removeBefore(3);
+        assertEquals(sa.toArray(), new long[] { 4L, 6L, 7L, 8L, 9L });
+        sa.removeBefore(100);
+        assertTrue(sa.isEmpty());
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void getOutOfRange() {
+        new LongSortedArray().get(0);
+    }
+
+    @Test
+    public void shrinkCapacity() {
+        LongSortedArray sa = new LongSortedArray(1000);
+        for (int i = 0; i < 1000; i++) {
+            sa.add(i);
+        }
+        sa.removeBefore(950);
+        assertEquals(sa.capacity(), 76);
+        assertEquals(sa.get(0), 950L);
+        sa.trimToSize();
+        assertEquals(sa.capacity(), 50);
+    }
+
+    @Test
+    public void equalsTest() {
+        LongSortedArray sa1 = new LongSortedArray(2);
+        LongSortedArray sa2 = new LongSortedArray(20);
+        sa1.add(1L);
+        sa2.add(1L);
+        assertEquals(sa1, sa2);
+        assertEquals(sa1.hashCode(), sa2.hashCode());
+        sa2.add(2L);
+        assertNotEquals(sa1, sa2);
+    }
+}
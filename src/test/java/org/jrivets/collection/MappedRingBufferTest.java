@@ -0,0 +1,219 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class MappedRingBufferTest {
+
+    private File testFile;
+
+    private MappedRingBuffer buffer;
+
+    @BeforeMethod
+    public void init() throws IOException {
+        testFile = File.createTempFile("mappedRingBufferTest", ".tmp");
+        testFile.deleteOnExit();
+    }
+
+    @AfterMethod
+    public void close() throws IOException {
+        if (buffer != null) {
+            buffer.close();
+            buffer = null;
+        }
+        testFile.delete();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void zeroCapacity() throws IOException {
+        buffer = new MappedRingBuffer(testFile, 8, 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void tooBig() throws IOException {
+        buffer = new MappedRingBuffer(testFile, 1 << 16, 1 << 16);
+    }
+
+    @Test
+    public void capacityTest() throws IOException {
+        buffer = new MappedRingBuffer(testFile, 4, 3);
+        assertEquals(buffer.capacity(), 3);
+        assertEquals(buffer.recordSize(), 4);
+        assertTrue(buffer.isEmpty());
+        assertTrue(buffer.offer(record(1), 0));
+        assertTrue(buffer.offer(record(2), 0));
+        assertTrue(buffer.offer(record(3), 0));
+        assertFalse(buffer.offer(record(4), 0));
+        assertEquals(buffer.size(), 3);
+    }
+
+    @Test
+    public void offerPoll() throws IOException {
+        buffer = new MappedRingBuffer(testFile, 4, 3);
+        byte[] dst = new byte[4];
+        assertFalse(buffer.poll(dst, 0));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.offer(record(i), 0));
+            assertTrue(buffer.offer(record(i + 100), 0));
+            assertTrue(buffer.peek(dst, 0));
+            assertEquals(ByteBuffer.wrap(dst).getInt(), i);
+            assertTrue(buffer.poll(dst, 0));
+            assertEquals(ByteBuffer.wrap(dst).getInt(), i);
+            assertTrue(buffer.poll(dst, 0));
+            assertEquals(ByteBuffer.wrap(dst).getInt(), i + 100);
+            assertTrue(buffer.isEmpty());
+        }
+    }
+
+    @Test
+    public void byteBuffers() throws IOException {
+        buffer = new MappedRingBuffer(testFile, 4, 2);
+        ByteBuffer src = ByteBuffer.allocate(10);
+        src.putInt(1).putInt(2).putShort((short) 3).flip();
+        assertTrue(buffer.offer(src));
+        assertTrue(buffer.offer(src));
+        assertEquals(src.remaining(), 2);
+        try {
+            buffer.offer(src);
+            fail("Buffer underflow is expected");
+        } catch (BufferUnderflowException e) {
+            // expected
+        }
+
+        ByteBuffer dst = ByteBuffer.allocate(8);
+        assertTrue(buffer.poll(dst));
+        assertTrue(buffer.poll(dst));
+        assertFalse(buffer.poll(ByteBuffer.allocate(4)));
+        dst.flip();
+        assertEquals(dst.getInt(), 1);
+        assertEquals(dst.getInt(), 2);
+    }
+
+    @Test
+    public void reopen() throws IOException {
+        buffer = new MappedRingBuffer(testFile, 4, 3);
+        buffer.offer(record(1), 0);
+        buffer.offer(record(2), 0);
+        buffer.offer(record(3), 0);
+        buffer.poll(new byte[4], 0);
+        buffer.offer(record(4), 0);
+        buffer.close();
+
+        buffer = new MappedRingBuffer(testFile);
+        assertEquals(buffer.capacity(), 3);
+        assertEquals(buffer.recordSize(), 4);
+        assertEquals(buffer.size(), 3);
+        byte[] dst = new byte[4];
+        for (int i = 2; i <= 4; i++) {
+            assertTrue(buffer.poll(dst, 0));
+            assertEquals(ByteBuffer.wrap(dst).getInt(), i);
+        }
+        assertFalse(buffer.poll(dst, 0));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void reopenWrongSize() throws IOException {
+        new MappedRingBuffer(testFile, 4, 3).close();
+        buffer = new MappedRingBuffer(testFile, 8, 3);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void notBufferFile() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(testFile, "rw")) {
+            raf.write(new byte[1000]);
+        }
+        buffer = new MappedRingBuffer(testFile);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void corruptedHeader() throws IOException {
+        new MappedRingBuffer(testFile, 4, 3).close();
+        try (RandomAccessFile raf = new RandomAccessFile(testFile, "rw")) {
+            raf.seek(12);
+            raf.writeInt(0);
+        }
+        buffer = new MappedRingBuffer(testFile);
+    }
+
+    @Test
+    public void closeTest() throws IOException {
+        MappedRingBuffer closed = new MappedRingBuffer(testFile, 4, 3);
+        assertTrue(closed.offer(record(1), 0));
+        closed.close();
+        closed.close();
+        try {
+            closed.offer(record(2), 0);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // ok
+        }
+        try {
+            closed.poll(new byte[4], 0);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void twoInstances() throws IOException {
+        buffer = new MappedRingBuffer(testFile, 4, 2);
+        try (MappedRingBuffer reader = new MappedRingBuffer(testFile)) {
+            byte[] dst = new byte[4];
+            for (int i = 0; i < 5; i++) {
+                assertTrue(buffer.offer(record(i), 0));
+                assertTrue(buffer.offer(record(i), 0));
+                assertFalse(buffer.offer(record(i), 0));
+                assertEquals(reader.size(), 2);
+                assertTrue(reader.poll(dst, 0));
+                assertTrue(reader.poll(dst, 0));
+                assertEquals(ByteBuffer.wrap(dst).getInt(), i);
+                assertFalse(reader.poll(dst, 0));
+            }
+        }
+    }
+
+    @Test
+    public void concurrentTest() throws Exception {
+        buffer = new MappedRingBuffer(testFile, 8, 16);
+        final int count = 100000;
+        final MappedRingBuffer writerBuffer = buffer;
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ByteBuffer src = ByteBuffer.allocate(8);
+                for (long i = 0; i < count; i++) {
+                    src.clear();
+                    src.putLong(i).flip();
+                    while (!writerBuffer.offer(src)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        writer.start();
+        ByteBuffer dst = ByteBuffer.allocate(8);
+        for (long i = 0; i < count; i++) {
+            dst.clear();
+            while (!buffer.poll(dst)) {
+                Thread.yield();
+            }
+            assertEquals(dst.getLong(0), i);
+        }
+        writer.join();
+        assertTrue(buffer.isEmpty());
+    }
+
+    private static byte[] record(int value) {
+        return ByteBuffer.allocate(4).putInt(value).array();
+    }
+}
@@ -0,0 +1,248 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+
+public class MpmcRingBufferTest {
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void negativeCapacity() {
+        new MpmcRingBuffer<Integer>(-1);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void nullValue() {
+        new MpmcRingBuffer<Integer>(2).offer(null);
+    }
+
+    @Test
+    public void capacityTest() {
+        MpmcRingBuffer<Integer> ringBuffer = new MpmcRingBuffer<Integer>(2);
+        assertTrue(ringBuffer.offer(1));
+        assertTrue(ringBuffer.offer(2));
+        assertFalse(ringBuffer.offer(3));
+        assertEquals(ringBuffer.size(), 2);
+        assertEquals(ringBuffer.peek().intValue(), 1);
+        assertEquals(ringBuffer.poll().intValue(), 1);
+        assertEquals(ringBuffer.poll().intValue(), 2);
+        assertNull(ringBuffer.poll());
+        assertNull(ringBuffer.peek());
+    }
+
+    @Test
+    public void addCircular() {
+        MpmcRingBuffer<Integer> ringBuffer = new MpmcRingBuffer<Integer>(3);
+        ringBuffer.add(0);
+        for (int i = 1; i < 20; i++) {
+            ringBuffer.add(i);
+            assertEquals(ringBuffer.size(), 2);
+            assertEquals(ringBuffer.remove().intValue(), i - 1);
+        }
+    }
+
+    @Test(timeOut = 20000L)
+    public void producersConsumersTest() throws InterruptedException {
+        final int threadsNum = 4;
+        final int count = 100000;
+        final MpmcRingBuffer<Integer> ringBuffer = new MpmcRingBuffer<Integer>(100);
+        final AtomicLong sum = new AtomicLong();
+        Thread[] threads = new Thread[threadsNum * 2];
+        for (int p = 0; p < threadsNum; p++) {
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 1; i <= count; i++) {
+                        while (!ringBuffer.offer(i)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            threads[threadsNum + p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < count; i++) {
+                        Integer value;
+                        while ((value = ringBuffer.poll()) == null) {
+                            Thread.yield();
+                        }
+                        sum.addAndGet(value);
+                    }
+                }
+            });
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(sum.get(), (long) threadsNum * count * (count + 1) / 2);
+        assertTrue(ringBuffer.isEmpty());
+    }
+
+    @Test
+    public void capacityOne() {
+        MpmcRingBuffer<Integer> ringBuffer = new MpmcRingBuffer<Integer>(1);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ringBuffer.offer(i));
+            assertFalse(ringBuffer.offer(i));
+            assertEquals(ringBuffer.size(), 1);
+            assertEquals(ringBuffer.poll().intValue(), i);
+            assertNull(ringBuffer.poll());
+        }
+    }
+
+    @Test
+    public void offerAll() {
+        MpmcRingBuffer<Integer> ringBuffer = new MpmcRingBuffer<Integer>(5);
+        Integer[] batch = { 1, 2, 3, 4 };
+        assertTrue(ringBuffer.offerAll(batch, 0, 3));
+        assertFalse(ringBuffer.offerAll(batch, 0, 3));
+        assertEquals(ringBuffer.size(), 3);
+        assertTrue(ringBuffer.offerAll(batch, 2, 2));
+        assertFalse(ringBuffer.offer(5));
+        assertTrue(ringBuffer.offerAll(batch, 0, 0));
+        assertFalse(ringBuffer.offerAll(new Integer[] { 1, 2, 3, 4, 5, 6 }, 0, 6));
+        int[] expected = { 1, 2, 3, 3, 4 };
+        for (int e : expected) {
+            assertEquals(ringBuffer.poll().intValue(), e);
+        }
+        assertNull(ringBuffer.poll());
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void offerAllNull() {
+        MpmcRingBuffer<Integer> ringBuffer = new MpmcRingBuffer<Integer>(5);
+        try {
+            ringBuffer.offerAll(new Integer[] { 1, null }, 0, 2);
+        } finally {
+            assertTrue(ringBuffer.isEmpty());
+        }
+    }
+
+    @Test(timeOut = 20000)
+    public void offerAllConcurrent() throws InterruptedException {
+        final MpmcRingBuffer<Integer> ringBuffer = new MpmcRingBuffer<Integer>(7);
+        final int batches = 5000;
+        final AtomicLong sum = new AtomicLong();
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Integer[] batch = new Integer[3];
+                for (int i = 0; i < batches; i++) {
+                    batch[0] = batch[1] = batch[2] = i;
+                    while (!ringBuffer.offerAll(batch, 0, 3)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        Thread[] consumers = new Thread[2];
+        for (int c = 0; c < consumers.length; c++) {
+            consumers[c] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (sum.get() < 3L * batches * (batches - 1) / 2 || !ringBuffer.isEmpty()) {
+                        Integer v = ringBuffer.poll();
+                        if (v != null) {
+                            sum.addAndGet(v);
+                        } else {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            consumers[c].start();
+        }
+        producer.start();
+        producer.join();
+        for (Thread t : consumers) {
+            t.join();
+        }
+        assertEquals(sum.get(), 3L * batches * (batches - 1) / 2);
+        assertTrue(ringBuffer.isEmpty());
+    }
+
+    @Test
+    public void drain() {
+        MpmcRingBuffer<Integer> ringBuffer = new MpmcRingBuffer<Integer>(5);
+        List<Integer> sink = new ArrayList<Integer>();
+        assertEquals(ringBuffer.drain(sink::add, 10), 0);
+        for (int i = 1; i <= 5; i++) {
+            ringBuffer.offer(i);
+        }
+        assertEquals(ringBuffer.drain(sink::add, 0), 0);
+        assertEquals(ringBuffer.drain(sink::add, 2), 2);
+        assertEquals(ringBuffer.size(), 3);
+        ringBuffer.offer(6);
+        ringBuffer.offer(7);
+        assertEquals(ringBuffer.drain(sink::add, 10), 5);
+        assertEquals(sink, Arrays.asList(1, 2, 3, 4, 5, 6, 7));
+        assertTrue(ringBuffer.isEmpty());
+        assertTrue(ringBuffer.offerAll(new Integer[] { 8, 9, 10, 11, 12 }, 0, 5));
+    }
+
+    @Test
+    public void drainConsumerThrows() {
+        MpmcRingBuffer<Integer> ringBuffer = new MpmcRingBuffer<Integer>(4);
+        for (int i = 1; i <= 4; i++) {
+            ringBuffer.offer(i);
+        }
+        try {
+            ringBuffer.drain(v -> {
+                throw new IllegalStateException();
+            }, 3);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // ok
+        }
+        assertEquals(ringBuffer.poll().intValue(), 4);
+        assertTrue(ringBuffer.offerAll(new Integer[] { 5, 6, 7, 8 }, 0, 4));
+        assertEquals(ringBuffer.size(), 4);
+    }
+
+    @Test(timeOut = 20000)
+    public void drainConcurrent() throws InterruptedException {
+        final MpmcRingBuffer<Integer> ringBuffer = new MpmcRingBuffer<Integer>(16);
+        final int count = 20000;
+        final AtomicLong sum = new AtomicLong();
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    while (!ringBuffer.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        Thread[] consumers = new Thread[2];
+        for (int c = 0; c < consumers.length; c++) {
+            consumers[c] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (sum.get() < (long) count * (count - 1) / 2 || !ringBuffer.isEmpty()) {
+                        if (ringBuffer.drain(v -> sum.addAndGet(v), 5) == 0) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            consumers[c].start();
+        }
+        producer.start();
+        producer.join();
+        for (Thread t : consumers) {
+            t.join();
+        }
+        assertEquals(sum.get(), (long) count * (count - 1) / 2);
+        assertTrue(ringBuffer.isEmpty());
+    }
+}
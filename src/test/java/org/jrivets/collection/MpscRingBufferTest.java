@@ -0,0 +1,97 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+public class MpscRingBufferTest {
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void zeroCapacity() {
+        new MpscRingBuffer<Integer>(0);
+    }
+
+    @Test
+    public void capacityTest() {
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<Integer>(3);
+        assertEquals(ringBuffer.capacity(), 3);
+        assertTrue(ringBuffer.offer(1));
+        assertTrue(ringBuffer.offer(2));
+        assertTrue(ringBuffer.offer(3));
+        assertFalse(ringBuffer.offer(4));
+        assertEquals(ringBuffer.size(), 3);
+        assertEquals(ringBuffer.peek().intValue(), 1);
+        assertEquals(ringBuffer.poll().intValue(), 1);
+        assertTrue(ringBuffer.offer(4));
+        assertFalse(ringBuffer.offer(5));
+    }
+
+    @Test
+    public void addCircular() {
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<Integer>(4);
+        for (int i = 0; i < 20; i++) {
+            ringBuffer.add(i);
+            assertEquals(ringBuffer.size(), 1);
+            assertEquals(ringBuffer.poll().intValue(), i);
+            assertNull(ringBuffer.poll());
+            assertTrue(ringBuffer.isEmpty());
+        }
+    }
+
+    @Test
+    public void clearTest() {
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<Integer>(3);
+        ringBuffer.add(1);
+        ringBuffer.add(2);
+        ringBuffer.clear();
+        assertTrue(ringBuffer.isEmpty());
+        assertNull(ringBuffer.peek());
+    }
+
+    @Test(timeOut = 20000L)
+    public void producersTest() throws InterruptedException {
+        final int producers = 4;
+        final int count = 200000;
+        final MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<Integer>(100);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < count; i++) {
+                        while (!ringBuffer.offer(producer * count + i)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        int[] last = new int[producers];
+        for (int i = 0; i < producers * count; i++) {
+            Integer value;
+            while ((value = ringBuffer.poll()) == null) {
+                Thread.yield();
+            }
+            int producer = value / count;
+            assertEquals(value % count, last[producer]++);
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertTrue(ringBuffer.isEmpty());
+    }
+
+    @Test
+    public void capacityOne() {
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<Integer>(1);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ringBuffer.offer(i));
+            assertFalse(ringBuffer.offer(i));
+            assertEquals(ringBuffer.size(), 1);
+            assertEquals(ringBuffer.poll().intValue(), i);
+            assertNull(ringBuffer.poll());
+        }
+    }
+}
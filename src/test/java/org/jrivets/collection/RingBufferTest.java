@@ -7,7 +7,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import org.jrivets.collection.RingBuffer;
@@ -216,6 +219,144 @@ public class RingBufferTest {
         assertFalse(it.hasNext());
     }
     
+    @Test
+    public void drainToConsumer() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(4);
+        ringBuffer.add(0);
+        ringBuffer.add(0);
+        ringBuffer.remove();
+        ringBuffer.remove();
+        for (int i = 1; i <= 4; i++) {
+            ringBuffer.add(i);
+        }
+        final List<Integer> list = new ArrayList<Integer>();
+        assertEquals(ringBuffer.drainTo(list::add, 3), 3);
+        assertEquals(list, Arrays.asList(1, 2, 3));
+        assertEquals(ringBuffer.size(), 1);
+        assertEquals(ringBuffer.element(), new Integer(4));
+        assertEquals(ringBuffer.drainTo(list::add, 3), 1);
+        assertEquals(ringBuffer.drainTo(list::add, 3), 0);
+        assertTrue(ringBuffer.isEmpty());
+    }
+
+    @Test
+    public void drainToConsumerException() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(4);
+        for (int i = 1; i <= 4; i++) {
+            ringBuffer.add(i);
+        }
+        try {
+            ringBuffer.drainTo(i -> {
+                if (i == 3) {
+                    throw new IllegalStateException();
+                }
+            }, 4);
+            fail("Consumer exception expected");
+        } catch (IllegalStateException ise) {
+            // ok
+        }
+        assertEquals(ringBuffer.size(), 2);
+        assertEquals(ringBuffer.element(), new Integer(3));
+    }
+
+    @Test
+    public void drainToCollection() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(3);
+        ringBuffer.add(1);
+        ringBuffer.add(2);
+        List<Integer> list = new ArrayList<Integer>();
+        assertEquals(ringBuffer.drainTo(list, 10), 2);
+        assertEquals(list, Arrays.asList(1, 2));
+        assertTrue(ringBuffer.isEmpty());
+    }
+
+    @Test
+    public void offerBatch() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(5);
+        ringBuffer.add(0);
+        ringBuffer.add(0);
+        ringBuffer.add(0);
+        ringBuffer.remove();
+        ringBuffer.remove();
+        Integer[] src = new Integer[] { 1, 2, 3, 4, 5, 6 };
+        assertEquals(ringBuffer.offerBatch(src, 1, 5), 4);
+        assertEquals(ringBuffer.size(), 5);
+        assertEquals(ringBuffer.toArray(), new Object[] { 0, 2, 3, 4, 5 });
+        assertEquals(ringBuffer.last(), new Integer(5));
+        assertEquals(ringBuffer.offerBatch(src, 0, 1), 0);
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void offerBatchBounds() {
+        new RingBuffer<Integer>(5).offerBatch(new Integer[2], 1, 2);
+    }
+
+    @Test
+    public void fill() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(3);
+        ringBuffer.add(0);
+        ringBuffer.add(0);
+        ringBuffer.remove();
+        final int[] counter = new int[1];
+        assertEquals(ringBuffer.fill(() -> ++counter[0], 5), 2);
+        assertEquals(counter[0], 2);
+        assertEquals(ringBuffer.toArray(), new Object[] { 0, 1, 2 });
+        assertEquals(ringBuffer.fill(() -> ++counter[0], 5), 0);
+    }
+
+    @Test
+    public void overwriteTest() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(3, RingBuffer.OverflowPolicy.OVERWRITE);
+        for (int i = 1; i <= 10; i++) {
+            assertTrue(ringBuffer.offer(i));
+            assertEquals(ringBuffer.size(), Math.min(i, 3));
+            assertEquals(ringBuffer.last(), new Integer(i));
+        }
+        assertEquals(ringBuffer.toArray(), new Object[] { 8, 9, 10 });
+        assertEquals(ringBuffer.capacity(), 3);
+        assertEquals(ringBuffer.remove(), new Integer(8));
+    }
+
+    @Test
+    public void overwriteBatchTest() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(3, RingBuffer.OverflowPolicy.OVERWRITE);
+        ringBuffer.add(1);
+        ringBuffer.add(2);
+        assertEquals(ringBuffer.offerBatch(new Integer[] { 3, 4 }, 0, 2), 2);
+        assertEquals(ringBuffer.toArray(), new Object[] { 2, 3, 4 });
+        assertEquals(ringBuffer.offerBatch(new Integer[] { 5, 6, 7, 8, 9 }, 0, 5), 3);
+        assertEquals(ringBuffer.toArray(), new Object[] { 7, 8, 9 });
+        final int[] counter = new int[1];
+        assertEquals(ringBuffer.fill(() -> ++counter[0], 2), 2);
+        assertEquals(ringBuffer.toArray(), new Object[] { 9, 1, 2 });
+    }
+
+    @Test
+    public void growTest() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(2, RingBuffer.OverflowPolicy.GROW);
+        ringBuffer.add(0);
+        ringBuffer.add(0);
+        ringBuffer.remove();
+        ringBuffer.add(1);
+        ringBuffer.remove();
+        for (int i = 2; i <= 5; i++) {
+            assertTrue(ringBuffer.offer(i));
+        }
+        assertEquals(ringBuffer.capacity(), 8);
+        assertEquals(ringBuffer.toArray(), new Object[] { 1, 2, 3, 4, 5 });
+        assertEquals(ringBuffer.element(), new Integer(1));
+        assertEquals(ringBuffer.last(), new Integer(5));
+    }
+
+    @Test
+    public void growBatchTest() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(2, RingBuffer.OverflowPolicy.GROW);
+        ringBuffer.add(1);
+        assertEquals(ringBuffer.offerBatch(new Integer[] { 2, 3, 4, 5, 6 }, 0, 5), 5);
+        assertEquals(ringBuffer.capacity(), 6);
+        assertEquals(ringBuffer.toArray(), new Object[] { 1, 2, 3, 4, 5, 6 });
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void serialization() throws IOException, ClassNotFoundException {
@@ -237,6 +378,7 @@ public class RingBufferTest {
         ObjectInputStream ois = new ObjectInputStream(bais);
 
         RingBuffer<Integer> readBuffer = (RingBuffer<Integer>) ois.readObject();
+        assertEquals(readBuffer.getOverflowPolicy(), RingBuffer.OverflowPolicy.REJECT);
         assertTrue(readBuffer.size() == 2);
         assertEquals(new Integer(2), readBuffer.element());
         assertEquals(new Integer(3), readBuffer.last());
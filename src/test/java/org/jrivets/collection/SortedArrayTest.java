@@ -8,8 +8,13 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 
 import org.jrivets.collection.SortedArray;
 import org.testng.annotations.Test;
@@ -343,4 +348,139 @@ public class SortedArrayTest {
         }
         assertEquals(sa.size(), 50);
     }
+
+    @Test
+    public void addAllCollection() {
+        SortedArray<Integer> sa = new SortedArray<Integer>();
+        sa.add(5);
+        sa.add(1);
+        sa.add(9);
+        assertTrue(sa.addAll(Arrays.asList(8, 0, 5, 10)));
+        assertEquals(sa.toArray(), new Object[] { 0, 1, 5, 5, 8, 9, 10 });
+        assertFalse(sa.addAll(new ArrayList<Integer>()));
+        assertEquals(sa.size(), 7);
+        sa.add(3);
+        assertEquals(sa.get(2).intValue(), 3);
+    }
+
+    @Test
+    public void addAllArray() {
+        SortedArray<Integer> sa = new SortedArray<Integer>(descComparator, 2);
+        sa.add(2);
+        Integer[] a = new Integer[] { 1, null, 3 };
+        assertTrue(sa.addAll(a));
+        assertEquals(sa.toArray(), new Object[] { 3, 2, 1, null });
+        assertEquals(a, new Integer[] { 1, null, 3 });
+    }
+
+    @Test
+    public void addAllSortedArray() {
+        SortedArray<Integer> sa1 = new SortedArray<Integer>(descComparator, 2);
+        SortedArray<Integer> sa2 = new SortedArray<Integer>(descComparator, 2);
+        sa1.add(1);
+        sa1.add(3);
+        sa2.add(2);
+        sa2.add(4);
+        sa1.addAll(sa2);
+        assertEquals(sa1.toArray(), new Object[] { 4, 3, 2, 1 });
+    }
+
+    @Test
+    public void addAllBig() {
+        Random rnd = new Random(3);
+        List<Integer> expected = new ArrayList<Integer>();
+        SortedArray<Integer> sa = new SortedArray<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            sa.add(i * 7);
+            expected.add(i * 7);
+        }
+        List<Integer> added = new ArrayList<Integer>();
+        for (int i = 0; i < SortedArray.PARALLEL_SORT_THRESHOLD * 2; i++) {
+            added.add(rnd.nextInt(10000));
+        }
+        sa.addAll(added);
+        expected.addAll(added);
+        Collections.sort(expected);
+        assertEquals(sa.toArray(), expected.toArray());
+    }
+
+    @Test
+    public void removeAll() {
+        SortedArray<Integer> sa = new SortedArray<Integer>();
+        sa.addAll(Arrays.asList(1, 2, 2, 3, 4, 5, 5, 6));
+        assertFalse(sa.removeAll(Arrays.asList(0, 7)));
+        assertTrue(sa.removeAll(Arrays.asList(5, 2, 7, 1, 2)));
+        assertEquals(sa.toArray(), new Object[] { 3, 4, 6 });
+        assertEquals(sa.size(), 3);
+        SortedArray<Integer> copy = new SortedArray<Integer>();
+        copy.addAll(sa);
+        assertTrue(sa.removeAll(copy));
+        assertTrue(sa.isEmpty());
+    }
+
+    @Test
+    public void bounds() {
+        SortedArray<Integer> sa = new SortedArray<Integer>();
+        sa.addAll(Arrays.asList(1, 3, 3, 3, 5));
+        assertEquals(sa.lowerBound(3), 1);
+        assertEquals(sa.upperBound(3), 4);
+        assertEquals(sa.lowerBound(0), 0);
+        assertEquals(sa.upperBound(0), 0);
+        assertEquals(sa.lowerBound(4), 4);
+        assertEquals(sa.upperBound(4), 4);
+        assertEquals(sa.lowerBound(6), 5);
+        assertEquals(sa.upperBound(5), 5);
+    }
+
+    @Test
+    public void navigation() {
+        SortedArray<Integer> sa = new SortedArray<Integer>();
+        sa.addAll(Arrays.asList(1, 3, 3, 5));
+        assertEquals(sa.floor(3).intValue(), 3);
+        assertEquals(sa.floor(4).intValue(), 3);
+        assertNull(sa.floor(0));
+        assertEquals(sa.ceiling(3).intValue(), 3);
+        assertEquals(sa.ceiling(2).intValue(), 3);
+        assertNull(sa.ceiling(6));
+        assertEquals(sa.higher(3).intValue(), 5);
+        assertNull(sa.higher(5));
+        assertEquals(sa.lower(3).intValue(), 1);
+        assertNull(sa.lower(1));
+    }
+
+    @Test
+    public void subRange() {
+        SortedArray<Integer> sa = new SortedArray<Integer>();
+        sa.addAll(Arrays.asList(1, 2, 2, 3, 4, 4, 5));
+        assertEquals(sa.subRange(2, 4), Arrays.asList(2, 2, 3));
+        assertEquals(sa.subRange(0, 10), Arrays.asList(1, 2, 2, 3, 4, 4, 5));
+        assertTrue(sa.subRange(4, 2).isEmpty());
+        assertTrue(sa.subRange(6, 10).isEmpty());
+        assertEquals(sa.subRangeByIndex(5, 7), Arrays.asList(4, 5));
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void subRangeWrongIndex() {
+        SortedArray<Integer> sa = new SortedArray<Integer>();
+        sa.add(1);
+        sa.subRangeByIndex(0, 2);
+    }
+
+    @Test
+    public void rangeIterator() {
+        SortedArray<Integer> sa = new SortedArray<Integer>();
+        sa.addAll(Arrays.asList(1, 2, 2, 3, 4, 4, 5));
+        Iterator<Integer> it = sa.iterator(2, 4);
+        List<Integer> result = new ArrayList<Integer>();
+        while (it.hasNext()) {
+            Integer v = it.next();
+            result.add(v);
+            if (v == 2) {
+                it.remove();
+            }
+        }
+        assertEquals(result, Arrays.asList(2, 2, 3));
+        assertEquals(sa.toArray(), new Object[] { 1, 3, 4, 4, 5 });
+        assertFalse(sa.iterator(6, 7).hasNext());
+    }
 }
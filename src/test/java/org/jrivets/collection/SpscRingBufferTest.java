@@ -0,0 +1,103 @@
+package org.jrivets.collection;
+
+import static org.testng.Assert.*;
+
+import java.util.NoSuchElementException;
+
+import org.testng.annotations.Test;
+
+public class SpscRingBufferTest {
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void zeroCapacity() {
+        new SpscRingBuffer<Integer>(0);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void nullValue() {
+        new SpscRingBuffer<Integer>(2).offer(null);
+    }
+
+    @Test
+    public void capacityTest() {
+        SpscRingBuffer<Integer> ringBuffer = new SpscRingBuffer<Integer>(3);
+        assertEquals(ringBuffer.capacity(), 3);
+        assertTrue(ringBuffer.offer(1));
+        assertTrue(ringBuffer.offer(2));
+        assertTrue(ringBuffer.offer(3));
+        assertFalse(ringBuffer.offer(4));
+        assertEquals(ringBuffer.size(), 3);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void addTest() {
+        SpscRingBuffer<Integer> ringBuffer = new SpscRingBuffer<Integer>(1);
+        assertTrue(ringBuffer.add(1));
+        ringBuffer.add(2);
+    }
+
+    @Test
+    public void addCircular() {
+        SpscRingBuffer<Integer> ringBuffer = new SpscRingBuffer<Integer>(3);
+        ringBuffer.add(0);
+        ringBuffer.add(1);
+        for (int i = 2; i < 20; i++) {
+            ringBuffer.add(i);
+            assertEquals(ringBuffer.size(), 3);
+            assertEquals(ringBuffer.peek().intValue(), i - 2);
+            assertEquals(ringBuffer.poll().intValue(), i - 2);
+            assertEquals(ringBuffer.size(), 2);
+        }
+    }
+
+    @Test
+    public void pollEmpty() {
+        SpscRingBuffer<Integer> ringBuffer = new SpscRingBuffer<Integer>(3);
+        assertNull(ringBuffer.poll());
+        assertNull(ringBuffer.peek());
+        assertTrue(ringBuffer.isEmpty());
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void removeEmpty() {
+        new SpscRingBuffer<Integer>(3).remove();
+    }
+
+    @Test
+    public void clearTest() {
+        SpscRingBuffer<Integer> ringBuffer = new SpscRingBuffer<Integer>(3);
+        ringBuffer.add(1);
+        ringBuffer.add(2);
+        ringBuffer.clear();
+        assertTrue(ringBuffer.isEmpty());
+        assertEquals(ringBuffer.size(), 0);
+        assertTrue(ringBuffer.offer(3));
+        assertEquals(ringBuffer.poll().intValue(), 3);
+    }
+
+    @Test(timeOut = 20000L)
+    public void handOffTest() throws InterruptedException {
+        final int count = 1000000;
+        final SpscRingBuffer<Integer> ringBuffer = new SpscRingBuffer<Integer>(100);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    while (!ringBuffer.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        writer.start();
+        for (int i = 0; i < count; i++) {
+            Integer value;
+            while ((value = ringBuffer.poll()) == null) {
+                Thread.yield();
+            }
+            assertEquals(value.intValue(), i);
+        }
+        writer.join();
+        assertTrue(ringBuffer.isEmpty());
+    }
+}
@@ -31,6 +31,39 @@ public class SubscriberTest {
         }
     }
     
+    private static class StaticListener {
+
+        @OnEvent
+        static String onString(String s) {
+            return s + "!";
+        }
+    }
+
+    public static class PublicListener {
+
+        int count;
+
+        @OnEvent
+        public int onInteger(Integer i) {
+            return i + 1;
+        }
+
+        @OnEvent
+        public void onString(String s) {
+            count++;
+        }
+
+        @OnEvent
+        public void onException(Exception ex) throws Exception {
+            throw ex;
+        }
+
+        @OnEvent
+        public void onError(AssertionError e) {
+            throw e;
+        }
+    }
+
     private Subscriber subscriber;
     
     @BeforeTest
@@ -77,4 +110,49 @@ public class SubscriberTest {
     public void notifyNoMethodSilentlyTest() throws Exception {
         assertNull(subscriber.notifySubscriberSilently(new Boolean(false)));
     }
+
+    @Test
+    public void notifyStaticMethodTest() throws Exception {
+        assertEquals(new Subscriber(new StaticListener()).notifySubscriber("hi"), "hi!");
+    }
+
+    @Test
+    public void notifyGeneratedTest() throws Exception {
+        PublicListener listener = new PublicListener();
+        Subscriber s = new Subscriber(listener);
+        assertEquals(s.notifySubscriber(1), 2);
+        assertNull(s.notifySubscriber("a"));
+        assertEquals(listener.count, 1);
+        Exception cause = new Exception();
+        try {
+            s.notifySubscriber(cause);
+            fail("InvocationTargetException expected");
+        } catch (InvocationTargetException e) {
+            assertEquals(e.getCause(), cause);
+        }
+    }
+
+    @Test
+    public void errorNotWrappedTest() throws Exception {
+        AssertionError error = new AssertionError();
+        try {
+            new Subscriber(new PublicListener()).notifySubscriber(error);
+            fail("AssertionError expected");
+        } catch (AssertionError e) {
+            assertSame(e, error);
+        }
+    }
+
+    @Test(expectedExceptions = ClassCastException.class)
+    public void wrongArgumentTest() throws Exception {
+        new EventInvoker(PublicListener.class.getMethod("onInteger", Integer.class)).invoke(new PublicListener(), "a");
+    }
+
+    @Test
+    public void generatedTest() throws Exception {
+        assertTrue(new EventInvoker(PublicListener.class.getMethod("onInteger", Integer.class)).isGenerated());
+        assertTrue(new EventInvoker(PublicListener.class.getMethod("onString", String.class)).isGenerated());
+        assertFalse(new EventInvoker(TestListener.class.getDeclaredMethod("onInteger", Integer.class)).isGenerated());
+        assertFalse(new EventInvoker(StaticListener.class.getDeclaredMethod("onString", String.class)).isGenerated());
+    }
 }
@@ -1,6 +1,5 @@
 package org.jrivets.event;
 
-import java.lang.reflect.Method;
 
 import org.jrivets.event.OnEvent;
 import org.jrivets.event.SubscriberTypeDetails;
@@ -66,10 +65,10 @@ public class SubscriberTypeParserTest {
     public void parseBasic() {
         SubscriberTypeDetails details = typeParser.getSubscriberTypeDetails(SimpleEventSubscriber.class);
         assertEquals(1, details.getEventsMap().size());
-        assertNull(details.getMethod(new SimpleSimpleEvent()));
-        assertNull(details.getMethod(new Object() {}));
+        assertNull(details.getInvoker(new SimpleSimpleEvent()));
+        assertNull(details.getInvoker(new Object() {}));
         
-        Method m = details.getMethod(new SimpleEvent());
+        EventInvoker m = details.getInvoker(new SimpleEvent());
         assertNotNull(m);
         assertEquals("simpleEvent", m.getName());
     }
@@ -78,10 +77,10 @@ public class SubscriberTypeParserTest {
     public void parseBasicExtendedClass() {
         SubscriberTypeDetails details = typeParser.getSubscriberTypeDetails(SimpleSimpleEventSubscriber.class);
         assertEquals(1, details.getEventsMap().size());
-        assertNull(details.getMethod(new SimpleEvent()));
-        assertNull(details.getMethod(new Object() {}));
+        assertNull(details.getInvoker(new SimpleEvent()));
+        assertNull(details.getInvoker(new Object() {}));
         
-        Method m = details.getMethod(new SimpleSimpleEvent());
+        EventInvoker m = details.getInvoker(new SimpleSimpleEvent());
         assertNotNull(m);
         assertEquals("simpleEvent", m.getName());
     }
@@ -90,12 +89,12 @@ public class SubscriberTypeParserTest {
     public void parseBasicNotSimpleClass() {
         SubscriberTypeDetails details = typeParser.getSubscriberTypeDetails(NotSimpleEventSubscriber.class);
         assertEquals(2, details.getEventsMap().size());
-        assertNotNull(details.getMethod(new SimpleEvent()));
+        assertNotNull(details.getInvoker(new SimpleEvent()));
         // Events are matched by exact class
-        assertNull(details.getMethod(new SimpleSimpleEvent2()));
-        assertNull(details.getMethod(new Object() {}));
+        assertNull(details.getInvoker(new SimpleSimpleEvent2()));
+        assertNull(details.getInvoker(new Object() {}));
         
-        Method m = details.getMethod(new SimpleSimpleEvent());
+        EventInvoker m = details.getInvoker(new SimpleSimpleEvent());
         assertNotNull(m);
         assertEquals("simpleEvent", m.getName());
     }
@@ -120,4 +120,27 @@ public class SubsrcribersRegistryTest {
         assertFalse(registry.isEventAcceptable(new Integer(0)));
         assertFalse(registry.isEventAcceptable(new Double(0)));
     }
+
+    @Test
+    public void dispatchTable() {
+        A a = new A();
+        B b1 = new B();
+        B b2 = new B();
+        registry.subscribe(b1);
+        registry.subscribe(a);
+        registry.subscribe(b2);
+        assertEquals(registry.getSubscribers(new Integer(0)),
+                new Subscriber[] { new Subscriber(b1, null), new Subscriber(a, null), new Subscriber(b2, null) });
+        assertEquals(registry.getSubscribers(new Double(0)),
+                new Subscriber[] { new Subscriber(b1, null), new Subscriber(b2, null) });
+        assertEquals(registry.getSubscribers("string").length, 0);
+        assertEquals(registry.getSubscribers(null).length, 0);
+        
+        registry.unsubscribe(b1);
+        assertEquals(registry.getSubscribers(new Integer(0)),
+                new Subscriber[] { new Subscriber(a, null), new Subscriber(b2, null) });
+        assertEquals(registry.getSubscribers(new Double(0)), new Subscriber[] { new Subscriber(b2, null) });
+        registry.unsubscribe(b2);
+        assertEquals(registry.getSubscribers(new Double(0)).length, 0);
+    }
 }
@@ -3,6 +3,7 @@ package org.jrivets.journal;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 
 import org.jrivets.util.SyncUtils;
 import org.testng.annotations.AfterMethod;
@@ -45,6 +46,7 @@ public class ChunkTest {
     public void init() throws IOException {
         testFile = File.createTempFile("chunkTest", ".tmp");
         testFile.deleteOnExit();
+        ChunkChecksum.getFile(testFile).deleteOnExit();
         chunk = null;
     }
 
@@ -303,6 +305,115 @@ public class ChunkTest {
         assertFalse(testFile.exists());
     }
 
+    @Test
+    public void checksumTest() throws IOException {
+        chunk = new Chunk(1, 10, testFile, false, false, 4);
+        byte[] data = new byte[] { 1, 2, 3, 4, 5, 6, 7 };
+        assertEquals(chunk.write(data, 0, 7), 7);
+        chunk.write(8);
+        assertEquals(chunk.write(data, 0, 7), 2);
+        byte[] read = new byte[10];
+        assertEquals(chunk.read(read, 0, 3), 3);
+        assertEquals(chunk.read(), 4);
+        assertEquals(chunk.read(read, 4, 6), 6);
+        assertEquals(read[9], 2);
+        chunk.setReadPosition(6L);
+        assertEquals(chunk.read(read, 0, 4), 4);
+    }
+
+    @Test(expectedExceptions = CorruptedChunkException.class)
+    public void checksumCorruptedTest() throws IOException {
+        chunk = new Chunk(1, 10, testFile, false, false, 4);
+        byte[] data = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+        assertEquals(chunk.write(data, 0, 8), 8);
+        flipByte(testFile, 5);
+        byte[] read = new byte[10];
+        assertEquals(chunk.read(read, 0, 4), 4);
+        chunk.read(read, 0, 4);
+    }
+
+    @Test
+    public void checksumReopenTest() throws IOException {
+        chunk = new Chunk(1, 10, testFile, false, false, 4);
+        byte[] data = new byte[] { 1, 2, 3, 4, 5, 6 };
+        assertEquals(chunk.write(data, 0, 6), 6);
+        chunk.close();
+
+        chunk = new Chunk(1, 6, testFile, true, false, 4);
+        byte[] read = new byte[10];
+        assertEquals(chunk.read(read, 0, 10), 6);
+        chunk.close();
+
+        flipByte(testFile, 5);
+        chunk = new Chunk(1, 6, testFile, true, false, 4);
+        chunk.setReadPosition(3L);
+        assertEquals(chunk.read(), 4);
+        try {
+            chunk.read(read, 0, 10);
+            fail("The corrupted block should not be read.");
+        } catch (CorruptedChunkException e) {
+            assertEquals(e.getChunkId(), 1);
+            assertEquals(e.getBlockPosition(), 4L);
+        }
+    }
+
+    @Test
+    public void checksumReadAheadOfLimitTest() throws IOException {
+        ChunkChecksum checksum = new ChunkChecksum(1, 4, testFile, false);
+        try {
+            byte[] data = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+            // the reader gets the block before the writer stores its checksum
+            checksum.onRead(data, 0, 4);
+            checksum.onWrite(data, 0, 8, 100L);
+            checksum.onRead(data, 4, 4);
+            assertEquals(checksum.getSkippedBlocks(), 0L);
+
+            checksum.onRead(data, 0, 4);
+            checksum.onWrite(data, 4, 4, 100L);
+            try {
+                checksum.onRead(5);
+                fail("The corrupted block should be reported when its checksum is stored.");
+            } catch (CorruptedChunkException e) {
+                assertEquals(e.getBlockPosition(), 8L);
+            }
+        } finally {
+            checksum.delete();
+        }
+    }
+
+    @Test
+    public void checksumPendingOverflowTest() throws IOException {
+        ChunkChecksum checksum = new ChunkChecksum(1, 4, testFile, false);
+        try {
+            byte[] data = new byte[4];
+            for (int i = 0; i <= ChunkChecksum.MAX_PENDING; i++) {
+                checksum.onRead(data, 0, 4);
+            }
+            assertEquals(checksum.getSkippedBlocks(), 1L);
+        } finally {
+            checksum.delete();
+        }
+    }
+
+    @Test
+    public void checksumDeleteTest() throws IOException {
+        chunk = new Chunk(1, 1, testFile, false, false, 4);
+        File crcFile = ChunkChecksum.getFile(testFile);
+        assertTrue(crcFile.exists());
+        chunk.delete();
+        assertFalse(testFile.exists());
+        assertFalse(crcFile.exists());
+    }
+
+    private void flipByte(File file, long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0x10);
+        }
+    }
+
     private void writeBytes(File file, int start, int count) throws IOException {
         FileOutputStream os = new FileOutputStream(file);
         while (count-- > 0) {
@@ -49,7 +49,9 @@ public class ExpandableJournalFunctionalTest {
     public void markTest() throws IOException {
         byte[] array = getShuffledByteArray(50);
         journal.getOutputStream().write(array, 0, array.length);
+        assertFalse(journal.getInputStream().hasMark());
         journal.getInputStream().mark(50);
+        assertTrue(journal.getInputStream().hasMark());
         
         byte[] read = new byte[array.length];
         assertEquals(read.length, journal.getInputStream().read(read, 0, read.length));
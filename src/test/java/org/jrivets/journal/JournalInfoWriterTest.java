@@ -65,6 +65,21 @@ public class JournalInfoWriterTest {
         fail("This test should not come to the point.");
     }
     
+    @Test(expectedExceptions = {IllegalStateException.class})
+    public void bitFlipFile() throws IOException {
+        JournalInfoWriter pos = new JournalInfoWriter(tmpFile, false);
+        pos.set(newJournalInfo(1, 2, 1, 3, 2, 2, 2));
+        pos.close();
+        
+        try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw")) {
+            raf.seek(30);
+            int b = raf.read();
+            raf.seek(30);
+            raf.write(b ^ 0x01);
+        }
+        new JournalInfoWriter(tmpFile, false);
+    }
+    
     @Test
     public void dropOldData() throws IOException {
         JournalInfoWriter pos = new JournalInfoWriter(tmpFile, false);
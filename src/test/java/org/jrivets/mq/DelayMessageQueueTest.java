@@ -0,0 +1,135 @@
+package org.jrivets.mq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jrivets.util.OverflowException;
+import org.testng.annotations.Test;
+
+public class DelayMessageQueueTest {
+
+    @Test(expectedExceptions = { IllegalArgumentException.class })
+    public void wrongTickTest() {
+        new DelayMessageQueue(10, 0L);
+    }
+
+    @Test
+    public void noDelayTest() throws OverflowException {
+        DelayMessageQueue q = new DelayMessageQueue(10);
+        q.put(1);
+        q.putWithDelay(2, 0L);
+        q.putWithDelay(null, -5L);
+        assertEquals(q.get(0L), 1);
+        assertEquals(q.get(0L), 2);
+        assertNull(q.get(0L));
+        assertEquals(q.size, 0);
+        assertNull(q.get(0L));
+    }
+
+    @Test(timeOut = 5000)
+    public void delayTest() throws OverflowException {
+        DelayMessageQueue q = new DelayMessageQueue(10);
+        long start = System.currentTimeMillis();
+        q.putWithDelay("late", 100L);
+        q.putWithDelay("early", 30L);
+        assertNull(q.get(0L));
+        assertEquals(q.get(5000L), "early");
+        assertTrue(System.currentTimeMillis() - start >= 30L);
+        assertEquals(q.get(5000L), "late");
+        assertTrue(System.currentTimeMillis() - start >= 100L);
+    }
+
+    @Test(timeOut = 5000)
+    public void getTimeoutBeforeDueTest() throws OverflowException {
+        DelayMessageQueue q = new DelayMessageQueue(10);
+        q.putWithDelay(1, 10000L);
+        assertNull(q.get(20L));
+        assertEquals(q.size, 1);
+    }
+
+    @Test(expectedExceptions = { OverflowException.class })
+    public void maxSizeTest() throws OverflowException {
+        DelayMessageQueue q = new DelayMessageQueue(1);
+        q.putWithDelay(1, 10000L);
+        assertFalse(q.offerWithDelay(2, 10L));
+        q.put(2);
+    }
+
+    @Test(timeOut = 10000)
+    public void orderTest() throws OverflowException {
+        DelayMessageQueue q = new DelayMessageQueue(1000);
+        Random rnd = new Random(3);
+        for (int i = 0; i < 500; i++) {
+            q.put(i);
+        }
+        List<Long> due = new ArrayList<Long>();
+        for (int i = 0; i < 500; i++) {
+            // the queue reads the clock after, so the real due time is not less
+            long delay = 20 + rnd.nextInt(300);
+            long d = System.currentTimeMillis() + delay;
+            due.add(d);
+            q.putWithDelay(d, delay);
+        }
+        for (int i = 0; i < 500; i++) {
+            assertEquals(q.get(0L), i);
+        }
+        long last = 0L;
+        for (int i = 0; i < 500; i++) {
+            long d = (Long) q.get(5000L);
+            assertTrue(System.currentTimeMillis() >= d);
+            // the messages due in the same millisecond can be reordered
+            assertTrue(d >= last - 1, "d=" + d + ", last=" + last);
+            last = Math.max(last, d);
+        }
+        assertNull(q.get(0L));
+    }
+
+    @Test
+    public void farDelayTest() throws OverflowException {
+        DelayMessageQueue q = new DelayMessageQueue(10, 10L);
+        q.putWithDelay(1, Long.MAX_VALUE);
+        q.putWithDelay(2, 1000L * 3600 * 24 * 365);
+        assertNull(q.get(0L));
+        assertEquals(q.size, 2);
+    }
+
+    @Test(timeOut = 5000)
+    public void earlierMessageWakesConsumerTest() throws OverflowException, InterruptedException {
+        final DelayMessageQueue q = new DelayMessageQueue(10);
+        q.putWithDelay("late", 10000L);
+        final List<Object> result = new ArrayList<Object>();
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                result.add(q.get(5000L));
+            };
+        });
+        t.start();
+        Thread.sleep(20L);
+        q.putWithDelay("early", 10L);
+        t.join();
+        assertEquals(result.get(0), "early");
+    }
+
+    @Test(timeOut = 5000)
+    public void terminateTest() throws OverflowException, InterruptedException {
+        final DelayMessageQueue q = new DelayMessageQueue(10);
+        q.putWithDelay(1, 10000L);
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                q.get(10000L);
+            };
+        });
+        t.start();
+        Thread.sleep(20L);
+        q.terminate();
+        t.join();
+        assertEquals(q.size, 0);
+        assertNull(q.get(0L));
+    }
+}
@@ -5,9 +5,14 @@ import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.jrivets.util.OverflowException;
 import org.testng.annotations.Test;
@@ -140,4 +145,133 @@ public class InMemoryQueueTest {
         q.terminate();
         q.put(new byte[11]);
     }
+
+    @Test
+    public void terminatedContractTest() throws OverflowException {
+        InMemoryFifoQueue q = new InMemoryFifoQueue(20);
+        q.terminate();
+        try {
+            q.offer(1);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // ok
+        }
+        try {
+            q.put(1, 10L);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // ok
+        }
+        try {
+            q.putAll(Arrays.asList(1, 2));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // ok
+        }
+        assertNull(q.get(0L));
+        assertEquals(q.drain(new ArrayList<Object>(), 10, 10L), 0);
+    }
+
+    @Test
+    public void putAllDrainTest() throws OverflowException {
+        InMemoryFifoQueue q = new InMemoryFifoQueue(5);
+        q.putAll(Arrays.asList(1, 2, 3));
+        q.putAll(new ArrayList<Integer>());
+        List<Integer> sink = new ArrayList<Integer>();
+        assertEquals(q.drain(sink, 2, 0L), 2);
+        assertEquals(sink, Arrays.asList(1, 2));
+        assertEquals(q.drain(sink, 10, 0L), 1);
+        assertEquals(sink, Arrays.asList(1, 2, 3));
+        assertEquals(q.drain(sink, 10, 20L), 0);
+        assertEquals(q.drain(sink, 0, 20L), 0);
+    }
+
+    @Test(expectedExceptions = { OverflowException.class })
+    public void putAllOverflowTest() throws OverflowException {
+        InMemoryFifoQueue q = new InMemoryFifoQueue(2);
+        q.put(1);
+        q.putAll(Arrays.asList(2, 3));
+    }
+
+    @Test(timeOut = 5000)
+    public void drainBlockedTest() throws OverflowException, InterruptedException {
+        final InMemoryFifoQueue q = new InMemoryFifoQueue(20);
+        final List<Integer> sink = new ArrayList<Integer>();
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                q.drain(sink, 10, 10000L);
+            };
+        });
+        t.start();
+        Thread.sleep(20L);
+        q.putAll(Arrays.asList(1, 2, 3));
+        t.join();
+        assertTrue(sink.size() >= 1);
+        assertEquals(sink.get(0).intValue(), 1);
+    }
+
+    @Test
+    public void offerTest() {
+        InMemoryFifoQueue q = new InMemoryFifoQueue(2);
+        assertTrue(q.offer(1));
+        assertTrue(q.offer(2));
+        assertFalse(q.offer(3));
+        assertFalse(q.put(3, 0L));
+        assertFalse(q.put(3, 20L));
+        assertEquals(q.get(0L), 1);
+        assertTrue(q.put(3, 20L));
+        assertEquals(q.get(0L), 2);
+        assertEquals(q.get(0L), 3);
+    }
+
+    @Test(timeOut = 5000)
+    public void blockWriterTest() throws InterruptedException {
+        final InMemoryFifoQueue q = new InMemoryFifoQueue(1, true);
+        final AtomicInteger put = new AtomicInteger();
+        q.offer(0);
+        Thread[] writers = new Thread[3];
+        for (int i = 0; i < writers.length; i++) {
+            final int value = i + 1;
+            writers[i] = new Thread(new Runnable() {
+                public void run() {
+                    if (q.put(value, 10000L)) {
+                        put.incrementAndGet();
+                    }
+                };
+            });
+            writers[i].start();
+        }
+        Thread.sleep(20L);
+        assertEquals(put.get(), 0);
+        int sum = 0;
+        for (int i = 0; i <= writers.length; i++) {
+            sum += (Integer) q.get(10000L);
+        }
+        for (Thread t : writers) {
+            t.join();
+        }
+        assertEquals(put.get(), writers.length);
+        assertEquals(sum, 6);
+    }
+
+    @Test(timeOut = 5000)
+    public void blockWriterTerminatedTest() throws InterruptedException {
+        final InMemoryFifoQueue q = new InMemoryFifoQueue(1);
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+        q.offer(0);
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    q.put(1, 10000L);
+                } catch (Exception e) {
+                    error.set(e);
+                }
+            };
+        });
+        t.start();
+        Thread.sleep(20L);
+        q.terminate();
+        t.join();
+        assertTrue(error.get() instanceof IllegalStateException);
+    }
 }
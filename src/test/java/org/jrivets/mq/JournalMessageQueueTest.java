@@ -0,0 +1,185 @@
+package org.jrivets.mq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jrivets.journal.ChunkNotFoundException;
+import org.jrivets.journal.Journal;
+import org.jrivets.journal.JournalBuilder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class JournalMessageQueueTest {
+
+    private final static String PREFIX = "journalMQ";
+
+    private Journal journal;
+
+    @BeforeMethod
+    public void setup() throws IOException, ChunkNotFoundException {
+        journal = newJournalBuilder().cleanAfterOpen().buildExpandable();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    public void putGetTest() {
+        JournalMessageQueue<String> q = newQueue(4);
+        q.put("a");
+        q.put(null);
+        q.put("b");
+        assertEquals(q.get(0L), "a");
+        assertNull(q.get(0L));
+        assertEquals(q.get(0L), "b");
+        assertNull(q.get(0L));
+        assertNull(q.get(20L));
+    }
+
+    @Test
+    public void recordsSpanChunksTest() {
+        JournalMessageQueue<String> q = newQueue(3);
+        for (int i = 0; i < 100; i++) {
+            q.put("message-" + i);
+            if (i % 3 == 0) {
+                assertEquals(q.get(0L), "message-" + (i / 3));
+            }
+        }
+        for (int i = 34; i < 100; i++) {
+            assertEquals(q.get(0L), "message-" + i);
+        }
+        assertNull(q.get(0L));
+    }
+
+    @Test
+    public void putAllDrainTest() {
+        JournalMessageQueue<Integer> q = newQueue(2);
+        q.putAll(Arrays.asList(1, 2, 3, 4, 5));
+        List<Integer> sink = new ArrayList<Integer>();
+        assertEquals(q.drain(sink, 4, 0L), 4);
+        assertEquals(sink, Arrays.asList(1, 2, 3, 4));
+        assertEquals(q.drain(sink, 4, 0L), 1);
+        assertEquals(q.drain(sink, 4, 20L), 0);
+        assertEquals(sink, Arrays.asList(1, 2, 3, 4, 5));
+    }
+
+    @Test(timeOut = 10000)
+    public void concurrentPutTest() throws InterruptedException {
+        final JournalMessageQueue<Integer> q = newQueue(8);
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            final int base = p * 1000;
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 200; i++) {
+                        q.put(base + i);
+                    }
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread t : producers) {
+            t.join();
+        }
+        int[] next = new int[producers.length];
+        for (int i = 0; i < 200 * producers.length; i++) {
+            int value = (Integer) q.get(0L);
+            assertEquals(value % 1000, next[value / 1000]++);
+        }
+        assertNull(q.get(0L));
+    }
+
+    @Test
+    public void redeliveryAfterRestartTest() throws IOException, ChunkNotFoundException {
+        JournalMessageQueue<Integer> q = newQueue(2);
+        for (int i = 1; i <= 5; i++) {
+            q.put(i);
+        }
+        assertEquals(q.get(0L), 1);
+        assertEquals(q.get(0L), 2);
+        assertEquals(q.get(0L), 3); // 1 and 2 are committed
+        q.terminate();
+        journal.close();
+
+        journal = newJournalBuilder().buildExpandable();
+        q = newQueue(2);
+        assertEquals(q.get(0L), 3);
+        assertEquals(q.get(0L), 4);
+        assertEquals(q.get(0L), 5);
+        q.put(6);
+        assertEquals(q.get(0L), 6);
+        assertNull(q.get(0L));
+    }
+
+    @Test(timeOut = 5000)
+    public void blockReaderTest() throws InterruptedException {
+        final JournalMessageQueue<Integer> q = newQueue(2);
+        final List<Object> result = new ArrayList<Object>();
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                result.add(q.get(10000L));
+            };
+        });
+        t.start();
+        Thread.sleep(50L);
+        q.put(7);
+        t.join();
+        assertEquals(result, Arrays.asList(7));
+    }
+
+    @Test(timeOut = 5000)
+    public void getTerminatedTest() throws InterruptedException {
+        final JournalMessageQueue<Integer> q = newQueue(2);
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                q.get(10000L);
+            };
+        });
+        t.start();
+        Thread.sleep(50L);
+        q.terminate();
+        t.join();
+        assertNull(q.get(0L));
+    }
+
+    @Test(expectedExceptions = { IllegalStateException.class })
+    public void putTerminatedTest() {
+        JournalMessageQueue<Integer> q = newQueue(2);
+        q.terminate();
+        q.put(1);
+    }
+
+    @Test(expectedExceptions = { IllegalArgumentException.class })
+    public void wrongReadAheadTest() {
+        newQueue(0);
+    }
+
+    @Test
+    public void offerTest() {
+        JournalMessageQueue<Integer> q = newQueue(2);
+        assertTrue(q.offer(1));
+        assertTrue(q.put(2, 10L));
+        assertEquals(q.get(0L), 1);
+        assertEquals(q.get(0L), 2);
+    }
+
+    private <M extends Serializable> JournalMessageQueue<M> newQueue(int readAhead) {
+        return new JournalMessageQueue<M>(journal, MessageSerializer.<M> javaSerialization(), readAhead);
+    }
+
+    private static JournalBuilder newJournalBuilder() {
+        return new JournalBuilder().withMaxCapacity(100000).withMaxChunkSize(100).withPrefixName(PREFIX)
+                .withFolderName(System.getProperty("java.io.tmpdir"));
+    }
+}
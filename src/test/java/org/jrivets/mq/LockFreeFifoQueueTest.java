@@ -0,0 +1,363 @@
+package org.jrivets.mq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jrivets.util.OverflowException;
+import org.testng.annotations.Test;
+
+public class LockFreeFifoQueueTest {
+
+    @Test
+    public void putGetTest() throws OverflowException {
+        LockFreeFifoQueue q = new LockFreeFifoQueue(20);
+        assertEquals(q.size(), 0);
+        q.put(new byte[10]);
+        assertEquals(q.size(), 1);
+        assertEquals(((byte[]) q.get(0L)).length, 10);
+        assertEquals(q.size(), 0);
+        assertNull(q.get(0L));
+    }
+
+    @Test(expectedExceptions = { OverflowException.class })
+    public void maxSizeTest() throws OverflowException {
+        LockFreeFifoQueue q = new LockFreeFifoQueue(1);
+        q.put(new Object());
+        q.put(new Object());
+    }
+
+    @Test
+    public void fifoTest() throws OverflowException {
+        LockFreeFifoQueue q = new LockFreeFifoQueue(20);
+        byte[] msg1 = new byte[10];
+        byte[] msg2 = new byte[10];
+        q.put(msg1);
+        q.put(null);
+        q.put(msg2);
+        assertEquals(q.get(0L), msg1);
+        assertNull(q.get(0L));
+        assertEquals(q.get(0L), msg2);
+        assertNull(q.get(0L));
+    }
+
+    @Test
+    public void getTimeoutTest() {
+        LockFreeFifoQueue q = new LockFreeFifoQueue(20);
+        long start = System.currentTimeMillis();
+        assertNull(q.get(50L));
+        assertTrue(System.currentTimeMillis() - start >= 50L);
+        assertEquals(q.waiters.get(), 0);
+    }
+
+    @Test(timeOut = 5000)
+    public void blockReaderTest() throws OverflowException, InterruptedException {
+        final LockFreeFifoQueue q = new LockFreeFifoQueue(20);
+        final AtomicInteger ai = new AtomicInteger();
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                ai.addAndGet(((byte[]) q.get(10000L)).length);
+            };
+        });
+        t.start();
+        while (q.waiters.get() < 1) {
+            Thread.yield();
+        }
+        q.put(new byte[13]);
+        t.join();
+        assertEquals(ai.get(), 13);
+        assertEquals(q.waiters.get(), 0);
+    }
+
+    @Test(timeOut = 5000)
+    public void getInterruptedTest() throws InterruptedException {
+        final LockFreeFifoQueue q = new LockFreeFifoQueue(20);
+        final AtomicBoolean ab = new AtomicBoolean();
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                q.get(10000L);
+                ab.set(Thread.currentThread().isInterrupted());
+            };
+        });
+        t.start();
+        while (q.waiters.get() < 1) {
+            Thread.yield();
+        }
+        t.interrupt();
+        t.join();
+        assertTrue(ab.get());
+    }
+
+    @Test(timeOut = 5000)
+    public void getTerminatedTest() throws OverflowException, InterruptedException {
+        final LockFreeFifoQueue q = new LockFreeFifoQueue(20);
+        final AtomicBoolean ab = new AtomicBoolean(true);
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                ab.set(q.get(10000L) != null);
+            };
+        });
+        t.start();
+        while (q.waiters.get() < 1) {
+            Thread.yield();
+        }
+        q.terminate();
+        t.join();
+        assertFalse(ab.get());
+    }
+
+    @Test(timeOut = 5000)
+    public void terminateTest() throws OverflowException {
+        LockFreeFifoQueue q = new LockFreeFifoQueue(20);
+        q.put(new byte[11]);
+        q.put(new byte[4]);
+        q.terminate();
+        assertEquals(q.size(), 0);
+        assertNull(q.get(100000L));
+    }
+
+    @Test(timeOut = 5000, expectedExceptions = { IllegalStateException.class })
+    public void putThrowsTest() throws OverflowException {
+        LockFreeFifoQueue q = new LockFreeFifoQueue(20);
+        q.terminate();
+        q.put(new byte[11]);
+    }
+
+    @Test(timeOut = 20000)
+    public void concurrentTest() throws InterruptedException {
+        final LockFreeFifoQueue q = new LockFreeFifoQueue(64);
+        final int count = 50000;
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger received = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < 2; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 1; j <= count; j++) {
+                        while (true) {
+                            try {
+                                q.put(Long.valueOf(j));
+                                break;
+                            } catch (OverflowException e) {
+                                Thread.yield();
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        for (int i = 2; i < 4; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    while (received.get() < 2 * count) {
+                        Long v = (Long) q.get(10L);
+                        if (v != null) {
+                            sum.addAndGet(v);
+                            received.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(sum.get(), (long) count * (count + 1));
+    }
+
+    @Test(timeOut = 5000)
+    public void putClaimedSlotTest() throws Exception {
+        final LockFreeFifoQueue q = new LockFreeFifoQueue(2);
+        q.put(1);
+        q.put(2);
+        // a consumer claims the slot by moving the head, but doesn't release it yet
+        Field head = Class.forName("org.jrivets.collection.SequencedRingBufferHead").getDeclaredField("head");
+        head.setAccessible(true);
+        head.setLong(q.buffer, 1L);
+        Field seqField = Class.forName("org.jrivets.collection.AbstractSequencedRingBuffer").getDeclaredField(
+                "sequences");
+        seqField.setAccessible(true);
+        final AtomicLongArray sequences = (AtomicLongArray) seqField.get(q.buffer);
+        Thread consumer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(50L);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                sequences.set(0, 2L);
+            }
+        });
+        consumer.start();
+        assertEquals(q.size(), 1);
+        q.put(3);
+        consumer.join();
+        assertEquals(q.get(0L), 2);
+        assertEquals(q.get(0L), 3);
+    }
+
+    @Test
+    public void putAllDrainTest() throws OverflowException {
+        LockFreeFifoQueue q = new LockFreeFifoQueue(5);
+        q.putAll(Arrays.asList(1, 2, 3));
+        q.putAll(new ArrayList<Integer>());
+        List<Integer> sink = new ArrayList<Integer>();
+        assertEquals(q.drain(sink, 2, 0L), 2);
+        assertEquals(sink, Arrays.asList(1, 2));
+        assertEquals(q.drain(sink, 10, 0L), 1);
+        assertEquals(sink, Arrays.asList(1, 2, 3));
+        assertEquals(q.drain(sink, 10, 20L), 0);
+        assertEquals(q.drain(sink, 0, 20L), 0);
+    }
+
+    @Test(expectedExceptions = { OverflowException.class })
+    public void putAllOverflowTest() throws OverflowException {
+        LockFreeFifoQueue q = new LockFreeFifoQueue(2);
+        q.put(1);
+        q.putAll(Arrays.asList(2, 3));
+    }
+
+    @Test
+    public void putAllOverflowNothingPutTest() throws OverflowException {
+        LockFreeFifoQueue q = new LockFreeFifoQueue(3);
+        q.put(1);
+        try {
+            q.putAll(Arrays.asList(2, null, 4));
+            fail("OverflowException expected");
+        } catch (OverflowException e) {
+            // ok
+        }
+        assertEquals(q.size(), 1);
+        q.putAll(Arrays.asList(2, null));
+        assertEquals(q.get(0L), 1);
+        assertEquals(q.get(0L), 2);
+        assertNull(q.get(0L));
+        assertEquals(q.size(), 0);
+    }
+
+    @Test(timeOut = 5000)
+    public void drainBlockedTest() throws OverflowException, InterruptedException {
+        final LockFreeFifoQueue q = new LockFreeFifoQueue(20);
+        final List<Integer> sink = new ArrayList<Integer>();
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                q.drain(sink, 10, 10000L);
+            };
+        });
+        t.start();
+        Thread.sleep(20L);
+        q.putAll(Arrays.asList(1, 2, 3));
+        t.join();
+        assertTrue(sink.size() >= 1);
+        assertEquals(sink.get(0).intValue(), 1);
+    }
+
+    @Test
+    public void offerTest() {
+        LockFreeFifoQueue q = new LockFreeFifoQueue(2);
+        assertTrue(q.offer(1));
+        assertTrue(q.offer(2));
+        assertFalse(q.offer(3));
+        assertFalse(q.put(3, 0L));
+        assertFalse(q.put(3, 20L));
+        assertEquals(q.get(0L), 1);
+        assertTrue(q.put(3, 20L));
+        assertEquals(q.get(0L), 2);
+        assertEquals(q.get(0L), 3);
+    }
+
+    @Test(timeOut = 5000)
+    public void blockWriterTest() throws InterruptedException {
+        final LockFreeFifoQueue q = new LockFreeFifoQueue(1, true);
+        final AtomicInteger put = new AtomicInteger();
+        q.offer(0);
+        Thread[] writers = new Thread[3];
+        for (int i = 0; i < writers.length; i++) {
+            final int value = i + 1;
+            writers[i] = new Thread(new Runnable() {
+                public void run() {
+                    if (q.put(value, 10000L)) {
+                        put.incrementAndGet();
+                    }
+                };
+            });
+            writers[i].start();
+        }
+        Thread.sleep(20L);
+        assertEquals(put.get(), 0);
+        int sum = 0;
+        for (int i = 0; i <= writers.length; i++) {
+            sum += (Integer) q.get(10000L);
+        }
+        for (Thread t : writers) {
+            t.join();
+        }
+        assertEquals(put.get(), writers.length);
+        assertEquals(sum, 6);
+    }
+
+    @Test(timeOut = 5000)
+    public void drainWakesWritersTest() throws InterruptedException {
+        final LockFreeFifoQueue q = new LockFreeFifoQueue(3);
+        final AtomicInteger put = new AtomicInteger();
+        q.offer(0);
+        q.offer(0);
+        q.offer(0);
+        Thread[] writers = new Thread[3];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new Thread(new Runnable() {
+                public void run() {
+                    if (q.put(1, 10000L)) {
+                        put.incrementAndGet();
+                    }
+                };
+            });
+            writers[i].start();
+        }
+        Thread.sleep(20L);
+        // a woken writer can put its value before the batch is claimed
+        int drained = q.drain(new ArrayList<Object>(), 10, 0L);
+        assertTrue(drained >= 3);
+        for (Thread t : writers) {
+            t.join();
+        }
+        assertEquals(put.get(), writers.length);
+        assertEquals(drained + q.size(), 6);
+    }
+
+    @Test(timeOut = 5000)
+    public void blockWriterTerminatedTest() throws InterruptedException {
+        final LockFreeFifoQueue q = new LockFreeFifoQueue(1);
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+        q.offer(0);
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    q.put(1, 10000L);
+                } catch (Exception e) {
+                    error.set(e);
+                }
+            };
+        });
+        t.start();
+        Thread.sleep(20L);
+        q.terminate();
+        t.join();
+        assertTrue(error.get() instanceof IllegalStateException);
+    }
+}
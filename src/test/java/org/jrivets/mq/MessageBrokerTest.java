@@ -0,0 +1,140 @@
+package org.jrivets.mq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jrivets.util.OverflowException;
+import org.testng.annotations.Test;
+
+public class MessageBrokerTest {
+
+    @Test
+    public void createTopicTest() {
+        MessageBroker broker = new MessageBroker(10);
+        Topic topic = broker.createTopic("t", 4);
+        assertSame(broker.createTopic("t", 4), topic);
+        assertSame(broker.getTopic("t"), topic);
+        assertNull(broker.getTopic("t2"));
+        assertTrue(broker.deleteTopic("t"));
+        assertFalse(broker.deleteTopic("t"));
+    }
+
+    @Test(expectedExceptions = { IllegalArgumentException.class })
+    public void differentPartitionsTest() {
+        MessageBroker broker = new MessageBroker(10);
+        broker.createTopic("t", 4);
+        broker.createTopic("t", 2);
+    }
+
+    @Test
+    public void perKeyOrderTest() throws OverflowException {
+        Topic topic = new MessageBroker(100).createTopic("t", 4);
+        TopicConsumer c = topic.subscribe("g");
+        assertEquals(c.getPartitions(), new int[] { 0, 1, 2, 3 });
+        for (int i = 0; i < 20; i++) {
+            topic.put("key" + (i % 3), i);
+        }
+        List<Integer> result = new ArrayList<Integer>();
+        Object value;
+        while ((value = c.get(0L)) != null) {
+            result.add((Integer) value);
+        }
+        assertEquals(result.size(), 20);
+        for (int k = 0; k < 3; k++) {
+            int last = -1;
+            for (int v : result) {
+                if (v % 3 == k) {
+                    assertTrue(v > last);
+                    last = v;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void groupsTest() throws OverflowException {
+        Topic topic = new MessageBroker(100).createTopic("t", 2);
+        TopicConsumer c1 = topic.subscribe("g1");
+        TopicConsumer c2 = topic.subscribe("g2");
+        topic.put(null, "m");
+        assertEquals(c1.get(0L), "m");
+        assertEquals(c2.get(0L), "m");
+        assertNull(c1.get(0L));
+        assertEquals(topic.getGroups(), Arrays.asList("g1", "g2"));
+    }
+
+    @Test
+    public void rebalanceTest() throws OverflowException {
+        Topic topic = new MessageBroker(100).createTopic("t", 3);
+        TopicConsumer c1 = topic.subscribe("g");
+        TopicConsumer c2 = topic.subscribe("g");
+        assertEquals(c1.getPartitions(), new int[] { 0, 2 });
+        assertEquals(c2.getPartitions(), new int[] { 1 });
+        for (int i = 0; i < 30; i++) {
+            topic.put(i, i);
+        }
+        Set<Object> received = new HashSet<Object>();
+        Object value;
+        while ((value = c2.get(0L)) != null) {
+            assertEquals(topic.partitionOf(value), 1);
+            received.add(value);
+        }
+        c2.close();
+        assertNull(c2.get(0L));
+        assertEquals(c1.getPartitions(), new int[] { 0, 1, 2 });
+        while ((value = c1.get(0L)) != null) {
+            received.add(value);
+        }
+        assertEquals(received.size(), 30);
+    }
+
+    @Test(timeOut = 5000)
+    public void blockConsumerTest() throws InterruptedException, OverflowException {
+        final Topic topic = new MessageBroker(100).createTopic("t", 4);
+        final TopicConsumer c = topic.subscribe("g");
+        final List<Object> result = new ArrayList<Object>();
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                result.add(c.get(10000L));
+            };
+        });
+        t.start();
+        Thread.sleep(20L);
+        topic.put("key", "value");
+        t.join();
+        assertEquals(result, Arrays.asList("value"));
+    }
+
+    @Test(timeOut = 5000)
+    public void deleteTopicTest() throws InterruptedException {
+        MessageBroker broker = new MessageBroker(100);
+        final TopicConsumer c = broker.createTopic("t", 2).subscribe("g");
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                c.get(10000L);
+            };
+        });
+        t.start();
+        Thread.sleep(20L);
+        broker.terminate();
+        t.join();
+        assertNull(broker.getTopic("t"));
+    }
+
+    @Test(expectedExceptions = { OverflowException.class })
+    public void overflowTest() throws OverflowException {
+        Topic topic = new MessageBroker(1).createTopic("t", 1);
+        topic.subscribe("g");
+        topic.put(null, 1);
+        topic.put(null, 2);
+    }
+}
@@ -0,0 +1,177 @@
+package org.jrivets.mq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jrivets.journal.Journal;
+import org.jrivets.journal.JournalBuilder;
+import org.jrivets.util.OverflowException;
+import org.testng.annotations.Test;
+
+public class MeteredMessageQueueTest {
+
+    @Test
+    public void putGetTest() throws OverflowException {
+        MeteredMessageQueue q = new MeteredMessageQueue(new InMemoryFifoQueue(10));
+        q.put("a");
+        q.put(null);
+        q.putAll(Arrays.asList("b", "c"));
+        assertEquals(q.get(0L), "a");
+        assertNull(q.get(0L));
+        List<String> sink = new ArrayList<String>();
+        assertEquals(q.drain(sink, 10, 0L), 2);
+        assertEquals(sink, Arrays.asList("b", "c"));
+        assertNull(q.get(0L));
+
+        QueueMetrics m = q.getMetrics();
+        assertEquals(m.getTotalEnqueued(), 4L);
+        assertEquals(m.getTotalDequeued(), 4L);
+        assertEquals(m.getDepth(), 0L);
+        assertEquals(m.getPeakDepth(), 4L);
+        assertEquals(m.getOverflowRejections(), 0L);
+        assertTrue(m.getEnqueueRate() > 0.0);
+        assertTrue(m.getDequeueRate() > 0.0);
+    }
+
+    @Test
+    public void intervalTest() throws OverflowException {
+        MeteredMessageQueue q = new MeteredMessageQueue(new InMemoryFifoQueue(10));
+        q.put(1);
+        q.put(2);
+        q.getMetrics();
+        q.get(0L);
+
+        QueueMetrics m = q.getMetrics();
+        assertEquals(m.getTotalEnqueued(), 2L);
+        assertEquals(m.getTotalDequeued(), 1L);
+        assertEquals(m.getDepth(), 1L);
+        assertEquals(m.getPeakDepth(), 2L);
+        assertEquals(m.getEnqueueRate(), 0.0);
+
+        m = q.getMetrics();
+        assertEquals(m.getPeakDepth(), 1L);
+        assertEquals(m.getDequeueRate(), 0.0);
+        assertEquals(m.getSojournPercentileMicros(99.0), 0L);
+    }
+
+    @Test
+    public void overflowTest() throws OverflowException {
+        MeteredMessageQueue q = new MeteredMessageQueue(new InMemoryFifoQueue(1));
+        q.put(1);
+        assertFalse(q.offer(2));
+        assertFalse(q.put(2, 1L));
+        try {
+            q.put(2);
+            fail("OverflowException expected");
+        } catch (OverflowException e) {
+            // ok
+        }
+        QueueMetrics m = q.getMetrics();
+        assertEquals(m.getOverflowRejections(), 3L);
+        assertEquals(m.getTotalEnqueued(), 1L);
+        assertEquals(m.getDepth(), 1L);
+    }
+
+    @Test
+    public void putAllOverflowTest() throws OverflowException {
+        MeteredMessageQueue q = new MeteredMessageQueue(new InMemoryFifoQueue(2));
+        q.put(1);
+        try {
+            q.putAll(Arrays.asList(2, 3, 4));
+            fail("OverflowException expected");
+        } catch (OverflowException e) {
+            // ok
+        }
+        assertEquals(q.getMetrics().getOverflowRejections(), 3L);
+    }
+
+    @Test
+    public void foreignMessageTest() throws OverflowException {
+        InMemoryFifoQueue delegate = new InMemoryFifoQueue(10);
+        delegate.put("a");
+        MeteredMessageQueue q = new MeteredMessageQueue(delegate);
+        q.put("b");
+        delegate.put("c");
+        assertEquals(q.get(0L), "a");
+        List<String> sink = new ArrayList<String>();
+        assertEquals(q.drain(sink, 10, 0L), 2);
+        assertEquals(sink, Arrays.asList("b", "c"));
+
+        QueueMetrics m = q.getMetrics();
+        assertEquals(m.getTotalEnqueued(), 1L);
+        assertEquals(m.getTotalDequeued(), 3L);
+        assertEquals(m.getDepth(), 0L);
+    }
+
+    @Test
+    public void journalTest() throws Exception {
+        JournalBuilder builder = new JournalBuilder().withMaxCapacity(100000).withMaxChunkSize(1000)
+                .withPrefixName("meteredMQ").withFolderName(System.getProperty("java.io.tmpdir"));
+        Journal journal = builder.cleanAfterOpen().buildExpandable();
+        try {
+            MeteredMessageQueue q = new MeteredMessageQueue(newJournalQueue(journal));
+            q.put("a");
+            q.putAll(Arrays.asList("b", "c"));
+            assertEquals(q.get(0L), "a");
+            q.terminate();
+            journal.close();
+
+            journal = new JournalBuilder().withMaxCapacity(100000).withMaxChunkSize(1000)
+                    .withPrefixName("meteredMQ").withFolderName(System.getProperty("java.io.tmpdir"))
+                    .buildExpandable();
+            q = new MeteredMessageQueue(newJournalQueue(journal));
+            assertEquals(q.get(0L), "a"); // is not committed
+            assertEquals(q.get(0L), "b");
+            assertEquals(q.get(0L), "c");
+            QueueMetrics m = q.getMetrics();
+            assertEquals(m.getTotalDequeued(), 3L);
+            assertEquals(m.getDepth(), 0L);
+            assertEquals(m.getSojournPercentileMicros(100.0), 0L);
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void waitAndSojournTest() throws OverflowException, InterruptedException {
+        MeteredMessageQueue q = new MeteredMessageQueue(new InMemoryFifoQueue(10));
+        assertNull(q.get(50L));
+        q.put(1);
+        Thread.sleep(20L);
+        assertEquals(q.get(0L), 1);
+
+        QueueMetrics m = q.getMetrics();
+        assertTrue(m.getConsumerWaitTimeMs() >= 40L, m.toString());
+        assertTrue(m.getSojournPercentileMicros(50.0) >= 20000L, m.toString());
+        assertTrue(m.getSojournPercentileMicros(50.0) < 10000000L, m.toString());
+    }
+
+    @Test
+    public void histogramTest() {
+        for (long v = 0L; v < 100000L; v++) {
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(v));
+            assertTrue(highest >= v && highest <= v + v / 8, "v=" + v + ", highest=" + highest);
+        }
+        assertTrue(LatencyHistogram.bucketOf(Long.MAX_VALUE) < LatencyHistogram.BUCKETS);
+
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            h.record(i);
+        }
+        long[] counts = h.getAndReset();
+        assertEquals(LatencyHistogram.percentile(counts, 50.0), 51L);
+        assertEquals(LatencyHistogram.percentile(counts, 100.0), 103L);
+        assertEquals(LatencyHistogram.percentile(h.getAndReset(), 50.0), 0L);
+    }
+
+    private static JournalMessageQueue<String> newJournalQueue(Journal journal) {
+        return new JournalMessageQueue<String>(journal, MessageSerializer.<String> javaSerialization());
+    }
+}
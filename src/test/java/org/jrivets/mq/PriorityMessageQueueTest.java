@@ -0,0 +1,96 @@
+package org.jrivets.mq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jrivets.util.OverflowException;
+import org.testng.annotations.Test;
+
+public class PriorityMessageQueueTest {
+
+    @Test(expectedExceptions = { IllegalArgumentException.class })
+    public void noLanesTest() {
+        new PriorityMessageQueue(10);
+    }
+
+    @Test(expectedExceptions = { IllegalArgumentException.class })
+    public void wrongWeightTest() {
+        new PriorityMessageQueue(10, 1, 0);
+    }
+
+    @Test(expectedExceptions = { IllegalArgumentException.class })
+    public void wrongPriorityTest() throws OverflowException {
+        new PriorityMessageQueue(10, 1, 1).putWithPriority(1, 2);
+    }
+
+    @Test
+    public void priorityTest() throws OverflowException {
+        PriorityMessageQueue q = new PriorityMessageQueue(10, 1, 1);
+        q.put("low");
+        q.putWithPriority(null, 0);
+        q.putWithPriority("high", 0);
+        assertEquals(q.getLanes(), 2);
+        assertNull(q.get(0L));
+        assertEquals(q.get(0L), "low");
+        assertEquals(q.get(0L), "high");
+        assertNull(q.get(0L));
+        assertEquals(q.size, 0);
+    }
+
+    @Test
+    public void weightedRoundRobinTest() throws OverflowException {
+        PriorityMessageQueue q = new PriorityMessageQueue(100, 3, 2, 1);
+        for (int i = 0; i < 6; i++) {
+            q.putWithPriority("a", 0);
+            q.putWithPriority("b", 1);
+            q.putWithPriority("c", 2);
+        }
+        StringBuilder sb = new StringBuilder();
+        Object value;
+        while ((value = q.get(0L)) != null) {
+            sb.append(value);
+        }
+        assertEquals(sb.toString(), "aaabbc" + "aaabbc" + "bbc" + "c" + "c" + "c");
+    }
+
+    @Test
+    public void drainTest() throws OverflowException {
+        PriorityMessageQueue q = new PriorityMessageQueue(3, 1, 1);
+        q.putAll(Arrays.asList(1, 2));
+        q.putWithPriority(0, 0);
+        assertFalse(q.offerWithPriority(3, 0));
+        List<Integer> sink = new ArrayList<Integer>();
+        assertEquals(q.drain(sink, 10, 0L), 3);
+        assertEquals(sink, Arrays.asList(0, 1, 2));
+    }
+
+    @Test(timeOut = 5000)
+    public void blockReaderTest() throws OverflowException, InterruptedException {
+        final PriorityMessageQueue q = new PriorityMessageQueue(10, 1, 1);
+        final List<Object> result = new ArrayList<Object>();
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                result.add(q.get(10000L));
+            };
+        });
+        t.start();
+        Thread.sleep(20L);
+        q.putWithPriority("x", 1);
+        t.join();
+        assertEquals(result, Arrays.asList("x"));
+    }
+
+    @Test(timeOut = 5000, expectedExceptions = { IllegalStateException.class })
+    public void terminateTest() throws OverflowException {
+        PriorityMessageQueue q = new PriorityMessageQueue(10, 1, 1);
+        q.put(1);
+        q.terminate();
+        assertNull(q.get(0L));
+        q.putWithPriority(1, 0);
+    }
+}
@@ -0,0 +1,162 @@
+package org.jrivets.mq;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jrivets.journal.Journal;
+import org.jrivets.journal.JournalBuilder;
+import org.jrivets.util.OverflowException;
+import org.testng.annotations.Test;
+
+public class ReliableMessageQueueTest {
+
+    @Test(expectedExceptions = { IllegalArgumentException.class })
+    public void wrongTimeoutTest() {
+        new ReliableMessageQueue(10, 0L);
+    }
+
+    @Test
+    public void ackTest() throws OverflowException {
+        ReliableMessageQueue q = new ReliableMessageQueue(10, 10000L);
+        q.put("a");
+        Lease lease = q.receive(0L);
+        assertEquals(lease.getMessage(), "a");
+        assertEquals(lease.getDeliveryCount(), 1);
+        assertEquals(q.getInFlight(), 1);
+        assertNull(q.receive(0L));
+        assertTrue(q.ack(lease));
+        assertFalse(q.ack(lease));
+        assertFalse(q.nack(lease));
+        assertEquals(q.getInFlight(), 0);
+        assertNull(q.receive(0L));
+    }
+
+    @Test
+    public void nackTest() throws OverflowException {
+        ReliableMessageQueue q = new ReliableMessageQueue(10, 10000L);
+        q.put("a");
+        q.put("b");
+        Lease lease = q.receive(0L);
+        assertTrue(q.nack(lease));
+        assertFalse(q.ack(lease));
+        Lease redelivered = q.receive(0L);
+        assertEquals(redelivered.getMessage(), "a");
+        assertEquals(redelivered.getDeliveryCount(), 2);
+        assertEquals(q.receive(0L).getMessage(), "b");
+        assertEquals(q.getInFlight(), 2);
+    }
+
+    @Test
+    public void foreignMessageTest() throws OverflowException {
+        InMemoryFifoQueue delegate = new InMemoryFifoQueue(10);
+        delegate.put("a");
+        ReliableMessageQueue q = new ReliableMessageQueue(delegate, 10000L);
+        Lease lease = q.receive(0L);
+        assertEquals(lease.getMessage(), "a");
+        assertEquals(lease.getDeliveryCount(), 1);
+        assertTrue(q.nack(lease));
+        assertEquals(q.receive(0L).getDeliveryCount(), 2);
+    }
+
+    @Test
+    public void journalTest() throws Exception {
+        Journal journal = new JournalBuilder().withMaxCapacity(100000).withMaxChunkSize(1000)
+                .withPrefixName("reliableMQ").withFolderName(System.getProperty("java.io.tmpdir")).cleanAfterOpen()
+                .buildExpandable();
+        try {
+            ReliableMessageQueue q = new ReliableMessageQueue(new JournalMessageQueue<Serializable>(journal,
+                    MessageSerializer.<Serializable> javaSerialization()), 10000L);
+            q.put("a");
+            q.putAll(Arrays.asList("b", "c"));
+            Lease lease = q.receive(0L);
+            assertEquals(lease.getMessage(), "a");
+            assertTrue(q.nack(lease));
+            assertEquals(q.get(0L), "a");
+            assertEquals(q.get(0L), "b");
+            assertEquals(q.get(0L), "c");
+            assertNull(q.get(0L));
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test(timeOut = 5000)
+    public void visibilityTimeoutTest() throws OverflowException, InterruptedException {
+        ReliableMessageQueue q = new ReliableMessageQueue(10, 50L);
+        q.put(null);
+        Lease lease = q.receive(0L);
+        assertNull(lease.getMessage());
+        assertNull(q.receive(0L));
+        Lease redelivered = q.receive(2000L);
+        assertNotNull(redelivered);
+        assertEquals(redelivered.getDeliveryCount(), 2);
+        assertFalse(q.ack(lease));
+        assertTrue(q.ack(redelivered));
+        assertEquals(q.getInFlight(), 0);
+        Thread.sleep(100L);
+        assertNull(q.receive(0L));
+    }
+
+    @Test(timeOut = 5000)
+    public void manyLeasesTest() throws OverflowException {
+        ReliableMessageQueue q = new ReliableMessageQueue(100000, 30L);
+        for (int i = 0; i < 10000; i++) {
+            q.put(i);
+        }
+        List<Lease> leases = new ArrayList<Lease>();
+        Lease lease;
+        while ((lease = q.receive(0L)) != null) {
+            leases.add(lease);
+        }
+        assertEquals(leases.size(), 10000);
+        for (int i = 0; i < leases.size(); i += 2) {
+            assertTrue(q.ack(leases.get(i)));
+        }
+        assertEquals(q.getInFlight(), 5000);
+        int redelivered = 0;
+        while ((lease = q.receive(1000L)) != null) {
+            assertEquals(((Integer) lease.getMessage()) % 2, 1);
+            assertTrue(q.ack(lease));
+            redelivered++;
+        }
+        assertEquals(redelivered, 5000);
+        assertEquals(q.getInFlight(), 0);
+    }
+
+    @Test
+    public void getDrainTest() throws OverflowException {
+        ReliableMessageQueue q = new ReliableMessageQueue(10, 10000L);
+        q.putAll(Arrays.asList(1, 2, 3));
+        assertEquals(q.get(0L), 1);
+        List<Integer> sink = new ArrayList<Integer>();
+        assertEquals(q.drain(sink, 5, 0L), 2);
+        assertEquals(sink, Arrays.asList(2, 3));
+        assertEquals(q.getInFlight(), 0);
+    }
+
+    @Test(timeOut = 5000)
+    public void terminateTest() throws OverflowException, InterruptedException {
+        final ReliableMessageQueue q = new ReliableMessageQueue(10, 10000L);
+        q.put(1);
+        Lease lease = q.receive(0L);
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                q.receive(10000L);
+            };
+        });
+        t.start();
+        Thread.sleep(20L);
+        q.terminate();
+        t.join();
+        assertEquals(q.getInFlight(), 0);
+        assertFalse(q.ack(lease));
+    }
+}
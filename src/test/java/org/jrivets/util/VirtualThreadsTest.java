@@ -0,0 +1,63 @@
+package org.jrivets.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+public class VirtualThreadsTest {
+
+    @Test(timeOut = 5000)
+    public void executorTest() throws InterruptedException {
+        ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        final CountDownLatch latch = new CountDownLatch(100);
+        final AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    count.incrementAndGet();
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(count.get(), 100);
+    }
+
+    @Test(timeOut = 5000)
+    public void threadFactoryTest() throws InterruptedException {
+        ThreadFactory factory = VirtualThreads.newThreadFactory("vt-");
+        Thread t1 = factory.newThread(() -> {});
+        Thread t2 = factory.newThread(() -> {});
+        assertEquals(t1.getName(), "vt-0");
+        assertEquals(t2.getName(), "vt-1");
+        assertTrue(t1.isDaemon());
+        t1.start();
+        t1.join();
+    }
+
+    @Test
+    public void supportedTest() throws Exception {
+        String version = System.getProperty("java.specification.version");
+        int major = Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+        if (major >= 21 || major < 19) {
+            // Java 19 and 20 support them only if the preview features are enabled
+            assertEquals(VirtualThreads.isSupported(), major >= 21);
+        }
+        Thread t = VirtualThreads.newThreadFactory("vt-").newThread(() -> {});
+        if (VirtualThreads.isSupported()) {
+            assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(t));
+        } else {
+            assertEquals(t.getClass(), Thread.class);
+        }
+    }
+}